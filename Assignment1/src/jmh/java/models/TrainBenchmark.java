@@ -0,0 +1,103 @@
+package models;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the shunting operations and aggregates of a train for lengths from 10 to 10^6 wagons,
+ * with and without the positional index. Run with the GC profiler to also report the allocation rate per operation:
+ * java -jar target/benchmarks.jar TrainBenchmark -prof gc
+ *
+ * The operations that change the train are paired with their inverse, such that the length of the train
+ * stays the same throughout a trial and no setup is needed per invocation.
+ * The inverse of attaching the loose wagon moves it back to a scratch train, which costs no more than the attachment.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrainBenchmark {
+    @Param({"10", "1000", "100000", "1000000"})
+    int length;
+
+    @Param({"false", "true"})
+    boolean indexed;
+
+    Train passengerTrain;
+    Train otherPassengerTrain;
+    Train freightTrain;
+    Train scratchTrain;
+    Wagon looseWagon;
+    SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        passengerTrain = new Train(new Locomotive(24531, Integer.MAX_VALUE), "Amsterdam", "Paris");
+        otherPassengerTrain = new Train(new Locomotive(29123, Integer.MAX_VALUE), "Amsterdam", "London");
+        freightTrain = new Train(new Locomotive(63427, Integer.MAX_VALUE), "Amsterdam", "Berlin");
+        passengerTrain.setIndexed(indexed);
+        otherPassengerTrain.setIndexed(indexed);
+        freightTrain.setIndexed(indexed);
+        for (int i = 0; i < length; i++) {
+            passengerTrain.attachToRear(new PassengerWagon(1 + i, 10 + i % 50));
+            freightTrain.attachToRear(new FreightWagon(length + 1 + i, 1000 + i % 50));
+        }
+        scratchTrain = new Train(new Locomotive(0, 1), "Amsterdam", "Amsterdam");
+        looseWagon = new PassengerWagon(0, 40);
+        scratchTrain.attachToRear(looseWagon);
+        random = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public boolean attachToRear() {
+        return passengerTrain.attachToRear(looseWagon)
+                && passengerTrain.moveOneWagon(looseWagon.getId(), scratchTrain);
+    }
+
+    @Benchmark
+    public boolean insertAtPosition() {
+        return passengerTrain.insertAtPosition(random.nextInt(length + 1), looseWagon)
+                && passengerTrain.moveOneWagon(looseWagon.getId(), scratchTrain);
+    }
+
+    @Benchmark
+    public Wagon findWagonById() {
+        return passengerTrain.findWagonById(1 + random.nextInt(length));
+    }
+
+    @Benchmark
+    public Wagon findWagonAtPosition() {
+        return passengerTrain.findWagonAtPosition(random.nextInt(length));
+    }
+
+    @Benchmark
+    public boolean moveOneWagon() {
+        int wagonId = 1 + random.nextInt(length);
+        return passengerTrain.moveOneWagon(wagonId, otherPassengerTrain)
+                && otherPassengerTrain.moveOneWagon(wagonId, passengerTrain);
+    }
+
+    @Benchmark
+    public boolean splitAtPosition() {
+        return passengerTrain.splitAtPosition(random.nextInt(length), otherPassengerTrain)
+                && otherPassengerTrain.splitAtPosition(0, passengerTrain);
+    }
+
+    @Benchmark
+    public Wagon reverse() {
+        passengerTrain.reverse();
+        return passengerTrain.getFirstWagon();
+    }
+
+    @Benchmark
+    public void aggregates(Blackhole blackhole) {
+        blackhole.consume(passengerTrain.getTotalNumberOfSeats());
+        blackhole.consume(freightTrain.getTotalMaxWeight());
+        blackhole.consume(passengerTrain.getNumberOfWagons());
+    }
+}
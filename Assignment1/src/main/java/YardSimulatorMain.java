@@ -0,0 +1,28 @@
+import models.YardSimulator;
+
+import java.util.Locale;
+
+public class YardSimulatorMain {
+    private static final long SEED = 20231113L;
+
+    private static final int TRAINS = 2000;
+    private static final int WAGONS_PER_TRAIN = 100;
+    private static final int OPERATIONS = 2_000_000;
+    private static final int DISPATCHERS = 16;
+
+    public static void main(String[] args) {
+        Locale.setDefault(Locale.ENGLISH);
+        System.out.println("Welcome to the HvA yard simulator");
+
+        // the first run only warms up the JVM
+        new YardSimulator(SEED, TRAINS, WAGONS_PER_TRAIN).run(OPERATIONS / 10, DISPATCHERS, false);
+
+        for (int dispatchers : new int[]{1, DISPATCHERS}) {
+            for (boolean virtualThreads : new boolean[]{false, true}) {
+                YardSimulator simulator = new YardSimulator(SEED, TRAINS, WAGONS_PER_TRAIN);
+                System.out.printf("\n%d trains of %d wagons, %d dispatcher(s):\n", TRAINS, WAGONS_PER_TRAIN, dispatchers);
+                System.out.println(simulator.run(OPERATIONS, dispatchers, virtualThreads));
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package models;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * A CapacityIndex orders the trains of a yard by their headroom, i.e. the number of wagons that their
+ * locomotive can pull in addition to their current wagons, separately for passenger trains, freight trains
+ * and trains without wagons (which can take wagons of either type).
+ * It finds the train that fits a sequence of wagons best in logarithmic time,
+ * instead of checking every train whether the sequence can be attached.
+ *
+ * The index is updated by the yard whenever the composition of a train may have changed.
+ * It assumes that the maximum number of wagons of a locomotive does not change while its train is part of the yard.
+ */
+public class CapacityIndex {
+    private static final int EMPTY = 0;
+    private static final int PASSENGER = 1;
+    private static final int FREIGHT = 2;
+
+    /**
+     * The headroom of a train, with the position of the train in the order of the yard to break ties
+     */
+    private record Entry(int type, int headroom, long order, Train train) {
+        static final Comparator<Entry> ORDER =
+                Comparator.comparingInt(Entry::headroom).thenComparingLong(Entry::order);
+    }
+
+    @SuppressWarnings("unchecked")
+    private final ConcurrentSkipListSet<Entry>[] entriesByType = (ConcurrentSkipListSet<Entry>[]) new ConcurrentSkipListSet<?>[]{
+            new ConcurrentSkipListSet<>(Entry.ORDER),
+            new ConcurrentSkipListSet<>(Entry.ORDER),
+            new ConcurrentSkipListSet<>(Entry.ORDER)
+    };
+    private final Map<Train, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Finds the train with the least headroom that can still take the sequence of wagons headed by the given wagon.
+     * A train that already has wagons of the same type is preferred over a train without wagons of equal headroom.
+     * The result is a hint when the yard is shunted concurrently: the attachment may still fail.
+     *
+     * @param wagon the head wagon of a sequence of wagons
+     * @return the best fitting train (null if no train in the yard can take the sequence)
+     */
+    public Train findBestFit(Wagon wagon) {
+        int type = wagon instanceof PassengerWagon ? PASSENGER : wagon instanceof FreightWagon ? FREIGHT : EMPTY;
+        if (type == EMPTY) {
+            return null;
+        }
+        int length = wagon.getSequenceLength();
+        Entry sameType = ceiling(entriesByType[type], length, wagon.train);
+        Entry empty = ceiling(entriesByType[EMPTY], length, wagon.train);
+        if (sameType == null || empty != null && empty.headroom < sameType.headroom) {
+            return empty == null ? null : empty.train;
+        }
+        return sameType.train;
+    }
+
+    /**
+     * @return the number of trains in the index
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the entry with the least headroom of at least the given length, other than that of the excluded train
+     */
+    private static Entry ceiling(ConcurrentSkipListSet<Entry> entries, int length, Train excluded) {
+        for (Entry entry : entries.tailSet(new Entry(EMPTY, length, Long.MIN_VALUE, null))) {
+            if (entry.train != excluded) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds the given train to the index
+     *
+     * @param train the train
+     * @param order the position of the train in the order of the yard
+     */
+    void add(Train train, long order) {
+        update(train, order, null);
+    }
+
+    /**
+     * Updates the headroom of the given train after its composition may have changed, if it is in the index.
+     * Updates of the same train shall not happen concurrently.
+     */
+    void refresh(Train train) {
+        Entry previous = entries.get(train);
+        if (previous != null) {
+            update(train, previous.order, previous);
+        }
+    }
+
+    private void update(Train train, long order, Entry previous) {
+        int type = train.isPassengerTrain() ? PASSENGER : train.isFreightTrain() ? FREIGHT : EMPTY;
+        Entry entry = new Entry(type, train.getEngine().getMaxWagons() - train.getNumberOfWagons(), order, train);
+        if (entry.equals(previous)) {
+            return;
+        }
+        entries.put(train, entry);
+        if (previous != null) {
+            entriesByType[previous.type].remove(previous);
+        }
+        entriesByType[type].add(entry);
+    }
+
+    /**
+     * Removes the given train from the index
+     */
+    void remove(Train train) {
+        Entry previous = entries.remove(train);
+        if (previous != null) {
+            entriesByType[previous.type].remove(previous);
+        }
+    }
+}
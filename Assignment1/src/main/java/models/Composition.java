@@ -0,0 +1,444 @@
+package models;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A Composition is an immutable sequence of wagons, for exploring alternative compositions of trains
+ * without copying or re-linking any wagons.
+ * Every operation returns a new version that shares most of its structure with the original version,
+ * which remains valid and unchanged. Splitting, concatenating, inserting, removing and reversing
+ * take logarithmic time (in expectation).
+ *
+ * The sequence is held in a persistent implicit treap (a randomized balanced binary tree, ordered by position),
+ * of which the nodes are never modified once they have been created. Reversals are applied lazily.
+ *
+ * @see SequenceIndex for the mutable counterpart that indexes the wagons of a train
+ */
+public final class Composition implements Iterable<Wagon> {
+
+    private static final class Node {
+        final Wagon wagon;
+        final int priority;
+        final Node left, right;
+        // whether the children of this node are to be swapped, throughout its subtree
+        final boolean reversed;
+        final int size;
+        final int totalNumberOfSeats;
+        final int totalMaxWeight;
+
+        Node(Wagon wagon, int priority, Node left, Node right, boolean reversed) {
+            this.wagon = wagon;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.reversed = reversed;
+            int numberOfSeats = wagon instanceof PassengerWagon passengerWagon ? passengerWagon.getNumberOfSeats() : 0;
+            int maxWeight = wagon instanceof FreightWagon freightWagon ? freightWagon.getMaxWeight() : 0;
+            this.size = 1 + size(left) + size(right);
+            this.totalNumberOfSeats = numberOfSeats + totalNumberOfSeats(left) + totalNumberOfSeats(right);
+            this.totalMaxWeight = maxWeight + totalMaxWeight(left) + totalMaxWeight(right);
+        }
+    }
+
+    private static final Composition EMPTY = new Composition(null);
+
+    private final Node root;
+
+    private Composition(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * @return the composition without any wagons
+     */
+    public static Composition empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates a composition of the sequence of wagons from head until its final successor.
+     * The composition is built in linear time.
+     *
+     * @param head the first wagon of the sequence (can be null)
+     * @return the composition of the current sequence, which is not affected by later changes of the wagons
+     */
+    public static Composition of(Wagon head) {
+        int length = head == null ? 0 : head.getSequenceLength();
+        if (length == 0) {
+            return EMPTY;
+        }
+        Wagon[] wagons = new Wagon[length];
+        int[] priorities = new int[length];
+        int i = 0;
+        for (Wagon wagon = head; wagon != null; wagon = wagon.getNextWagon()) {
+            wagons[i] = wagon;
+            priorities[i++] = ThreadLocalRandom.current().nextInt();
+        }
+
+        // find the shape of the tree by maintaining its right spine on a stack
+        int[] leftChildren = new int[length];
+        int[] rightChildren = new int[length];
+        int[] spine = new int[length];
+        int height = 0;
+        for (i = 0; i < length; i++) {
+            int last = -1;
+            while (height > 0 && priorities[spine[height - 1]] < priorities[i]) {
+                last = spine[--height];
+            }
+            leftChildren[i] = last;
+            rightChildren[i] = -1;
+            if (height > 0) {
+                rightChildren[spine[height - 1]] = i;
+            }
+            spine[height++] = i;
+        }
+        return new Composition(build(spine[0], wagons, priorities, leftChildren, rightChildren));
+    }
+
+    /**
+     * Creates a composition of the current sequence of wagons of the train
+     *
+     * @see #of(Wagon)
+     */
+    public static Composition of(Train train) {
+        return of(train.getFirstWagon());
+    }
+
+    private static Node build(int i, Wagon[] wagons, int[] priorities, int[] leftChildren, int[] rightChildren) {
+        Node left = leftChildren[i] < 0 ? null : build(leftChildren[i], wagons, priorities, leftChildren, rightChildren);
+        Node right = rightChildren[i] < 0 ? null : build(rightChildren[i], wagons, priorities, leftChildren, rightChildren);
+        return new Node(wagons[i], priorities[i], left, right, false);
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * @return the total number of seats of all passenger wagons in this composition
+     */
+    public int getTotalNumberOfSeats() {
+        return totalNumberOfSeats(root);
+    }
+
+    /**
+     * @return the total maximum weight of all freight wagons in this composition
+     */
+    public int getTotalMaxWeight() {
+        return totalMaxWeight(root);
+    }
+
+    /**
+     * @param position the position of the wagon, counting from 0 at the front
+     * @return the wagon found at the given position
+     * (return null if the position is not valid for this composition)
+     */
+    public Wagon findWagonAtPosition(int position) {
+        if (position < 0 || position >= size()) {
+            return null;
+        }
+        Node node = root;
+        boolean reversed = false;
+        while (true) {
+            reversed ^= node.reversed;
+            Node first = reversed ? node.right : node.left;
+            int firstSize = size(first);
+            if (position < firstSize) {
+                node = first;
+            } else if (position > firstSize) {
+                position -= firstSize + 1;
+                node = reversed ? node.left : node.right;
+            } else {
+                return node.wagon;
+            }
+        }
+    }
+
+    /**
+     * @param position 0 <= position <= size()
+     * @return the composition of the wagons in front of the given position
+     * @throws IndexOutOfBoundsException if the position is not valid for this composition
+     */
+    public Composition front(int position) {
+        Node[] parts = splitAt(position);
+        return new Composition(parts[0]);
+    }
+
+    /**
+     * @param position 0 <= position <= size()
+     * @return the composition of the wagons from the given position until the end
+     * @throws IndexOutOfBoundsException if the position is not valid for this composition
+     */
+    public Composition rear(int position) {
+        Node[] parts = splitAt(position);
+        return new Composition(parts[1]);
+    }
+
+    /**
+     * @return the composition of the wagons of this composition followed by the wagons of the other composition
+     */
+    public Composition concat(Composition other) {
+        if (other.root == null) {
+            return this;
+        }
+        if (root == null) {
+            return other;
+        }
+        return new Composition(merge(root, other.root));
+    }
+
+    /**
+     * @return the composition with the given wagon attached at the rear
+     */
+    public Composition attachToRear(Wagon wagon) {
+        return concat(single(wagon));
+    }
+
+    /**
+     * @return the composition with the given wagon inserted at the front
+     */
+    public Composition insertAtFront(Wagon wagon) {
+        return single(wagon).concat(this);
+    }
+
+    /**
+     * @param position 0 <= position <= size()
+     * @return the composition with the wagons of the other composition inserted at the given position
+     * @throws IndexOutOfBoundsException if the position is not valid for this composition
+     */
+    public Composition insertAtPosition(int position, Composition other) {
+        Node[] parts = splitAt(position);
+        return new Composition(merge(merge(parts[0], other.root), parts[1]));
+    }
+
+    /**
+     * @param position 0 <= position <= size()
+     * @return the composition with the given wagon inserted at the given position
+     * @throws IndexOutOfBoundsException if the position is not valid for this composition
+     */
+    public Composition insertAtPosition(int position, Wagon wagon) {
+        return insertAtPosition(position, single(wagon));
+    }
+
+    /**
+     * @param position 0 <= position < size()
+     * @return the composition without the wagon at the given position
+     * @throws IndexOutOfBoundsException if the position is not valid for this composition
+     */
+    public Composition removeAtPosition(int position) {
+        if (position < 0 || position >= size()) {
+            throw new IndexOutOfBoundsException("Position " + position + " is not valid for " + size() + " wagons");
+        }
+        Node[] parts = splitAt(position);
+        Node front = parts[0];
+        split(parts[1], 1, parts);
+        return new Composition(merge(front, parts[1]));
+    }
+
+    /**
+     * @return the composition with the wagons in reverse order
+     */
+    public Composition reverse() {
+        return root == null ? this : new Composition(flipped(root));
+    }
+
+    /**
+     * Replaces the wagons of the train by the wagons of this composition, linked in the order of this composition.
+     * The wagons are taken out of any train or sequence that they are part of, which keeps its other wagons.
+     * The train, and any train that holds wagons of this composition, shall not be shunted concurrently,
+     * e.g. by using Yard.withLock. Applying takes time linear in the number of wagons of these trains.
+     *
+     * @param train the train to apply this composition to
+     * @return whether the composition could be applied, which requires that all its wagons are distinct,
+     * of the same type and within the capacity of the engine of the train
+     * (no change if the composition could not be applied)
+     */
+    public boolean applyTo(Train train) {
+        if (size() > train.getEngine().getMaxWagons()) {
+            return false;
+        }
+        Set<Wagon> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        Wagon first = findWagonAtPosition(0);
+        for (Wagon wagon : this) {
+            if (!distinct.add(wagon) || wagon.getClass() != first.getClass()) {
+                return false;
+            }
+        }
+
+        // detach the complete sequences of all trains involved at once, such that every wagon is loose and
+        // can be taken out of its sequence in constant time, remembering which train each remaining sequence was headed by
+        train.setFirstWagon(null);
+        Map<Wagon, Train> heads = new IdentityHashMap<>();
+        for (Wagon wagon : this) {
+            Train owner = wagon.train;
+            if (owner != null) {
+                heads.put(owner.getFirstWagon(), owner);
+                owner.setFirstWagon(null);
+            }
+        }
+
+        WagonSegment segment = new WagonSegment();
+        for (Wagon wagon : this) {
+            // take the wagon out of its sequence, reconnecting its neighbours
+            Wagon front = wagon.detachFront();
+            Wagon tail = wagon.detachTail();
+            if (front != null) {
+                front.attachTail(tail);
+            } else {
+                Train owner = heads.remove(wagon);
+                if (owner != null && tail != null) {
+                    heads.put(tail, owner);
+                }
+            }
+            segment.append(wagon);
+        }
+        // the other trains keep their other wagons
+        heads.forEach((head, owner) -> owner.setFirstWagon(head));
+        train.attachToRear(segment);
+        return true;
+    }
+
+    @Override
+    public Iterator<Wagon> iterator() {
+        return new Cursor(root);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Composition of " + size() + " wagons:");
+        for (Wagon wagon : this) {
+            sb.append(' ').append(wagon);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Iterates the wagons in order, taking the lazy reversals into account
+     */
+    private static final class Cursor implements Iterator<Wagon> {
+        private Node[] nodes = new Node[32];
+        private boolean[] reversals = new boolean[32];
+        private int depth;
+
+        Cursor(Node root) {
+            descend(root, false);
+        }
+
+        /**
+         * Stacks the path from the node down to the first wagon of its subtree
+         */
+        private void descend(Node node, boolean reversed) {
+            while (node != null) {
+                reversed ^= node.reversed;
+                if (depth == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, 2 * depth);
+                    reversals = Arrays.copyOf(reversals, 2 * depth);
+                }
+                nodes[depth] = node;
+                reversals[depth++] = reversed;
+                node = reversed ? node.right : node.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0;
+        }
+
+        @Override
+        public Wagon next() {
+            if (depth == 0) {
+                throw new NoSuchElementException();
+            }
+            Node node = nodes[--depth];
+            boolean reversed = reversals[depth];
+            nodes[depth] = null;
+            descend(reversed ? node.left : node.right, reversed);
+            return node.wagon;
+        }
+    }
+
+    private Node[] splitAt(int position) {
+        if (position < 0 || position > size()) {
+            throw new IndexOutOfBoundsException("Position " + position + " is not valid for " + size() + " wagons");
+        }
+        Node[] parts = new Node[2];
+        split(root, position, parts);
+        return parts;
+    }
+
+    private static Composition single(Wagon wagon) {
+        return new Composition(new Node(wagon, ThreadLocalRandom.current().nextInt(), null, null, false));
+    }
+
+    /**
+     * Splits the tree into new trees of the first count nodes (parts[0]) and the remaining nodes (parts[1]),
+     * copying only the nodes on the path of the split
+     */
+    private static void split(Node node, int count, Node[] parts) {
+        if (node == null) {
+            parts[0] = parts[1] = null;
+            return;
+        }
+        node = pushed(node);
+        if (size(node.left) >= count) {
+            split(node.left, count, parts);
+            parts[1] = new Node(node.wagon, node.priority, parts[1], node.right, false);
+        } else {
+            split(node.right, count - size(node.left) - 1, parts);
+            parts[0] = new Node(node.wagon, node.priority, node.left, parts[0], false);
+        }
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left = pushed(left);
+            return new Node(left.wagon, left.priority, left.left, merge(left.right, right), false);
+        }
+        right = pushed(right);
+        return new Node(right.wagon, right.priority, merge(left, right.left), right.right, false);
+    }
+
+    /**
+     * @return an equivalent node of which the pending reversal has been passed on to its children
+     */
+    private static Node pushed(Node node) {
+        if (!node.reversed) {
+            return node;
+        }
+        return new Node(node.wagon, node.priority, flipped(node.right), flipped(node.left), false);
+    }
+
+    private static Node flipped(Node node) {
+        return node == null ? null : new Node(node.wagon, node.priority, node.left, node.right, !node.reversed);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int totalNumberOfSeats(Node node) {
+        return node == null ? 0 : node.totalNumberOfSeats;
+    }
+
+    private static int totalMaxWeight(Node node) {
+        return node == null ? 0 : node.totalMaxWeight;
+    }
+}
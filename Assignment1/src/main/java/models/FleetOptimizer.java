@@ -0,0 +1,301 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A FleetOptimizer composes trains from a pool of locomotives and a pool of wagons,
+ * such that the total value of the trains is maximal.
+ * The value of a passenger train is its total number of seats times the value of a seat,
+ * and the value of a freight train is its total maximum weight times the value of a unit of weight.
+ *
+ * Every train pulls wagons of one type only. Given which locomotives pull passenger wagons and which pull freight,
+ * the best trains simply take the most valuable wagons of each type up to their combined capacity.
+ * Hence, only the combined capacity of the passenger locomotives matters. The optimizer finds all combined capacities
+ * that the locomotives can achieve by a subset-sum over bitsets, in time proportional to the number of locomotives
+ * times their total capacity divided by the word size, and takes the most valuable one.
+ * This exact search replaces a branch-and-bound search; only the bitset pass per locomotive runs on a fork-join pool,
+ * split into ranges of words, as every pass depends on the previous one.
+ * The capacity of a locomotive is capped at the number of wagons of the most numerous type, which does not change
+ * the value of any assignment but bounds the bitsets by the number of wagons rather than the raw capacities.
+ *
+ * The result is deterministic for a given seed, which only decides the order among locomotives of equal capacity
+ * and among wagons of equal value. Of all optimal assignments, the one that lets the earliest locomotives
+ * (in order of decreasing capacity) pull passenger wagons is chosen.
+ */
+public class FleetOptimizer {
+    // the largest number of words of all bitsets together, i.e. 64 MB
+    private static final long MAX_WORDS = 1L << 23;
+    // the smallest number of words of a bitset pass that is split over the pool
+    private static final int PARALLEL_WORDS = 1 << 10;
+
+    private final long seed;
+    private final long seatValue;
+    private final long weightValue;
+
+    /**
+     * @param seed        the seed that decides the order among locomotives and wagons of equal capacity
+     * @param seatValue   the value of one seat in a passenger train
+     * @param weightValue the value of one unit of maximum weight in a freight train
+     */
+    public FleetOptimizer(long seed, long seatValue, long weightValue) {
+        this.seed = seed;
+        this.seatValue = seatValue;
+        this.weightValue = weightValue;
+    }
+
+    /**
+     * Composes the most valuable trains from the given locomotives and wagons.
+     * The wagons are taken out of any train or sequence that they are part of.
+     *
+     * @param locomotives the pool of locomotives, of which each pulls at most one train
+     * @param wagons      the pool of wagons, of which each is part of at most one train
+     * @param origin      the origin of the trains
+     * @param destination the destination of the trains
+     * @return the trains, one per locomotive that pulls any wagons
+     * @throws IllegalArgumentException if the bitsets of the locomotives and wagons would exceed 64 MB
+     * @see #optimize(List, List, String, String, ForkJoinPool)
+     */
+    public List<Train> optimize(List<Locomotive> locomotives, List<Wagon> wagons, String origin, String destination) {
+        return optimize(locomotives, wagons, origin, destination, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Composes the most valuable trains from the given locomotives and wagons, as optimize(locomotives, wagons,
+     * origin, destination), running the bitset passes on the given pool. The result does not depend on the pool.
+     *
+     * @param pool the pool that runs the bitset passes
+     */
+    public List<Train> optimize(List<Locomotive> locomotives, List<Wagon> wagons,
+                                String origin, String destination, ForkJoinPool pool) {
+        Random random = new Random(seed);
+        List<Ranked<Locomotive>> rankedLocomotives = new ArrayList<>();
+        for (Locomotive locomotive : locomotives) {
+            rankedLocomotives.add(new Ranked<>(locomotive, locomotive.getMaxWagons(), random.nextLong()));
+        }
+        List<Ranked<Wagon>> passengerWagons = new ArrayList<>();
+        List<Ranked<Wagon>> freightWagons = new ArrayList<>();
+        for (Wagon wagon : wagons) {
+            if (wagon instanceof PassengerWagon passengerWagon) {
+                passengerWagons.add(new Ranked<>(wagon, passengerWagon.getNumberOfSeats(), random.nextLong()));
+            } else if (wagon instanceof FreightWagon freightWagon) {
+                freightWagons.add(new Ranked<>(wagon, freightWagon.getMaxWeight(), random.nextLong()));
+            }
+        }
+        rankedLocomotives.sort(Ranked.ORDER);
+        passengerWagons.sort(Ranked.ORDER);
+        freightWagons.sort(Ranked.ORDER);
+
+        boolean[] passenger = new Search(rankedLocomotives, passengerWagons, freightWagons, pool).run();
+
+        // the most valuable wagons of each type are distributed over the locomotives of that type, in order
+        List<Train> trains = new ArrayList<>();
+        int nextPassengerWagon = 0;
+        int nextFreightWagon = 0;
+        for (int i = 0; i < rankedLocomotives.size(); i++) {
+            Locomotive locomotive = rankedLocomotives.get(i).item;
+            Train train = new Train(locomotive, origin, destination);
+            List<Ranked<Wagon>> candidates = passenger[i] ? passengerWagons : freightWagons;
+            int next = passenger[i] ? nextPassengerWagon : nextFreightWagon;
+            int end = Math.min(candidates.size(), next + locomotive.getMaxWagons());
+            for (; next < end; next++) {
+                Wagon wagon = candidates.get(next).item;
+                wagon.removeFromSequence();
+                train.attachToRear(wagon);
+            }
+            if (passenger[i]) {
+                nextPassengerWagon = next;
+            } else {
+                nextFreightWagon = next;
+            }
+            if (train.hasWagons()) {
+                trains.add(train);
+            }
+        }
+        return trains;
+    }
+
+    /**
+     * An item with its capacity, and a random key that orders items of equal capacity
+     */
+    private static class Ranked<T> {
+        static final Comparator<Ranked<?>> ORDER =
+                Comparator.<Ranked<?>>comparingLong(ranked -> -ranked.capacity).thenComparingLong(ranked -> ranked.key);
+
+        final T item;
+        final long capacity;
+        final long key;
+
+        Ranked(T item, long capacity, long key) {
+            this.item = item;
+            this.capacity = capacity;
+            this.key = key;
+        }
+    }
+
+    /**
+     * A subset-sum over the capacities of the locomotives, of which the achievable combined capacities
+     * are kept as bitsets: bit p of reachable[i] is set if the locomotives from index i can pull exactly p wagons
+     * of one type while the others pull the other type.
+     */
+    private class Search {
+        private final int[] capacities;
+        private final int totalCapacity;
+        private final long[][] reachable;
+        // the total value of the most valuable wagons of each type, per number of wagons
+        private final long[] passengerValues;
+        private final long[] freightValues;
+
+        Search(List<Ranked<Locomotive>> locomotives, List<Ranked<Wagon>> passengerWagons,
+               List<Ranked<Wagon>> freightWagons, ForkJoinPool pool) {
+            int n = locomotives.size();
+            // a locomotive never pulls more wagons of a type than there are
+            int maxCapacity = Math.max(passengerWagons.size(), freightWagons.size());
+            capacities = new int[n];
+            long total = 0;
+            for (int i = 0; i < n; i++) {
+                capacities[i] = (int) Math.max(0, Math.min(locomotives.get(i).capacity, maxCapacity));
+                total += capacities[i];
+            }
+            long words = (total >> 6) + 1;
+            if ((n + 1) * words > MAX_WORDS) {
+                throw new IllegalArgumentException(String.format(
+                        "Cannot optimize %d locomotives with a total capacity of %d wagons", n, total));
+            }
+            totalCapacity = (int) total;
+            reachable = new long[n + 1][(int) words];
+            reachable[n][0] = 1L;
+            for (int i = n - 1; i >= 0; i--) {
+                if (words < PARALLEL_WORDS) {
+                    shiftOr(reachable[i + 1], capacities[i], reachable[i], 0, (int) words);
+                } else {
+                    pool.invoke(new ShiftOr(reachable[i + 1], capacities[i], reachable[i], 0, (int) words));
+                }
+            }
+            passengerValues = prefixValues(passengerWagons, seatValue);
+            freightValues = prefixValues(freightWagons, weightValue);
+        }
+
+        private long[] prefixValues(List<Ranked<Wagon>> wagons, long unitValue) {
+            long[] values = new long[wagons.size() + 1];
+            for (int i = 0; i < wagons.size(); i++) {
+                values[i + 1] = values[i] + wagons.get(i).capacity * unitValue;
+            }
+            return values;
+        }
+
+        /**
+         * @return the value of the most valuable wagons of a type that fit the given capacity
+         */
+        private long valueOf(long[] values, long capacity) {
+            return values[(int) Math.min(capacity, values.length - 1)];
+        }
+
+        /**
+         * Finds the combined passenger capacities of the most valuable assignments, and then assigns passenger wagons
+         * to every next locomotive for as long as one of these capacities can still be completed by the locomotives after it
+         *
+         * @return whether each locomotive pulls passenger wagons (or else freight wagons)
+         */
+        boolean[] run() {
+            long bestValue = Long.MIN_VALUE;
+            long[] best = new long[reachable[0].length];
+            for (int p = 0; p <= totalCapacity; p++) {
+                if ((reachable[0][p >> 6] & 1L << p) == 0) {
+                    continue;
+                }
+                long value = valueOf(passengerValues, p) + valueOf(freightValues, totalCapacity - p);
+                if (value > bestValue) {
+                    bestValue = value;
+                    Arrays.fill(best, 0L);
+                }
+                if (value == bestValue) {
+                    best[p >> 6] |= 1L << p;
+                }
+            }
+
+            boolean[] passenger = new boolean[capacities.length];
+            int passengerCapacity = 0;
+            for (int i = 0; i < capacities.length; i++) {
+                passenger[i] = intersects(best, passengerCapacity + capacities[i], reachable[i + 1]);
+                if (passenger[i]) {
+                    passengerCapacity += capacities[i];
+                }
+            }
+            return passenger;
+        }
+
+        /**
+         * Sets the words of into in the range [start, end) to the words of from,
+         * or'ed with the bits of from shifted up by the given distance
+         */
+        private static void shiftOr(long[] from, int distance, long[] into, int start, int end) {
+            int words = distance >> 6;
+            int bits = distance & 63;
+            for (int w = start; w < end; w++) {
+                long shifted = 0;
+                if (w - words >= 0) {
+                    shifted = from[w - words] << bits;
+                    if (bits != 0 && w - words - 1 >= 0) {
+                        shifted |= from[w - words - 1] >>> (64 - bits);
+                    }
+                }
+                into[w] = from[w] | shifted;
+            }
+        }
+
+        /**
+         * A bitset pass over a range of words, which is split in halves down to PARALLEL_WORDS words
+         */
+        @SuppressWarnings("serial")
+        private static class ShiftOr extends RecursiveAction {
+            private final long[] from;
+            private final int distance;
+            private final long[] into;
+            private final int start;
+            private final int end;
+
+            ShiftOr(long[] from, int distance, long[] into, int start, int end) {
+                this.from = from;
+                this.distance = distance;
+                this.into = into;
+                this.start = start;
+                this.end = end;
+            }
+
+            @Override
+            protected void compute() {
+                if (end - start <= PARALLEL_WORDS) {
+                    shiftOr(from, distance, into, start, end);
+                } else {
+                    int middle = (start + end) >>> 1;
+                    invokeAll(new ShiftOr(from, distance, into, start, middle),
+                            new ShiftOr(from, distance, into, middle, end));
+                }
+            }
+        }
+
+        /**
+         * @return whether bit x + offset of bits and bit x of other are both set, for any x
+         */
+        private static boolean intersects(long[] bits, int offset, long[] other) {
+            int words = offset >> 6;
+            int shift = offset & 63;
+            for (int w = 0; w + words < bits.length; w++) {
+                long shifted = bits[w + words] >>> shift;
+                if (shift != 0 && w + words + 1 < bits.length) {
+                    shifted |= bits[w + words + 1] << (64 - shift);
+                }
+                if ((shifted & other[w]) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
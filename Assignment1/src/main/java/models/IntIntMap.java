@@ -0,0 +1,70 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * An IntIntMap is a hash map from primitive int keys to non-negative primitive int values,
+ * using open addressing with linear probing, so that no boxing or entry objects are involved.
+ * It is the specialisation of IntMap for int values, which are kept in an int array rather than boxed,
+ * and an empty slot holds the value NONE.
+ */
+class IntIntMap extends IntKeyTable<int[]> {
+    static final int NONE = -1;
+
+    /**
+     * @param key the key to look up
+     * @return the value associated with the key, or NONE if the key is not in the map
+     */
+    int get(int key) {
+        return values[slotOf(key)];
+    }
+
+    /**
+     * Associates the value with the key, replacing any previous association
+     *
+     * @param key   the key
+     * @param value the value, not negative
+     */
+    void put(int key, int value) {
+        int slot = slotForPut(key);
+        values[slot] = value;
+    }
+
+    /**
+     * Removes the association of the key, if it is associated with the given value
+     *
+     * @param key   the key
+     * @param value the value that is expected to be associated with the key
+     * @return whether the association has been removed
+     */
+    boolean remove(int key, int value) {
+        int slot = slotOf(key);
+        if (values[slot] == NONE || values[slot] != value) {
+            return false;
+        }
+        removeSlot(slot);
+        return true;
+    }
+
+    @Override
+    int[] newValues(int capacity) {
+        int[] values = new int[capacity];
+        Arrays.fill(values, NONE);
+        return values;
+    }
+
+    @Override
+    boolean isEmpty(int[] values, int slot) {
+        return values[slot] == NONE;
+    }
+
+    @Override
+    void copy(int[] from, int fromSlot, int[] to, int toSlot) {
+        to[toSlot] = from[fromSlot];
+    }
+
+    @Override
+    void clear(int[] values, int slot) {
+        values[slot] = NONE;
+    }
+}
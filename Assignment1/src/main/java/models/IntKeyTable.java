@@ -0,0 +1,116 @@
+package models;
+
+/**
+ * An IntKeyTable is the open addressing hash table with linear probing on primitive int keys
+ * that is shared by IntMap and IntIntMap: the probing, the removal by backward shifts and the rehashing.
+ * A subclass keeps its values in an array of its own type, parallel to the keys, in which it marks empty slots
+ * by a value that is never stored, such that neither boxing nor entry objects are involved.
+ *
+ * @param <A> the type of the array of values
+ */
+abstract class IntKeyTable<A> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    int[] keys;
+    A values;
+    int size;
+
+    IntKeyTable() {
+        keys = new int[INITIAL_CAPACITY];
+        values = newValues(INITIAL_CAPACITY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return an array of values of the given capacity in which every slot is empty
+     */
+    abstract A newValues(int capacity);
+
+    abstract boolean isEmpty(A values, int slot);
+
+    /**
+     * Copies the value in a slot of one array of values into a slot of another (or the same) array
+     */
+    abstract void copy(A from, int fromSlot, A to, int toSlot);
+
+    abstract void clear(A values, int slot);
+
+    /**
+     * @param key the key to look up
+     * @return the slot that holds the key, or the empty slot where it would be held
+     */
+    final int slotOf(int key) {
+        int mask = keys.length - 1;
+        int slot = home(key, mask);
+        while (!isEmpty(values, slot) && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Finds the slot for a key that is about to be associated with a value, which makes room for it first if needed.
+     * The values may be replaced by a larger array, so they shall only be read after the slot has been found.
+     *
+     * @param key the key
+     * @return the slot that holds the key, or the empty slot where it shall be held, in which the key has been stored
+     */
+    final int slotForPut(int key) {
+        if (2 * (size + 1) > keys.length) {
+            resize(2 * keys.length);
+        }
+        int slot = slotOf(key);
+        if (isEmpty(values, slot)) {
+            keys[slot] = key;
+            size++;
+        }
+        return slot;
+    }
+
+    /**
+     * Empties the slot and shifts back later entries of the probe sequence,
+     * such that no tombstones are needed
+     */
+    final void removeSlot(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; !isEmpty(values, next); next = (next + 1) & mask) {
+            int home = home(keys[next], mask);
+            // move the entry into the hole if its home slot is not within (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                copy(values, next, values, hole);
+                hole = next;
+            }
+        }
+        clear(values, hole);
+        size--;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        A oldValues = values;
+        keys = new int[capacity];
+        values = newValues(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (!isEmpty(oldValues, i)) {
+                int slot = home(oldKeys[i], mask);
+                while (!isEmpty(values, slot)) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                copy(oldValues, i, values, slot);
+            }
+        }
+    }
+
+    private static int home(int key, int mask) {
+        // spread the bits of consecutive ids over the table
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
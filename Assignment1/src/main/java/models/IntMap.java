@@ -0,0 +1,74 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * An IntMap is a hash map from primitive int keys to values,
+ * using open addressing with linear probing, so that no boxing or entry objects are involved.
+ * An empty slot holds the value null.
+ *
+ * @param <V> the type of the values in the map
+ */
+class IntMap<V> extends IntKeyTable<Object[]> {
+
+    /**
+     * @param key the key to look up
+     * @return the value associated with the key, or null if the key is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        return (V) values[slotOf(key)];
+    }
+
+    /**
+     * Associates the value with the key, replacing any previous association
+     *
+     * @param key   the key
+     * @param value the value, not null
+     */
+    void put(int key, V value) {
+        int slot = slotForPut(key);
+        values[slot] = value;
+    }
+
+    /**
+     * Removes the association of the key, if it is associated with the given value
+     *
+     * @param key   the key
+     * @param value the value that is expected to be associated with the key
+     * @return whether the association has been removed
+     */
+    boolean remove(int key, V value) {
+        int slot = slotOf(key);
+        if (values[slot] == null || values[slot] != value) {
+            return false;
+        }
+        removeSlot(slot);
+        return true;
+    }
+
+    void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @Override
+    Object[] newValues(int capacity) {
+        return new Object[capacity];
+    }
+
+    @Override
+    boolean isEmpty(Object[] values, int slot) {
+        return values[slot] == null;
+    }
+
+    @Override
+    void copy(Object[] from, int fromSlot, Object[] to, int toSlot) {
+        to[toSlot] = from[fromSlot];
+    }
+
+    @Override
+    void clear(Object[] values, int slot) {
+        values[slot] = null;
+    }
+}
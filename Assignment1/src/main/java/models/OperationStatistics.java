@@ -0,0 +1,56 @@
+package models;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The totals measured for one operation of trains since the statistics were last reset
+ *
+ * @see TrainMetrics
+ */
+public class OperationStatistics {
+    private final long calls;
+    private final long hops;
+    private final long allocatedBytes;
+    private final long nanos;
+
+    @ConstructorProperties({"calls", "hops", "allocatedBytes", "nanos"})
+    public OperationStatistics(long calls, long hops, long allocatedBytes, long nanos) {
+        this.calls = calls;
+        this.hops = hops;
+        this.allocatedBytes = allocatedBytes;
+        this.nanos = nanos;
+    }
+
+    /**
+     * @return the number of calls of the operation
+     */
+    public long getCalls() {
+        return calls;
+    }
+
+    /**
+     * @return the number of hops from wagon to wagon, or between the nodes of a positional index
+     */
+    public long getHops() {
+        return hops;
+    }
+
+    /**
+     * @return the number of bytes allocated by the operation (0 if the JVM cannot measure it)
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return the wall time spent in the operation, in nanoseconds
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d calls, %d hops, %d bytes, %d ns", calls, hops, allocatedBytes, nanos);
+    }
+}
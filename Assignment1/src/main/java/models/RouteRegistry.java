@@ -0,0 +1,196 @@
+package models;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A RouteRegistry indexes the trains of a yard by their origin, their destination and by both,
+ * and keeps the total number of seats and the total maximum weight of the trains of every route.
+ * The totals are updated once per train whenever its composition may have changed, by the change in capacity
+ * of the train, such that the capacity of a route is found in constant time.
+ *
+ * A route is identified by its origin and destination, of which either or both may be null to denote any,
+ * e.g. the route from Amsterdam to anywhere contains all trains that depart from Amsterdam.
+ * The routes with an explicit origin or destination and the routes to or from anywhere are kept apart,
+ * such that a wildcard never has to be represented by a key.
+ */
+public class RouteRegistry {
+
+    /**
+     * The trains of a route, and their combined capacity
+     */
+    public static final class Route {
+        private final String origin;
+        private final String destination;
+        private final Set<Train> trains = ConcurrentHashMap.newKeySet();
+        private final LongAdder totalNumberOfSeats = new LongAdder();
+        private final LongAdder totalMaxWeight = new LongAdder();
+
+        private Route(String origin, String destination) {
+            this.origin = origin;
+            this.destination = destination;
+        }
+
+        /**
+         * @return the origin of the trains of this route, or null for any origin
+         */
+        public String getOrigin() {
+            return origin;
+        }
+
+        /**
+         * @return the destination of the trains of this route, or null for any destination
+         */
+        public String getDestination() {
+            return destination;
+        }
+
+        /**
+         * @return an unmodifiable view on the trains of this route, in no particular order
+         */
+        public Set<Train> getTrains() {
+            return Collections.unmodifiableSet(trains);
+        }
+
+        /**
+         * @return the total number of seats of all passenger wagons of the trains of this route
+         */
+        public long getTotalNumberOfSeats() {
+            return totalNumberOfSeats.sum();
+        }
+
+        /**
+         * @return the total maximum weight of all freight wagons of the trains of this route
+         */
+        public long getTotalMaxWeight() {
+            return totalMaxWeight.sum();
+        }
+
+        @Override
+        public String toString() {
+            return (origin == null ? "anywhere" : origin) + " to " + (destination == null ? "anywhere" : destination);
+        }
+    }
+
+    private record Key(String origin, String destination) {
+    }
+
+    /**
+     * The routes of a registered train, and the capacity that the train has contributed to them
+     */
+    private static final class Registration {
+        final Route[] routes;
+        // updated by one thread at a time, as the updates of the same train do not happen concurrently
+        int numberOfSeats;
+        int maxWeight;
+
+        Registration(Route[] routes) {
+            this.routes = routes;
+        }
+
+        void update(int numberOfSeats, int maxWeight) {
+            int seatsDelta = numberOfSeats - this.numberOfSeats;
+            int weightDelta = maxWeight - this.maxWeight;
+            this.numberOfSeats = numberOfSeats;
+            this.maxWeight = maxWeight;
+            for (Route route : routes) {
+                if (seatsDelta != 0) {
+                    route.totalNumberOfSeats.add(seatsDelta);
+                }
+                if (weightDelta != 0) {
+                    route.totalMaxWeight.add(weightDelta);
+                }
+            }
+        }
+    }
+
+    // routes are kept once they have been used, such that concurrent updates never lose a route
+    private final Map<Key, Route> routes = new ConcurrentHashMap<>();
+    private final Map<String, Route> routesFrom = new ConcurrentHashMap<>();
+    private final Map<String, Route> routesTo = new ConcurrentHashMap<>();
+    private final Route allRoutes = new Route(null, null);
+    private final Map<Train, Registration> registrations = new ConcurrentHashMap<>();
+
+    /**
+     * Finds the route with the given origin and destination
+     *
+     * @param origin      the origin of the trains, or null for any origin
+     * @param destination the destination of the trains, or null for any destination
+     * @return the route (which has no trains if no train has ever been registered for it)
+     */
+    public Route getRoute(String origin, String destination) {
+        Route route = findRoute(origin, destination);
+        return route != null ? route : new Route(origin, destination);
+    }
+
+    /**
+     * @return the total number of seats of the trains from origin to destination
+     * @see #getRoute(String, String)
+     */
+    public long getTotalNumberOfSeats(String origin, String destination) {
+        Route route = findRoute(origin, destination);
+        return route != null ? route.getTotalNumberOfSeats() : 0;
+    }
+
+    /**
+     * @return the total maximum weight of the trains from origin to destination
+     * @see #getRoute(String, String)
+     */
+    public long getTotalMaxWeight(String origin, String destination) {
+        Route route = findRoute(origin, destination);
+        return route != null ? route.getTotalMaxWeight() : 0;
+    }
+
+    /**
+     * Notification that a train has become part of the yard, after its wagons have been added
+     */
+    void trainAdded(Train train) {
+        String origin = train.getOrigin();
+        String destination = train.getDestination();
+        Registration registration = new Registration(new Route[]{
+                routes.computeIfAbsent(new Key(origin, destination), key -> new Route(origin, destination)),
+                routesFrom.computeIfAbsent(origin, key -> new Route(origin, null)),
+                routesTo.computeIfAbsent(destination, key -> new Route(null, destination)),
+                allRoutes
+        });
+        for (Route route : registration.routes) {
+            route.trains.add(train);
+        }
+        registrations.put(train, registration);
+        registration.update(train.getTotalNumberOfSeats(), train.getTotalMaxWeight());
+    }
+
+    /**
+     * Notification that a train is no longer part of the yard
+     */
+    void trainRemoved(Train train) {
+        Registration registration = registrations.remove(train);
+        if (registration != null) {
+            registration.update(0, 0);
+            for (Route route : registration.routes) {
+                route.trains.remove(train);
+            }
+        }
+    }
+
+    /**
+     * Updates the totals of the routes of the given train after its composition may have changed,
+     * if it is registered. Updates of the same train shall not happen concurrently.
+     */
+    void refresh(Train train) {
+        Registration registration = registrations.get(train);
+        if (registration != null) {
+            registration.update(train.getTotalNumberOfSeats(), train.getTotalMaxWeight());
+        }
+    }
+
+    private Route findRoute(String origin, String destination) {
+        if (origin == null) {
+            return destination == null ? allRoutes : routesTo.get(destination);
+        }
+        return destination == null ? routesFrom.get(origin) : routes.get(new Key(origin, destination));
+    }
+}
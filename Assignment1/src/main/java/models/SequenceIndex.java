@@ -0,0 +1,288 @@
+package models;
+
+/**
+ * A SequenceIndex provides positional access to the wagons of a train in logarithmic time.
+ * It is an implicit treap (a randomized balanced binary tree, ordered by position)
+ * with one node per wagon. Every wagon in the index refers to its own node,
+ * such that the position of a wagon can be found by walking up the tree.
+ * Reversals of a range of positions are applied lazily.
+ */
+class SequenceIndex {
+
+    static final class Node {
+        final Wagon wagon;
+        final int priority;
+        Node left, right, parent;
+        int size = 1;
+        // whether the children of this node still need to be swapped
+        boolean reversed;
+
+        Node(Wagon wagon, int priority) {
+            this.wagon = wagon;
+            this.priority = priority;
+        }
+    }
+
+    private Node root;
+    private int seed = 0x2545F491;
+
+    // results of the latest split
+    private Node splitLeft, splitRight;
+    // reusable path buffer for positionOf
+    private Node[] path = new Node[64];
+
+    int size() {
+        return size(root);
+    }
+
+    /**
+     * Finds the wagon at a position without modifying the tree, such that lookups do not exclude each other:
+     * pending reversals are carried down the search path instead of being applied.
+     *
+     * @param position 0 <= position < size()
+     * @return the wagon at the given position
+     */
+    Wagon get(int position) {
+        Node node = root;
+        boolean reversed = false;
+        int hops = 0;
+        while (true) {
+            reversed ^= node.reversed;
+            Node first = reversed ? node.right : node.left;
+            int firstSize = size(first);
+            if (position < firstSize) {
+                node = first;
+            } else if (position > firstSize) {
+                position -= firstSize + 1;
+                node = reversed ? node.left : node.right;
+            } else {
+                TrainMetrics.hops(hops);
+                return node.wagon;
+            }
+            hops++;
+        }
+    }
+
+    /**
+     * @param wagon a wagon in this index
+     * @return the position of the wagon in the sequence
+     */
+    int positionOf(Wagon wagon) {
+        Node node = wagon.indexNode;
+        // first apply pending reversals on the path from the root down to the node
+        int depth = 0;
+        for (Node n = node; n != null; n = n.parent) {
+            if (depth == path.length) {
+                Node[] longerPath = new Node[2 * depth];
+                System.arraycopy(path, 0, longerPath, 0, depth);
+                path = longerPath;
+            }
+            path[depth++] = n;
+        }
+        while (depth > 0) {
+            push(path[--depth]);
+            path[depth] = null;
+        }
+
+        int position = size(node.left);
+        for (Node n = node; n.parent != null; n = n.parent) {
+            if (n == n.parent.right) {
+                position += size(n.parent.left) + 1;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Creates the nodes for the sequence of wagons from head until the end of its sequence,
+     * without adding them to the index yet.
+     * The tree is built in linear time by maintaining its right spine on a stack.
+     *
+     * @param head the first wagon of the sequence
+     * @return the root of the tree of the new nodes
+     */
+    Node build(Wagon head) {
+        Node[] spine = new Node[32];
+        int height = 0;
+        for (Wagon wagon = head; wagon != null; wagon = wagon.getNextWagon()) {
+            Node node = new Node(wagon, nextPriority());
+            wagon.indexNode = node;
+            Node last = null;
+            while (height > 0 && spine[height - 1].priority < node.priority) {
+                last = spine[--height];
+            }
+            node.left = last;
+            if (height > 0) {
+                spine[height - 1].right = node;
+            }
+            if (height == spine.length) {
+                Node[] higherSpine = new Node[2 * height];
+                System.arraycopy(spine, 0, higherSpine, 0, height);
+                spine = higherSpine;
+            }
+            spine[height++] = node;
+        }
+        if (height == 0) {
+            return null;
+        }
+        Node tree = spine[0];
+        updateAll(tree);
+        tree.parent = null;
+        return tree;
+    }
+
+    /**
+     * Inserts a tree of new nodes at the given position
+     *
+     * @param position 0 <= position <= size()
+     * @param tree     the tree of nodes, as obtained from build
+     */
+    void insert(int position, Node tree) {
+        split(root, position);
+        Node right = splitRight;
+        root = merge(merge(splitLeft, tree), right);
+        root.parent = null;
+    }
+
+    /**
+     * Removes the wagons from the given position until the end of the sequence from the index
+     *
+     * @param position 0 <= position <= size()
+     */
+    void truncate(int position) {
+        split(root, position);
+        root = splitLeft;
+        if (root != null) {
+            root.parent = null;
+        }
+        splitRight = null;
+    }
+
+    /**
+     * Removes a single wagon from the index
+     *
+     * @param position 0 <= position < size()
+     */
+    void remove(int position) {
+        split(root, position + 1);
+        Node right = splitRight;
+        split(splitLeft, position);
+        root = merge(splitLeft, right);
+        if (root != null) {
+            root.parent = null;
+        }
+        splitRight = null;
+    }
+
+    /**
+     * Reverses the order of the wagons from the given position until the end of the sequence
+     *
+     * @param position 0 <= position <= size()
+     */
+    void reverseFrom(int position) {
+        split(root, position);
+        Node left = splitLeft;
+        if (splitRight != null) {
+            splitRight.reversed = !splitRight.reversed;
+        }
+        root = merge(left, splitRight);
+        if (root != null) {
+            root.parent = null;
+        }
+        splitRight = null;
+    }
+
+    /**
+     * Splits the tree into the first count nodes (splitLeft) and the remaining nodes (splitRight)
+     */
+    private void split(Node node, int count) {
+        if (node == null) {
+            splitLeft = splitRight = null;
+            return;
+        }
+        push(node);
+        if (size(node.left) >= count) {
+            split(node.left, count);
+            node.left = splitRight;
+            update(node);
+            splitRight = node;
+        } else {
+            split(node.right, count - size(node.left) - 1);
+            node.right = splitLeft;
+            update(node);
+            splitLeft = node;
+        }
+        if (splitLeft != null) {
+            splitLeft.parent = null;
+        }
+        if (splitRight != null) {
+            splitRight.parent = null;
+        }
+    }
+
+    private Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            push(left);
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        push(right);
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static void push(Node node) {
+        if (node.reversed) {
+            Node left = node.left;
+            node.left = node.right;
+            node.right = left;
+            if (node.left != null) {
+                node.left.reversed = !node.left.reversed;
+            }
+            if (node.right != null) {
+                node.right.reversed = !node.right.reversed;
+            }
+            node.reversed = false;
+        }
+    }
+
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        if (node.left != null) {
+            node.left.parent = node;
+        }
+        if (node.right != null) {
+            node.right.parent = node;
+        }
+    }
+
+    private static void updateAll(Node node) {
+        if (node.left != null) {
+            updateAll(node.left);
+        }
+        if (node.right != null) {
+            updateAll(node.right);
+        }
+        update(node);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private int nextPriority() {
+        // xorshift pseudo random numbers keep the tree balanced in expectation
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+}
@@ -0,0 +1,525 @@
+package models;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * A ShuntingJournal performs shunting operations on trains and records every successful operation
+ * in an append-only binary file, such that the compositions of the trains can be recovered after a restart
+ * by replaying the journal, optionally on top of a snapshot taken at a checkpoint.
+ *
+ * Trains are identified by the number of their locomotive and wagons by their id, both of which shall be unique.
+ * Each record is framed by its length and a checksum, such that a record that was torn by a crash is ignored.
+ * Every record has a sequence number, which increases across checkpoints. A snapshot stores the sequence number of
+ * the last operation that it covers, and recovery skips the records up to it, such that a crash during a checkpoint
+ * never replays an operation twice.
+ *
+ * Records are collected in memory and only written and forced to disk by a commit,
+ * which happens explicitly or when a batch of records is complete. Threads that commit concurrently
+ * share a single write and fsync (group commit): whoever commits first makes the records of all others durable too.
+ * The trains shall only be shunted via this journal.
+ */
+public class ShuntingJournal implements Closeable {
+    private static final byte ATTACH_TO_REAR = 1;
+    private static final byte INSERT_AT_POSITION = 2;
+    private static final byte MOVE_ONE_WAGON = 3;
+    private static final byte SPLIT_AT_POSITION = 4;
+    private static final byte REVERSE = 5;
+    // the first record of a journal after a checkpoint, which carries on the sequence numbers
+    private static final byte CHECKPOINT = 6;
+
+    // how the sequence of wagons of an attachment is recorded
+    private static final byte WAGON_IN_TRAIN = 0;
+    private static final byte LOOSE_WAGONS = 1;
+
+    private static final int FRAME_BYTES = 2 * Integer.BYTES;
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final Path path;
+    // the channel is replaced at a checkpoint; guarded by commitLock
+    private FileChannel channel;
+    private final int batchSize;
+    private final CRC32 checksum = new CRC32();
+    // serializes the commits, and thereby the writes to the channel
+    private final ReentrantLock commitLock = new ReentrantLock();
+
+    // the records that have not been committed yet, and a spare buffer to swap with; guarded by this
+    private ByteBuffer pending = ByteBuffer.allocate(4096);
+    private ByteBuffer spare = ByteBuffer.allocate(4096);
+    private long appendedRecords;
+    private int pendingRecords;
+    // the sequence number of the last record
+    private long sequenceNumber;
+    // the number of records that have been forced to disk; guarded by commitLock
+    private long durableRecords;
+
+    /**
+     * Opens the journal for appending, with the default batch size
+     *
+     * @see #ShuntingJournal(Path, int)
+     */
+    public ShuntingJournal(Path path) throws IOException {
+        this(path, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Opens the journal for appending, after any valid records that it already contains.
+     * A record at the end that was torn by a crash is discarded.
+     *
+     * @param path      the file of the journal, which is created if it does not exist
+     * @param batchSize the number of records after which the pending records are committed automatically
+     * @throws IOException if the file cannot be opened
+     */
+    public ShuntingJournal(Path path, int batchSize) throws IOException {
+        this.path = path;
+        this.batchSize = batchSize;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // only scans the existing records to continue their sequence numbers
+        Replay existing = new Replay(List.of(), Long.MAX_VALUE);
+        long validLength = scan(channel, existing);
+        sequenceNumber = existing.lastSequenceNumber;
+        channel.truncate(validLength);
+        channel.position(validLength);
+    }
+
+    /**
+     * Tries to attach the sequence of wagons headed by the given wagon to the rear of the train
+     *
+     * @see Train#attachToRear(Wagon)
+     */
+    public boolean attachToRear(Train train, Wagon wagon) {
+        boolean full;
+        synchronized (this) {
+            // the sequence is recorded before it is attached, when it is still known where it comes from
+            int record = startRecord(ATTACH_TO_REAR);
+            pending.putInt(locNumberOf(train));
+            if (!putSequence(wagon) || !train.attachToRear(wagon)) {
+                pending.position(record);
+                return false;
+            }
+            full = endRecord(record);
+        }
+        commitIfFull(full);
+        return true;
+    }
+
+    /**
+     * Tries to insert the sequence of wagons headed by the given wagon at the given position of the train
+     *
+     * @see Train#insertAtPosition(int, Wagon)
+     */
+    public boolean insertAtPosition(Train train, int position, Wagon wagon) {
+        boolean full;
+        synchronized (this) {
+            int record = startRecord(INSERT_AT_POSITION);
+            pending.putInt(locNumberOf(train)).putInt(position);
+            if (!putSequence(wagon) || !train.insertAtPosition(position, wagon)) {
+                pending.position(record);
+                return false;
+            }
+            full = endRecord(record);
+        }
+        commitIfFull(full);
+        return true;
+    }
+
+    /**
+     * Tries to move the wagon with the given wagonId from fromTrain to the rear of toTrain
+     *
+     * @see Train#moveOneWagon(int, Train)
+     */
+    public boolean moveOneWagon(Train fromTrain, int wagonId, Train toTrain) {
+        boolean full;
+        synchronized (this) {
+            if (!fromTrain.moveOneWagon(wagonId, toTrain)) {
+                return false;
+            }
+            int record = startRecord(MOVE_ONE_WAGON);
+            pending.putInt(locNumberOf(fromTrain)).putInt(wagonId).putInt(locNumberOf(toTrain));
+            full = endRecord(record);
+        }
+        commitIfFull(full);
+        return true;
+    }
+
+    /**
+     * Tries to split fromTrain at the given position and move the split sequence to the rear of toTrain
+     *
+     * @see Train#splitAtPosition(int, Train)
+     */
+    public boolean splitAtPosition(Train fromTrain, int position, Train toTrain) {
+        boolean full;
+        synchronized (this) {
+            if (!fromTrain.splitAtPosition(position, toTrain)) {
+                return false;
+            }
+            int record = startRecord(SPLIT_AT_POSITION);
+            pending.putInt(locNumberOf(fromTrain)).putInt(position).putInt(locNumberOf(toTrain));
+            full = endRecord(record);
+        }
+        commitIfFull(full);
+        return true;
+    }
+
+    /**
+     * Reverses the sequence of wagons in the train
+     *
+     * @see Train#reverse()
+     */
+    public void reverse(Train train) {
+        boolean full;
+        synchronized (this) {
+            train.reverse();
+            int record = startRecord(REVERSE);
+            pending.putInt(locNumberOf(train));
+            full = endRecord(record);
+        }
+        commitIfFull(full);
+    }
+
+    /**
+     * Makes all operations that have been performed so far durable, by a single write and fsync
+     * that also covers the operations of all other threads that are waiting to commit.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    public void commit() throws IOException {
+        long target;
+        synchronized (this) {
+            target = appendedRecords;
+        }
+        commitLock.lock();
+        try {
+            if (durableRecords >= target) {
+                // another thread has committed these records in the meantime
+                return;
+            }
+            ByteBuffer batch;
+            long batchEnd;
+            synchronized (this) {
+                batch = pending;
+                batchEnd = appendedRecords;
+                pending = spare;
+                pendingRecords = 0;
+            }
+            batch.flip();
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            channel.force(false);
+            durableRecords = batchEnd;
+            batch.clear();
+            synchronized (this) {
+                spare = batch;
+            }
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot of the trains and replaces the journal by an empty one, such that recovery only needs to replay
+     * the operations after this checkpoint. No operations shall be performed via other journals meanwhile.
+     * Both files are replaced atomically, the snapshot first: if a crash happens in between, the records that
+     * remain in the journal are covered by the snapshot and are skipped on recovery by their sequence numbers.
+     *
+     * @param snapshot the snapshot file to write, which is replaced atomically
+     * @param trains   all trains that are shunted via this journal
+     * @throws IOException if the snapshot or the journal cannot be written
+     */
+    public void checkpoint(Path snapshot, Collection<Train> trains) throws IOException {
+        commitLock.lock();
+        try {
+            synchronized (this) {
+                // the journal is completed first, such that a journal that survives a crash during the checkpoint
+                // continues after the last sequence number of the snapshot
+                commit();
+                Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+                TrainSnapshot.write(temporary, trains, sequenceNumber);
+                Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                endRecord(startRecord(CHECKPOINT));
+                Path rotated = path.resolveSibling(path.getFileName() + ".tmp");
+                try (FileChannel next = FileChannel.open(rotated, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    pending.flip();
+                    while (pending.hasRemaining()) {
+                        next.write(pending);
+                    }
+                    next.force(false);
+                }
+                pending.clear();
+                pendingRecords = 0;
+                Files.move(rotated, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                channel.close();
+                channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channel.position(channel.size());
+                durableRecords = appendedRecords;
+            }
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    /**
+     * Commits the pending operations and closes the journal
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            commit();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Recovers the trains from a snapshot taken at a checkpoint and the journal of the operations after it
+     *
+     * @param snapshot the snapshot file
+     * @param journal  the journal file (which may not exist, if no operations have been recorded)
+     * @return the recovered trains
+     * @throws IOException if the files cannot be read
+     */
+    public static List<Train> recover(Path snapshot, Path journal) throws IOException {
+        long covered = TrainSnapshot.readSequenceNumber(snapshot);
+        List<Train> trains = TrainSnapshot.read(snapshot);
+        if (Files.exists(journal)) {
+            replay(journal, trains, covered);
+        }
+        return trains;
+    }
+
+    /**
+     * Replays all operations in the journal on the given trains
+     *
+     * @see #replay(Path, Collection, long)
+     */
+    public static int replay(Path journal, Collection<Train> trains) throws IOException {
+        return replay(journal, trains, 0);
+    }
+
+    /**
+     * Replays the operations in the journal after the given sequence number on the given trains,
+     * up to the last complete record
+     *
+     * @param journal the journal file
+     * @param trains  the trains in the state in which the journal was started (or checkpointed)
+     * @param covered the sequence number of the last operation that the trains already include
+     * @return the number of operations that have been replayed
+     * @throws IOException if the journal cannot be read or refers to unknown trains
+     */
+    public static int replay(Path journal, Collection<Train> trains, long covered) throws IOException {
+        Replay replay = new Replay(trains, covered);
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.READ)) {
+            scan(channel, replay);
+        }
+        return replay.count;
+    }
+
+    /**
+     * Scans the valid records from the start of the channel, and applies them to the replay
+     *
+     * @return the length of the valid records
+     */
+    private static long scan(FileChannel channel, Replay replay) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return 0;
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        CRC32 checksum = new CRC32();
+        while (buffer.remaining() >= FRAME_BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining() - Integer.BYTES) {
+                return start;
+            }
+            ByteBuffer body = buffer.slice(buffer.position(), length);
+            checksum.reset();
+            checksum.update(body.duplicate());
+            if (buffer.getInt(buffer.position() + length) != (int) checksum.getValue()) {
+                return start;
+            }
+            replay.apply(body);
+            buffer.position(buffer.position() + length + Integer.BYTES);
+        }
+        return buffer.position();
+    }
+
+    /**
+     * Applies the records of a journal after a given sequence number to a set of trains
+     */
+    private static class Replay {
+        private final IntMap<Train> trainsByLocNumber = new IntMap<>();
+        private final IntMap<Wagon> wagonsById = new IntMap<>();
+        private final long covered;
+        long lastSequenceNumber;
+        int count;
+
+        Replay(Collection<Train> trains, long covered) {
+            this.covered = covered;
+            for (Train train : trains) {
+                trainsByLocNumber.put(train.getEngine().getLocNumber(), train);
+                for (Wagon wagon = train.getFirstWagon(); wagon != null; wagon = wagon.getNextWagon()) {
+                    wagonsById.put(wagon.getId(), wagon);
+                }
+            }
+        }
+
+        void apply(ByteBuffer record) throws IOException {
+            try {
+                lastSequenceNumber = record.getLong();
+                if (lastSequenceNumber <= covered) {
+                    return;
+                }
+                byte operation = record.get();
+                switch (operation) {
+                    case ATTACH_TO_REAR -> {
+                        Train train = train(record.getInt());
+                        train.attachToRear(sequence(record));
+                    }
+                    case INSERT_AT_POSITION -> {
+                        Train train = train(record.getInt());
+                        int position = record.getInt();
+                        train.insertAtPosition(position, sequence(record));
+                    }
+                    case MOVE_ONE_WAGON -> train(record.getInt()).moveOneWagon(record.getInt(), train(record.getInt()));
+                    case SPLIT_AT_POSITION -> train(record.getInt()).splitAtPosition(record.getInt(), train(record.getInt()));
+                    case REVERSE -> train(record.getInt()).reverse();
+                    case CHECKPOINT -> {
+                        return;
+                    }
+                    default -> throw new IOException("Unknown operation " + operation + " in journal");
+                }
+                count++;
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Truncated operation in journal", e);
+            }
+        }
+
+        private Train train(int locNumber) throws IOException {
+            Train train = trainsByLocNumber.get(locNumber);
+            if (train == null) {
+                throw new IOException("Journal refers to unknown train with locomotive " + locNumber);
+            }
+            return train;
+        }
+
+        /**
+         * @return the head wagon of a recorded sequence, either an existing wagon or a new loose sequence
+         */
+        private Wagon sequence(ByteBuffer record) throws IOException {
+            if (record.get() == WAGON_IN_TRAIN) {
+                int wagonId = record.getInt();
+                Wagon wagon = wagonsById.get(wagonId);
+                if (wagon == null) {
+                    throw new IOException("Journal refers to unknown wagon " + wagonId);
+                }
+                return wagon;
+            }
+            int length = record.getInt();
+            Wagon head = null;
+            Wagon last = null;
+            for (int i = 0; i < length; i++) {
+                Wagon wagon = TrainSnapshot.newWagon(record.getInt(), record.getInt(), record.getInt());
+                wagonsById.put(wagon.getId(), wagon);
+                if (last == null) {
+                    head = wagon;
+                } else {
+                    last.attachTail(wagon);
+                }
+                last = wagon;
+            }
+            return head;
+        }
+    }
+
+    /**
+     * @return the start of the new record in the pending buffer
+     */
+    private int startRecord(byte operation) {
+        ensureCapacity(64);
+        int start = pending.position();
+        // the length and the sequence number are filled in when the record is complete
+        pending.putInt(0).putLong(0).put(operation);
+        return start;
+    }
+
+    /**
+     * Completes the record that was started at the given position of the pending buffer
+     *
+     * @return whether a batch of records is complete
+     */
+    private boolean endRecord(int start) {
+        int length = pending.position() - start - Integer.BYTES;
+        pending.putInt(start, length).putLong(start + Integer.BYTES, ++sequenceNumber);
+        checksum.reset();
+        checksum.update(pending.slice(start + Integer.BYTES, length));
+        ensureCapacity(Integer.BYTES);
+        pending.putInt((int) checksum.getValue());
+        appendedRecords++;
+        return ++pendingRecords >= batchSize;
+    }
+
+    /**
+     * Records the sequence of wagons from the given head wagon until its final successor
+     *
+     * @return whether the sequence could be recorded, which requires that a loose sequence only has wagons
+     * of types that can be stored
+     */
+    private boolean putSequence(Wagon head) {
+        if (head.train != null) {
+            ensureCapacity(1 + Integer.BYTES);
+            pending.put(WAGON_IN_TRAIN).putInt(head.getId());
+            return true;
+        }
+        int length = head.getSequenceLength();
+        ensureCapacity(1 + Integer.BYTES + length * 3 * Integer.BYTES);
+        pending.put(LOOSE_WAGONS).putInt(length);
+        for (Wagon wagon = head; wagon != null; wagon = wagon.getNextWagon()) {
+            int type = TrainSnapshot.typeOf(wagon);
+            if (type == 0) {
+                return false;
+            }
+            pending.putInt(wagon.getId()).putInt(type).putInt(TrainSnapshot.capacityOf(wagon));
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * pending.capacity(), pending.position() + bytes));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+    }
+
+    private void commitIfFull(boolean full) {
+        if (full) {
+            try {
+                commit();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot commit to journal " + path, e);
+            }
+        }
+    }
+
+    private static int locNumberOf(Train train) {
+        return train.getEngine().getLocNumber();
+    }
+}
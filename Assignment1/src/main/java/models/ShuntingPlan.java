@@ -0,0 +1,390 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A ShuntingPlan is a batch of shunting operations on one or more trains, that is executed atomically.
+ * The complete plan is first validated in a single pass against a simulation of the wagon counts and types
+ * of the trains involved. Only then the operations are applied, and if any of them still fails
+ * (the simulation does not track the position of every wagon), all trains and wagon sequences involved
+ * are restored to their composition from before the execution.
+ */
+public class ShuntingPlan {
+
+    private enum Operation {
+        ATTACH_TO_REAR, INSERT_AT_FRONT, INSERT_AT_POSITION, MOVE_ONE_WAGON, SPLIT_AT_POSITION, REVERSE
+    }
+
+    private static class Step {
+        final Operation operation;
+        final Train train;
+        final Train toTrain;
+        final Wagon wagon;
+        final int wagonId;
+        final int position;
+
+        Step(Operation operation, Train train, Train toTrain, Wagon wagon, int wagonId, int position) {
+            this.operation = operation;
+            this.train = train;
+            this.toTrain = toTrain;
+            this.wagon = wagon;
+            this.wagonId = wagonId;
+            this.position = position;
+        }
+    }
+
+    /**
+     * The simulated wagon count and wagon type of a train during validation
+     */
+    private static class TrainState {
+        int numberOfWagons;
+        Class<? extends Wagon> wagonType;
+
+        TrainState(Train train) {
+            numberOfWagons = train.getNumberOfWagons();
+            wagonType = train.hasWagons() ? train.getFirstWagon().getClass() : null;
+        }
+
+        void add(int count, Class<? extends Wagon> type) {
+            if (numberOfWagons == 0) {
+                wagonType = type;
+            }
+            numberOfWagons += count;
+        }
+
+        void remove(int count) {
+            numberOfWagons -= count;
+            if (numberOfWagons == 0) {
+                wagonType = null;
+            }
+        }
+
+        boolean accepts(Train train, int count, Class<? extends Wagon> type) {
+            return numberOfWagons == 0
+                    || (type == wagonType && train.getEngine().getMaxWagons() >= numberOfWagons + count);
+        }
+    }
+
+    private final List<Step> steps = new ArrayList<>();
+    private int failedStep = -1;
+
+    /**
+     * Adds an attachment of the sequence headed by wagon to the rear of the train
+     *
+     * @return this plan
+     * @see Train#attachToRear(Wagon)
+     */
+    public ShuntingPlan attachToRear(Train train, Wagon wagon) {
+        steps.add(new Step(Operation.ATTACH_TO_REAR, train, null, wagon, 0, 0));
+        return this;
+    }
+
+    /**
+     * Adds an insertion of the sequence headed by wagon at the front of the train
+     *
+     * @return this plan
+     * @see Train#insertAtFront(Wagon)
+     */
+    public ShuntingPlan insertAtFront(Train train, Wagon wagon) {
+        steps.add(new Step(Operation.INSERT_AT_FRONT, train, null, wagon, 0, 0));
+        return this;
+    }
+
+    /**
+     * Adds an insertion of the sequence headed by wagon at the given position of the train
+     *
+     * @return this plan
+     * @see Train#insertAtPosition(int, Wagon)
+     */
+    public ShuntingPlan insertAtPosition(Train train, int position, Wagon wagon) {
+        steps.add(new Step(Operation.INSERT_AT_POSITION, train, null, wagon, 0, position));
+        return this;
+    }
+
+    /**
+     * Adds a move of the wagon with the given id from fromTrain to the rear of toTrain
+     *
+     * @return this plan
+     * @see Train#moveOneWagon(int, Train)
+     */
+    public ShuntingPlan moveOneWagon(Train fromTrain, int wagonId, Train toTrain) {
+        steps.add(new Step(Operation.MOVE_ONE_WAGON, fromTrain, toTrain, null, wagonId, 0));
+        return this;
+    }
+
+    /**
+     * Adds a split of fromTrain at the given position towards the rear of toTrain
+     *
+     * @return this plan
+     * @see Train#splitAtPosition(int, Train)
+     */
+    public ShuntingPlan splitAtPosition(Train fromTrain, int position, Train toTrain) {
+        steps.add(new Step(Operation.SPLIT_AT_POSITION, fromTrain, toTrain, null, 0, position));
+        return this;
+    }
+
+    /**
+     * Adds a reversal of the train
+     *
+     * @return this plan
+     * @see Train#reverse()
+     */
+    public ShuntingPlan reverse(Train train) {
+        steps.add(new Step(Operation.REVERSE, train, null, null, 0, 0));
+        return this;
+    }
+
+    /**
+     * @return the number of operations in this plan
+     */
+    public int size() {
+        return steps.size();
+    }
+
+    /**
+     * @return the trains that are involved in this plan, including the current trains of wagons to be attached
+     */
+    Train[] getTrainsInvolved() {
+        Set<Train> trains = new LinkedHashSet<>();
+        for (Step step : steps) {
+            trains.add(step.train);
+            if (step.toTrain != null) {
+                trains.add(step.toTrain);
+            }
+            if (step.wagon != null && step.wagon.train != null) {
+                trains.add(step.wagon.train);
+            }
+        }
+        return trains.toArray(new Train[0]);
+    }
+
+    /**
+     * @return the index of the operation that made the latest validation or execution fail,
+     * or -1 if it succeeded
+     */
+    public int getFailedStep() {
+        return failedStep;
+    }
+
+    /**
+     * Validates the complete plan in a single pass, by simulating the wagon counts and types of all trains involved.
+     * No change is made to any train.
+     *
+     * @return whether all operations are expected to succeed
+     */
+    public boolean validate() {
+        failedStep = -1;
+        Map<Train, TrainState> states = new IdentityHashMap<>();
+        // the wagons that are moved by id, and their simulated train
+        Map<Integer, Wagon> movedWagons = new HashMap<>();
+        Map<Wagon, Train> movedWagonLocations = new IdentityHashMap<>();
+        // the trains that have exchanged sequences of wagons, of which the individual wagons are not simulated
+        Set<Train> reshuffledTrains = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (int i = 0; i < steps.size(); i++) {
+            Step step = steps.get(i);
+            TrainState state = states.computeIfAbsent(step.train, TrainState::new);
+            switch (step.operation) {
+                case ATTACH_TO_REAR, INSERT_AT_FRONT, INSERT_AT_POSITION -> {
+                    int length = step.wagon.getSequenceLength();
+                    if (step.wagon.train == step.train || !state.accepts(step.train, length, step.wagon.getClass())) {
+                        failedStep = i;
+                        return false;
+                    }
+                    if (step.wagon.train != null) {
+                        states.computeIfAbsent(step.wagon.train, TrainState::new).remove(length);
+                        reshuffledTrains.add(step.wagon.train);
+                        reshuffledTrains.add(step.train);
+                    }
+                    state.add(length, step.wagon.getClass());
+                }
+                case MOVE_ONE_WAGON -> {
+                    Wagon wagon = movedWagons.get(step.wagonId);
+                    Train location = wagon != null ? movedWagonLocations.get(wagon) : step.train;
+                    if (wagon == null) {
+                        wagon = findWagonById(step.train, step.wagonId, reshuffledTrains);
+                    }
+                    TrainState toState = states.computeIfAbsent(step.toTrain, TrainState::new);
+                    if (wagon == null || location != step.train || step.toTrain == step.train
+                            || !toState.accepts(step.toTrain, 1, wagon.getClass())) {
+                        failedStep = i;
+                        return false;
+                    }
+                    state.remove(1);
+                    toState.add(1, wagon.getClass());
+                    movedWagons.put(step.wagonId, wagon);
+                    movedWagonLocations.put(wagon, step.toTrain);
+                }
+                case SPLIT_AT_POSITION -> {
+                    int length = state.numberOfWagons - step.position;
+                    TrainState toState = states.computeIfAbsent(step.toTrain, TrainState::new);
+                    if (step.position < 0 || length <= 0 || step.toTrain == step.train
+                            || step.toTrain.getEngine().getMaxWagons() < toState.numberOfWagons + length
+                            || !toState.accepts(step.toTrain, length, state.wagonType)) {
+                        failedStep = i;
+                        return false;
+                    }
+                    Class<? extends Wagon> type = state.wagonType;
+                    state.remove(length);
+                    toState.add(length, type);
+                    reshuffledTrains.add(step.train);
+                    reshuffledTrains.add(step.toTrain);
+                }
+                case REVERSE -> {
+                    // no change in count or type
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds a wagon that has not been moved by id in an earlier step.
+     * If the given train has exchanged sequences of wagons in earlier steps, the wagon may have moved along,
+     * in which case the other trains that exchanged sequences are searched as well.
+     */
+    private static Wagon findWagonById(Train train, int wagonId, Set<Train> reshuffledTrains) {
+        Wagon wagon = train.findWagonById(wagonId);
+        if (wagon == null && reshuffledTrains.contains(train)) {
+            for (Train reshuffledTrain : reshuffledTrains) {
+                wagon = reshuffledTrain.findWagonById(wagonId);
+                if (wagon != null) {
+                    break;
+                }
+            }
+        }
+        return wagon;
+    }
+
+    /**
+     * Validates and then applies all operations of this plan in order.
+     * Either all operations are applied, or none of them:
+     * if any operation fails, all trains and wagon sequences involved are restored.
+     *
+     * @return whether the complete plan has been applied
+     */
+    public boolean execute() {
+        if (!validate()) {
+            return false;
+        }
+
+        Snapshot snapshot = new Snapshot();
+        for (Step step : steps) {
+            snapshot.record(step.train);
+            snapshot.record(step.toTrain);
+            if (step.wagon != null) {
+                snapshot.record(step.wagon);
+            }
+        }
+
+        for (int i = 0; i < steps.size(); i++) {
+            boolean succeeded;
+            try {
+                succeeded = apply(steps.get(i));
+            } catch (RuntimeException e) {
+                snapshot.restore();
+                failedStep = i;
+                throw e;
+            }
+            if (!succeeded) {
+                snapshot.restore();
+                failedStep = i;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean apply(Step step) {
+        return switch (step.operation) {
+            case ATTACH_TO_REAR -> step.train.attachToRear(step.wagon);
+            case INSERT_AT_FRONT -> step.train.insertAtFront(step.wagon);
+            case INSERT_AT_POSITION -> step.train.insertAtPosition(step.position, step.wagon);
+            case MOVE_ONE_WAGON -> step.train.moveOneWagon(step.wagonId, step.toTrain);
+            case SPLIT_AT_POSITION -> step.train.splitAtPosition(step.position, step.toTrain);
+            case REVERSE -> {
+                step.train.reverse();
+                yield true;
+            }
+        };
+    }
+
+    /**
+     * The compositions of all trains and loose wagon sequences involved in a plan,
+     * recorded before its execution such that they can be restored.
+     */
+    private static class Snapshot {
+        private final Map<Train, Wagon[]> trains = new IdentityHashMap<>();
+        private final Map<Wagon, Wagon[]> looseSequences = new IdentityHashMap<>();
+
+        void record(Train train) {
+            if (train != null && !trains.containsKey(train)) {
+                trains.put(train, toArray(train.getFirstWagon()));
+            }
+        }
+
+        void record(Wagon wagon) {
+            if (wagon.train != null) {
+                record(wagon.train);
+                return;
+            }
+            Wagon head = wagon;
+            while (head.hasPreviousWagon()) {
+                head = head.getPreviousWagon();
+            }
+            if (!looseSequences.containsKey(head)) {
+                looseSequences.put(head, toArray(head));
+            }
+        }
+
+        void restore() {
+            for (Train train : trains.keySet()) {
+                train.setFirstWagon(null);
+            }
+            // the plan only moves wagons between the recorded sequences, so all wagons involved are recorded here
+            for (Wagon[] wagons : trains.values()) {
+                unlink(wagons);
+            }
+            for (Wagon[] wagons : looseSequences.values()) {
+                unlink(wagons);
+            }
+            for (Wagon[] wagons : looseSequences.values()) {
+                link(wagons);
+            }
+            for (Map.Entry<Train, Wagon[]> entry : trains.entrySet()) {
+                Wagon[] wagons = entry.getValue();
+                link(wagons);
+                if (wagons.length > 0) {
+                    entry.getKey().setFirstWagon(wagons[0]);
+                }
+            }
+        }
+
+        private static Wagon[] toArray(Wagon head) {
+            List<Wagon> wagons = new ArrayList<>();
+            for (Wagon wagon = head; wagon != null; wagon = wagon.getNextWagon()) {
+                wagons.add(wagon);
+            }
+            return wagons.toArray(new Wagon[0]);
+        }
+
+        private static void unlink(Wagon[] wagons) {
+            for (Wagon wagon : wagons) {
+                wagon.unlinkTail();
+            }
+        }
+
+        private static void link(Wagon[] wagons) {
+            for (int i = 1; i < wagons.length; i++) {
+                wagons[i - 1].linkTail(wagons[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package models;
+
+import static models.WagonStore.NONE;
+
+/**
+ * A StoredTrain is a sequence of wagons that live in a WagonStore.
+ * It behaves like a Train, but refers to its wagons by their int handles,
+ * such that shunting does not allocate any objects per wagon.
+ *
+ * @see Train for the documentation of the shunting operations
+ */
+public class StoredTrain {
+    private final WagonStore store;
+    private final int number;
+    private final String origin;
+    private final String destination;
+    private final Locomotive engine;
+    private int firstWagon = NONE;
+
+    // composition metadata, maintained incrementally by every attach and detach of wagons
+    private int lastWagon = NONE;
+    private int numberOfWagons;
+    private int totalNumberOfSeats;
+    private int totalMaxWeight;
+
+    public StoredTrain(WagonStore store, Locomotive engine, String origin, String destination) {
+        this.store = store;
+        this.engine = engine;
+        this.destination = destination;
+        this.origin = origin;
+        this.number = store.addTrain(this);
+    }
+
+    public WagonStore getStore() {
+        return store;
+    }
+
+    public boolean hasWagons() {
+        return firstWagon != NONE;
+    }
+
+    public boolean isPassengerTrain() {
+        return firstWagon != NONE && store.isPassengerWagon(firstWagon);
+    }
+
+    public boolean isFreightTrain() {
+        return firstWagon != NONE && store.isFreightWagon(firstWagon);
+    }
+
+    public Locomotive getEngine() {
+        return engine;
+    }
+
+    public int getFirstWagon() {
+        return firstWagon;
+    }
+
+    /**
+     * Replaces the current sequence of wagons (if any) in the train
+     * by the given new sequence of wagons (if any)
+     *
+     * @param wagon the first wagon of a sequence of wagons to be attached (can be NONE)
+     */
+    public void setFirstWagon(int wagon) {
+        if (firstWagon != NONE) {
+            wagonsDetached(NONE, firstWagon);
+        }
+        if (wagon != NONE) {
+            detachSequence(wagon);
+            linkAtFront(wagon, adopt(wagon));
+        }
+    }
+
+    public int getNumberOfWagons() {
+        return numberOfWagons;
+    }
+
+    public int getLastWagonAttached() {
+        return lastWagon;
+    }
+
+    public int getTotalNumberOfSeats() {
+        if (!isPassengerTrain()) {
+            return 0;
+        }
+        return totalNumberOfSeats;
+    }
+
+    public int getTotalMaxWeight() {
+        if (!isFreightTrain()) {
+            return 0;
+        }
+        return totalMaxWeight;
+    }
+
+    /**
+     * @return the wagon found at the given position
+     * (return NONE if the position is not valid for this train)
+     */
+    public int findWagonAtPosition(int position) {
+        if (position < 0 || position >= numberOfWagons) {
+            return NONE;
+        }
+
+        // walk from whichever end of the train is nearest
+        if (position > numberOfWagons / 2) {
+            int wagon = lastWagon;
+            for (int i = numberOfWagons - 1; i > position; i--) {
+                wagon = store.getPreviousWagon(wagon);
+            }
+            return wagon;
+        }
+
+        int wagon = firstWagon;
+        for (int i = 0; i < position; i++) {
+            wagon = store.getNextWagon(wagon);
+        }
+        return wagon;
+    }
+
+    /**
+     * @return the wagon found
+     * (return NONE if no wagon was found with the given wagonId)
+     */
+    public int findWagonById(int wagonId) {
+        int wagon = store.findWagonById(wagonId);
+        if (wagon == NONE || store.trainNumbers[wagon] != number) {
+            return NONE;
+        }
+        return wagon;
+    }
+
+    public boolean canAttach(int wagon) {
+        if (firstWagon == NONE) {
+            return true;
+        }
+        return canAttach(wagon, store.getSequenceLength(wagon));
+    }
+
+    private boolean canAttach(int wagon, int length) {
+        if (firstWagon == NONE) {
+            return true;
+        }
+
+        if (store.getType(wagon) != store.getType(firstWagon)) {
+            return false;
+        }
+
+        if (store.trainNumbers[wagon] == number) {
+            return false;
+        }
+
+        return engine.getMaxWagons() >= numberOfWagons + length;
+    }
+
+    public boolean attachToRear(int wagon) {
+        if (!canAttach(wagon)) {
+            return false;
+        }
+
+        detachSequence(wagon);
+        linkAtRear(wagon, adopt(wagon));
+        return true;
+    }
+
+    public boolean insertAtFront(int wagon) {
+        if (!canAttach(wagon)) {
+            return false;
+        }
+
+        detachSequence(wagon);
+        linkAtFront(wagon, adopt(wagon));
+        return true;
+    }
+
+    public boolean insertAtPosition(int position, int wagon) {
+        if (!canAttach(wagon)) {
+            return false;
+        }
+
+        detachSequence(wagon);
+        int wagonAtPosition = findWagonAtPosition(position);
+        int tail = adopt(wagon);
+
+        if (wagonAtPosition == firstWagon) {
+            linkAtFront(wagon, tail);
+        } else if (wagonAtPosition == NONE) {
+            linkAtRear(wagon, tail);
+        } else {
+            int front = store.getPreviousWagon(wagonAtPosition);
+            store.unlinkTail(front);
+            store.linkTail(front, wagon);
+            store.linkTail(tail, wagonAtPosition);
+        }
+        return true;
+    }
+
+    public boolean moveOneWagon(int wagonId, StoredTrain toTrain) {
+        int wagon = findWagonById(wagonId);
+
+        if (wagon == NONE) {
+            return false;
+        }
+
+        // only this single wagon will be attached, not its successors
+        if (!toTrain.canAttach(wagon, 1)) {
+            return false;
+        }
+
+        int front = store.getPreviousWagon(wagon);
+        int tail = store.getNextWagon(wagon);
+        if (front != NONE) {
+            store.unlinkTail(front);
+            store.linkTail(front, store.unlinkTail(wagon));
+        } else {
+            firstWagon = store.unlinkTail(wagon);
+        }
+        if (tail == NONE) {
+            lastWagon = front;
+        }
+        unregister(wagon);
+
+        toTrain.attachToRear(wagon);
+        return true;
+    }
+
+    public boolean splitAtPosition(int position, StoredTrain toTrain) {
+        if (position < 0 || position >= numberOfWagons) {
+            return false;
+        }
+
+        if (toTrain.engine.getMaxWagons() < toTrain.numberOfWagons + numberOfWagons - position) {
+            return false;
+        }
+
+        // attachToRear detaches the sequence from this train and re-validates the compatibility
+        return toTrain.attachToRear(findWagonAtPosition(position));
+    }
+
+    public void reverse() {
+        if (firstWagon == NONE || !store.hasNextWagon(firstWagon)) {
+            return;
+        }
+        // the train is notified of the new first and last wagons by the store
+        store.reverseSequence(firstWagon);
+    }
+
+    /**
+     * Detaches the given head wagon from its predecessors or from the train it is heading, if any
+     */
+    private void detachSequence(int wagon) {
+        if (store.hasPreviousWagon(wagon)) {
+            store.detachFront(wagon);
+        } else if (store.trainNumbers[wagon] != NONE) {
+            // the wagon heads another train, which loses its complete sequence
+            store.trainOf(wagon).wagonsDetached(NONE, wagon);
+        }
+    }
+
+    private void linkAtFront(int head, int tail) {
+        if (firstWagon == NONE) {
+            lastWagon = tail;
+        } else {
+            store.linkTail(tail, firstWagon);
+        }
+        firstWagon = head;
+    }
+
+    private void linkAtRear(int head, int tail) {
+        if (lastWagon == NONE) {
+            firstWagon = head;
+        } else {
+            store.linkTail(lastWagon, head);
+        }
+        lastWagon = tail;
+    }
+
+    /**
+     * Registers all wagons from head until the end of its sequence as part of this train
+     *
+     * @return the last wagon of the sequence
+     */
+    private int adopt(int head) {
+        int wagon = head;
+        register(wagon);
+        while (store.hasNextWagon(wagon)) {
+            wagon = store.getNextWagon(wagon);
+            register(wagon);
+        }
+        return wagon;
+    }
+
+    private void register(int wagon) {
+        store.trainNumbers[wagon] = number;
+        numberOfWagons++;
+        totalNumberOfSeats += store.getNumberOfSeats(wagon);
+        totalMaxWeight += store.getMaxWeight(wagon);
+    }
+
+    private void unregister(int wagon) {
+        store.trainNumbers[wagon] = NONE;
+        numberOfWagons--;
+        totalNumberOfSeats -= store.getNumberOfSeats(wagon);
+        totalMaxWeight -= store.getMaxWeight(wagon);
+    }
+
+    /**
+     * Notification by the store that a sequence of wagons has been attached at the rear of this train
+     */
+    void wagonsAttached(int head) {
+        lastWagon = adopt(head);
+    }
+
+    /**
+     * Notification that the sequence from head until the end of this train has been detached
+     *
+     * @param front the wagon that remains as the last wagon of this train (NONE if none remains)
+     * @param head  the first wagon of the detached sequence
+     */
+    void wagonsDetached(int front, int head) {
+        if (front == NONE) {
+            firstWagon = NONE;
+        }
+        lastWagon = front;
+        for (int wagon = head; wagon != NONE; wagon = store.getNextWagon(wagon)) {
+            unregister(wagon);
+        }
+    }
+
+    /**
+     * Notification that the sequence from oldStart until the end of this train has been reversed
+     */
+    void sequenceReversed(int oldStart, int newStart) {
+        if (oldStart == firstWagon) {
+            firstWagon = newStart;
+        }
+        lastWagon = oldStart;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb =
+                new StringBuilder("Train with engine: " + engine + " from " + origin + " to " + destination + "\n");
+        if (firstWagon == NONE) {
+            sb.append("No wagons attached");
+        } else {
+            sb.append("Wagons attached:\n");
+            sb.append(store.toString(firstWagon));
+        }
+        return sb.toString();
+    }
+}
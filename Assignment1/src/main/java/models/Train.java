@@ -1,14 +1,45 @@
 package models;
 
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
 /**
  * A Train is a sequence of Wagons
  */
-public class Train {
+public class Train implements Iterable<Wagon> {
     private final String origin;
     private final String destination;
     private final Locomotive engine;
     private Wagon firstWagon;
 
+    // composition metadata, maintained incrementally by every attach and detach of wagons
+    private Wagon lastWagon;
+    private int numberOfWagons;
+    private int totalNumberOfSeats;
+    private int totalMaxWeight;
+    private final IntMap<Wagon> wagonsById = new IntMap<>();
+    // positional index of the wagons, only in indexed sequence mode
+    private SequenceIndex index;
+    // whether the wagons are linked back to front, such that the train is reversed without re-linking them;
+    // read by Wagon to follow the links in the order of this train
+    boolean reversed;
+
+    // guards the composition against torn optimistic reads while it is modified
+    private static final int OPTIMISTIC_READ_ATTEMPTS = 8;
+    private final StampedLock compositionLock = new StampedLock();
+    private Thread writer;
+    private int writeDepth;
+    private long writeStamp;
+
+    // the yard that this train is part of, if any; maintained by Yard
+    Yard yard;
+
     public Train(Locomotive engine, String origin, String destination) {
         this.engine = engine;
         this.destination = destination;
@@ -21,7 +52,7 @@ public class Train {
      * @return whether the train has at least one connected Wagon
      */
     public boolean hasWagons() {
-        return firstWagon != null;
+        return read(train -> train.firstWagon != null);
     }
 
     /**
@@ -31,7 +62,7 @@ public class Train {
      * @return whether the train is a passenger train
      */
     public boolean isPassengerTrain() {
-        return firstWagon instanceof PassengerWagon;
+        return read(train -> train.firstWagon instanceof PassengerWagon);
     }
 
     /**
@@ -41,13 +72,21 @@ public class Train {
      * @return whether the train is a freight train
      */
     public boolean isFreightTrain() {
-        return firstWagon instanceof FreightWagon;
+        return read(train -> train.firstWagon instanceof FreightWagon);
     }
 
     public Locomotive getEngine() {
         return engine;
     }
 
+    public String getOrigin() {
+        return origin;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
     public Wagon getFirstWagon() {
         return firstWagon;
     }
@@ -59,27 +98,69 @@ public class Train {
      * @param wagon the first wagon of a sequence of wagons to be attached (can be null)
      */
     public void setFirstWagon(Wagon wagon) {
-        firstWagon = wagon;
+        beginWrite();
+        try {
+            if (firstWagon != null) {
+                wagonsDetached(null, firstWagon);
+            }
+            if (wagon != null) {
+                detachSequence(wagon);
+                linkAtFront(wagon, adopt(wagon));
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * @return whether this train maintains a positional index of its wagons
+     */
+    public boolean isIndexed() {
+        return index != null;
+    }
+
+    /**
+     * Switches the indexed sequence mode of this train on or off.
+     * In indexed sequence mode, the train maintains a balanced tree over its wagons
+     * such that findWagonAtPosition, insertAtPosition and splitAtPosition locate positions
+     * in logarithmic time instead of walking the sequence, which pays off for very long trains.
+     *
+     * @param indexed whether the train shall maintain a positional index
+     */
+    public void setIndexed(boolean indexed) {
+        beginWrite();
+        try {
+            if (indexed == isIndexed()) {
+                return;
+            }
+            if (indexed) {
+                index = new SequenceIndex();
+                if (firstWagon != null) {
+                    index.insert(0, index.build(firstWagon));
+                }
+            } else {
+                index = null;
+                for (Wagon wagon = firstWagon; wagon != null; wagon = wagon.getNextWagon()) {
+                    wagon.indexNode = null;
+                }
+            }
+        } finally {
+            endWrite();
+        }
     }
 
     /**
      * @return the number of Wagons connected to the train
      */
     public int getNumberOfWagons() {
-        if (firstWagon == null) {
-            return 0;
-        }
-        return firstWagon.getSequenceLength();
+        return readInt(train -> train.numberOfWagons);
     }
 
     /**
      * @return the last wagon attached to the train
      */
     public Wagon getLastWagonAttached() {
-        if (firstWagon == null) {
-            return null;
-        }
-        return firstWagon.getLastWagonAttached();
+        return lastWagon;
     }
 
     /**
@@ -87,18 +168,7 @@ public class Train {
      * (return 0 for a freight train)
      */
     public int getTotalNumberOfSeats() {
-        if (firstWagon == null || !isPassengerTrain()) {
-            return 0;
-        }
-
-        int totalNumberOfSeats = 0;
-
-        PassengerWagon currentWagon = (PassengerWagon) firstWagon;
-        while (currentWagon.hasNextWagon()) {
-            totalNumberOfSeats += currentWagon.getNumberOfSeats();
-            currentWagon = (PassengerWagon) currentWagon.getNextWagon();
-        }
-        return totalNumberOfSeats + currentWagon.getNumberOfSeats();
+        return readInt(train -> train.firstWagon instanceof PassengerWagon ? train.totalNumberOfSeats : 0);
     }
 
     /**
@@ -108,19 +178,7 @@ public class Train {
      * (return 0 for a passenger train)
      */
     public int getTotalMaxWeight() {
-        if (firstWagon == null || !isFreightTrain()) {
-            return 0;
-        }
-
-        int totalMaxWeight = 0;
-
-        FreightWagon currentWagon = (FreightWagon) firstWagon;
-        while (currentWagon.hasNextWagon()) {
-            totalMaxWeight += currentWagon.getMaxWeight();
-            currentWagon = (FreightWagon) currentWagon.getNextWagon();
-        }
-
-        return totalMaxWeight + currentWagon.getMaxWeight();
+        return readInt(train -> train.firstWagon instanceof FreightWagon ? train.totalMaxWeight : 0);
     }
 
     /**
@@ -131,14 +189,41 @@ public class Train {
      * (return null if the position is not valid for this train)
      */
     public Wagon findWagonAtPosition(int position) {
-        if (position < 0 || position >= getNumberOfWagons()) {
+        TrainMetrics.Probe probe = TrainMetrics.begin(TrainMetrics.Operation.FIND_WAGON_AT_POSITION);
+        try {
+            return walkToPosition(position);
+        } finally {
+            TrainMetrics.end(probe);
+        }
+    }
+
+    private Wagon walkToPosition(int position) {
+        if (position < 0 || position >= numberOfWagons) {
             return null;
         }
 
+        if (index != null) {
+            Wagon wagon = findIndexedWagon(position);
+            if (wagon != null) {
+                return wagon;
+            }
+        }
+
+        // walk from whichever end of the train is nearest
+        if (position > numberOfWagons / 2) {
+            Wagon wagon = lastWagon;
+            for (int i = numberOfWagons - 1; i > position; i--) {
+                wagon = wagon.getPreviousWagon();
+            }
+            TrainMetrics.hops(numberOfWagons - 1 - position);
+            return wagon;
+        }
+
         Wagon wagon = firstWagon;
         for (int i = 0; i < position; i++) {
             wagon = wagon.getNextWagon();
         }
+        TrainMetrics.hops(position);
         return wagon;
     }
 
@@ -150,15 +235,64 @@ public class Train {
      * (return null if no wagon was found with the given wagonId)
      */
     public Wagon findWagonById(int wagonId) {
-        Wagon wagon = firstWagon;
-        while (wagon != null) {
-            if (wagon.getId() == wagonId) {
-                return wagon;
-            }
-            wagon = wagon.getNextWagon();
+        TrainMetrics.Probe probe = TrainMetrics.begin(TrainMetrics.Operation.FIND_WAGON_BY_ID);
+        try {
+            return wagonsById.get(wagonId);
+        } finally {
+            TrainMetrics.end(probe);
         }
+    }
+
+    /**
+     * @return an iterator over the wagons of this train, from the first wagon to the last wagon
+     */
+    @Override
+    public Iterator<Wagon> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    /**
+     * Creates a sized spliterator over the wagons of this train, from the first wagon to the last wagon.
+     * It splits in logarithmic time when the train is indexed, such that its wagons can be traversed in parallel.
+     * The train shall not be shunted while its wagons are traversed.
+     *
+     * @return the spliterator over the wagons of this train
+     */
+    @Override
+    public Spliterator<Wagon> spliterator() {
+        return read(train -> new WagonSpliterator(train, train.firstWagon, 0, train.numberOfWagons));
+    }
+
+    /**
+     * @return a stream of the number of seats of each wagon of this train, in order
+     * (0 for freight wagons)
+     */
+    public IntStream seats() {
+        return StreamSupport.stream(spliterator(), false)
+                .mapToInt(wagon -> wagon instanceof PassengerWagon passengerWagon ? passengerWagon.getNumberOfSeats() : 0);
+    }
 
-        return null;
+    /**
+     * @return a stream of the maximum weight of each wagon of this train, in order
+     * (0 for passenger wagons)
+     */
+    public IntStream maxWeights() {
+        return StreamSupport.stream(spliterator(), false)
+                .mapToInt(wagon -> wagon instanceof FreightWagon freightWagon ? freightWagon.getMaxWeight() : 0);
+    }
+
+    /**
+     * Finds the wagon at the given position through the positional index, for splitting a traversal of the wagons
+     *
+     * @param position 0 <= position < numWagons
+     * @return the wagon at the given position, or null if this train is not indexed (or the position is not valid)
+     */
+    Wagon findIndexedWagon(int position) {
+        // the lookup does not modify the index, so concurrent lookups only read
+        return read(train -> {
+            SequenceIndex index = train.index;
+            return index != null && position < index.size() ? index.get(position) : null;
+        });
     }
 
     /**
@@ -172,6 +306,22 @@ public class Train {
      * @return whether type and capacity of this train can accommodate attachment of the sequence
      */
     public boolean canAttach(Wagon wagon) {
+        TrainMetrics.Probe probe = TrainMetrics.begin(TrainMetrics.Operation.CAN_ATTACH);
+        try {
+            return firstWagon == null || canAttach(wagon, wagon.getSequenceLength());
+        } finally {
+            TrainMetrics.end(probe);
+        }
+    }
+
+    /**
+     * Determines if a sequence of the given number of wagons, headed by the given wagon, can be attached
+     *
+     * @param wagon  the head wagon of the sequence
+     * @param length the number of wagons in the sequence
+     * @return whether type and capacity of this train can accommodate attachment of the sequence
+     */
+    private boolean canAttach(Wagon wagon, int length) {
         if (firstWagon == null) {
             return true;
         }
@@ -180,18 +330,11 @@ public class Train {
             return false;
         }
 
-        if (engine.getMaxWagons() < getNumberOfWagons() + wagon.getSequenceLength()) {
+        if (wagon.train == this) {
             return false;
         }
 
-        Wagon currentWagon = firstWagon;
-        while (currentWagon.hasNextWagon()) {
-            if (currentWagon == wagon) {
-                return false;
-            }
-            currentWagon = currentWagon.getNextWagon();
-        }
-        return true;
+        return engine.getMaxWagons() >= numberOfWagons + length;
     }
 
     /**
@@ -204,21 +347,20 @@ public class Train {
      * @return whether the attachment could be completed successfully
      */
     public boolean attachToRear(Wagon wagon) {
-        if (!canAttach(wagon)) {
-            return false;
-        }
-
-        if (wagon.hasPreviousWagon()) {
-            wagon.detachFront();
-        }
+        TrainMetrics.Probe probe = TrainMetrics.begin(TrainMetrics.Operation.ATTACH_TO_REAR);
+        beginWrite();
+        try {
+            if (!canAttach(wagon)) {
+                return false;
+            }
 
-        if (firstWagon == null) {
-            firstWagon = wagon;
+            detachSequence(wagon);
+            linkAtRear(wagon, adopt(wagon));
             return true;
+        } finally {
+            endWrite();
+            TrainMetrics.end(probe);
         }
-
-        firstWagon.getLastWagonAttached().attachTail(wagon);
-        return true;
     }
 
     /**
@@ -232,20 +374,20 @@ public class Train {
      * @return whether the insertion could be completed successfully
      */
     public boolean insertAtFront(Wagon wagon) {
-        if (!canAttach(wagon)) {
-            return false;
-        }
-
-        if (wagon.hasPreviousWagon()) {
-            wagon.detachFront();
-        }
+        TrainMetrics.Probe probe = TrainMetrics.begin(TrainMetrics.Operation.INSERT_AT_FRONT);
+        beginWrite();
+        try {
+            if (!canAttach(wagon)) {
+                return false;
+            }
 
-        if (firstWagon != null) {
-            wagon.getLastWagonAttached().attachTail(firstWagon);
+            detachSequence(wagon);
+            linkAtFront(wagon, adopt(wagon));
+            return true;
+        } finally {
+            endWrite();
+            TrainMetrics.end(probe);
         }
-
-        firstWagon = wagon;
-        return true;
     }
 
     /**
@@ -264,31 +406,122 @@ public class Train {
      * @return whether the insertion could be completed successfully
      */
     public boolean insertAtPosition(int position, Wagon wagon) {
-        if (!canAttach(wagon)) {
-            return false;
+        TrainMetrics.Probe probe = TrainMetrics.begin(TrainMetrics.Operation.INSERT_AT_POSITION);
+        beginWrite();
+        try {
+            if (!canAttach(wagon)) {
+                return false;
+            }
+
+            detachSequence(wagon);
+            insert(position, wagon);
+            return true;
+        } finally {
+            endWrite();
+            TrainMetrics.end(probe);
         }
+    }
 
-        if (wagon.hasPreviousWagon()) {
-            wagon.detachFront();
+    /**
+     * Determines if the given segment of wagons can be attached to this train
+     *
+     * @param segment the segment of wagons to consider for attachment
+     * @return whether type and capacity of this train can accommodate attachment of the segment
+     * @see #canAttach(Wagon)
+     */
+    public boolean canAttach(WagonSegment segment) {
+        TrainMetrics.Probe probe = TrainMetrics.begin(TrainMetrics.Operation.CAN_ATTACH);
+        try {
+            return segment.isEmpty() || canAttach(segment.getHead(), segment.getLength());
+        } finally {
+            TrainMetrics.end(probe);
         }
+    }
 
-        if (position == 0) {
-            return insertAtFront(wagon);
+    /**
+     * Tries to attach the given segment of wagons to the rear of the train,
+     * without counting its wagons again
+     *
+     * @param segment the segment of wagons to be attached, which is empty afterwards
+     * @return whether the attachment could be completed successfully
+     * @see #attachToRear(Wagon)
+     */
+    public boolean attachToRear(WagonSegment segment) {
+        TrainMetrics.Probe probe = TrainMetrics.begin(TrainMetrics.Operation.ATTACH_TO_REAR);
+        try {
+            return insertAtPosition(Integer.MAX_VALUE, segment);
+        } finally {
+            TrainMetrics.end(probe);
         }
+    }
 
-        Wagon wagonAtPosition = findWagonAtPosition(position);
+    /**
+     * Tries to insert the given segment of wagons at the front of the train,
+     * without counting its wagons again
+     *
+     * @param segment the segment of wagons to be inserted, which is empty afterwards
+     * @return whether the insertion could be completed successfully
+     * @see #insertAtFront(Wagon)
+     */
+    public boolean insertAtFront(WagonSegment segment) {
+        TrainMetrics.Probe probe = TrainMetrics.begin(TrainMetrics.Operation.INSERT_AT_FRONT);
+        try {
+            return insertAtPosition(0, segment);
+        } finally {
+            TrainMetrics.end(probe);
+        }
+    }
 
-        if (wagonAtPosition == null) {
-            firstWagon.getLastWagonAttached().attachTail(wagon);
+    /**
+     * Tries to insert the given segment of wagons at the given position in the train,
+     * without counting its wagons again
+     *
+     * @param position the position where the segment shall be inserted
+     *                 0 <= position <= numWagons
+     * @param segment  the segment of wagons to be inserted, which is empty afterwards
+     * @return whether the insertion could be completed successfully
+     * @see #insertAtPosition(int, Wagon)
+     */
+    public boolean insertAtPosition(int position, WagonSegment segment) {
+        TrainMetrics.Probe probe = TrainMetrics.begin(TrainMetrics.Operation.INSERT_AT_POSITION);
+        beginWrite();
+        try {
+            if (!canAttach(segment)) {
+                return false;
+            }
+            if (!segment.isEmpty()) {
+                detachSequence(segment.getHead());
+                insert(position, segment.getHead());
+                segment.clear();
+            }
             return true;
+        } finally {
+            endWrite();
+            TrainMetrics.end(probe);
         }
+    }
 
-        if (wagonAtPosition.hasPreviousWagon()) {
-            wagonAtPosition.detachFront();
-            wagon.getLastWagonAttached().attachTail(wagonAtPosition);
-            firstWagon.getLastWagonAttached().attachTail(wagon);
+    /**
+     * Inserts the loose sequence of wagons headed by the given wagon at the given position,
+     * or at the rear if the position is beyond the last wagon
+     */
+    private void insert(int position, Wagon wagon) {
+        Wagon wagonAtPosition = walkToPosition(position);
+        Wagon tail = adopt(wagon);
+
+        if (wagonAtPosition == firstWagon) {
+            linkAtFront(wagon, tail);
+        } else if (wagonAtPosition == null) {
+            linkAtRear(wagon, tail);
+        } else {
+            if (index != null) {
+                index.insert(position, index.build(wagon));
+            }
+            Wagon front = wagonAtPosition.getPreviousWagon();
+            unlink(front);
+            link(front, wagon);
+            link(tail, wagonAtPosition);
         }
-        return true;
     }
 
     /**
@@ -304,36 +537,43 @@ public class Train {
      * @return whether the move could be completed successfully
      */
     public boolean moveOneWagon(int wagonId, Train toTrain) {
-        Wagon wagon = findWagonById(wagonId);
+        TrainMetrics.Probe probe = TrainMetrics.begin(TrainMetrics.Operation.MOVE_ONE_WAGON);
+        beginWrite();
+        try {
+            Wagon wagon = findWagonById(wagonId);
 
-        if (wagon == null) {
-            return false;
-        }
+            if (wagon == null) {
+                return false;
+            }
 
-        if (!toTrain.canAttach(wagon)) {
-            return false;
-        }
+            // only this single wagon will be attached, not its successors
+            if (!toTrain.canAttach(wagon, 1)) {
+                return false;
+            }
+
+            if (index != null) {
+                index.remove(index.positionOf(wagon));
+            }
+            Wagon front = wagon.getPreviousWagon();
+            Wagon tail = wagon.getNextWagon();
+            if (front != null) {
+                unlink(front);
+                link(front, unlink(wagon));
+            } else {
+                firstWagon = unlink(wagon);
+            }
+            if (tail == null) {
+                lastWagon = front;
+            }
+            unregister(wagon);
+            compositionChanged();
 
-        if (wagon.hasPreviousWagon() && wagon.hasNextWagon()) {
-            wagon.detachFront().attachTail(wagon.detachTail());
             toTrain.attachToRear(wagon);
             return true;
+        } finally {
+            endWrite();
+            TrainMetrics.end(probe);
         }
-
-        if (wagon.hasPreviousWagon()) {
-            wagon.detachFront();
-        }
-
-        if (wagon.hasNextWagon() && wagon == firstWagon) {
-            firstWagon = wagon.detachTail();
-        }
-
-        if (wagon == firstWagon) {
-            firstWagon = null;
-        }
-
-        toTrain.attachToRear(wagon);
-        return true;
     }
 
     /**
@@ -349,27 +589,23 @@ public class Train {
      * @return whether the move could be completed successfully
      */
     public boolean splitAtPosition(int position, Train toTrain) {
-        if (firstWagon == null || position < 0 || position >= getNumberOfWagons()) {
-            return false;
-        }
+        TrainMetrics.Probe probe = TrainMetrics.begin(TrainMetrics.Operation.SPLIT_AT_POSITION);
+        beginWrite();
+        try {
+            if (position < 0 || position >= numberOfWagons) {
+                return false;
+            }
 
-        if (toTrain.engine.getMaxWagons() < toTrain.getNumberOfWagons() + getNumberOfWagons() - position) {
-            return false;
-        }
-        if (!toTrain.canAttach(findWagonAtPosition(position))) {
-            return false;
-        }
+            if (toTrain.engine.getMaxWagons() < toTrain.numberOfWagons + numberOfWagons - position) {
+                return false;
+            }
 
-        if (position == 0) {
-            toTrain.attachToRear(firstWagon);
-            firstWagon = null;
-            return true;
+            // attachToRear detaches the sequence from this train and re-validates the compatibility
+            return toTrain.attachToRear(walkToPosition(position));
+        } finally {
+            endWrite();
+            TrainMetrics.end(probe);
         }
-
-        Wagon wagon = findWagonAtPosition(position);
-        wagon.detachFront();
-        toTrain.attachToRear(wagon);
-        return true;
     }
 
     /**
@@ -380,14 +616,358 @@ public class Train {
      * (No change if the train has no wagons or only one wagon)
      */
     public void reverse() {
-        if (firstWagon == null || !firstWagon.hasNextWagon()) {
+        TrainMetrics.Probe probe = TrainMetrics.begin(TrainMetrics.Operation.REVERSE);
+        beginWrite();
+        try {
+            if (firstWagon == null || !firstWagon.hasNextWagon()) {
+                return;
+            }
+            // the wagons keep their links, which are followed the other way around from now on
+            Wagon first = firstWagon;
+            firstWagon = lastWagon;
+            lastWagon = first;
+            reversed = !reversed;
+            if (index != null) {
+                index.reverseFrom(0);
+            }
+        } finally {
+            endWrite();
+            TrainMetrics.end(probe);
+        }
+    }
+
+    /**
+     * Starts a modification of the composition of this train, which invalidates concurrent optimistic reads.
+     * Modifications may be nested within the same thread.
+     * Concurrent modifications by different threads shall be prevented by the caller, e.g. by a Yard.
+     */
+    void beginWrite() {
+        if (writer == Thread.currentThread()) {
+            writeDepth++;
             return;
         }
-        firstWagon = firstWagon.reverseSequence();
+        writeStamp = compositionLock.writeLock();
+        writer = Thread.currentThread();
+        writeDepth = 1;
+    }
+
+    /**
+     * Completes a modification of the composition of this train
+     */
+    void endWrite() {
+        if (--writeDepth == 0) {
+            writer = null;
+            compositionLock.unlockWrite(writeStamp);
+        }
+    }
+
+    /**
+     * Reads an attribute of the composition of this train without blocking writers.
+     * The read is retried when a concurrent modification invalidates it,
+     * and only falls back to a read lock when it keeps being invalidated.
+     *
+     * @param reader the function that reads the attribute from this train
+     * @return a consistent value of the attribute
+     */
+    private <T> T read(Function<Train, T> reader) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            long stamp = compositionLock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    T value = reader.apply(this);
+                    if (compositionLock.validate(stamp)) {
+                        return value;
+                    }
+                } catch (RuntimeException e) {
+                    // the read has seen an inconsistent composition and will be retried
+                    if (compositionLock.validate(stamp)) {
+                        throw e;
+                    }
+                }
+            } else if (writer == Thread.currentThread()) {
+                return reader.apply(this);
+            }
+            Thread.onSpinWait();
+        }
+        long stamp = compositionLock.readLock();
+        try {
+            return reader.apply(this);
+        } finally {
+            compositionLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Reads an int attribute of the composition of this train without blocking writers
+     *
+     * @see #read(Function)
+     */
+    private int readInt(ToIntFunction<Train> reader) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            long stamp = compositionLock.tryOptimisticRead();
+            if (stamp != 0) {
+                int value = reader.applyAsInt(this);
+                if (compositionLock.validate(stamp)) {
+                    return value;
+                }
+            } else if (writer == Thread.currentThread()) {
+                return reader.applyAsInt(this);
+            }
+            Thread.onSpinWait();
+        }
+        long stamp = compositionLock.readLock();
+        try {
+            return reader.applyAsInt(this);
+        } finally {
+            compositionLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Detaches the given head wagon from its predecessors or from the train it is heading, if any
+     *
+     * @param wagon the head wagon of a sequence of wagons that is about to be attached elsewhere
+     */
+    static void detachSequence(Wagon wagon) {
+        if (wagon.train != null) {
+            wagon.train.release(wagon);
+        } else if (wagon.hasPreviousWagon()) {
+            wagon.detachFront();
+        }
+    }
+
+    /**
+     * Detaches the sequence from the given wagon until the end of this train, in the orientation of this train
+     *
+     * @param head the first wagon of the sequence to be detached
+     */
+    private void release(Wagon head) {
+        beginWrite();
+        try {
+            Wagon front = head.getPreviousWagon();
+            if (front != null) {
+                unlink(front);
+            }
+            wagonsDetached(front, head);
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Links the tail behind the front wagon in the orientation of this train, without notification
+     */
+    private void link(Wagon front, Wagon tail) {
+        if (!reversed) {
+            front.linkTail(tail);
+        } else if (tail != null) {
+            tail.linkTail(front);
+        }
+    }
+
+    /**
+     * Unlinks the tail from the front wagon in the orientation of this train, without notification
+     *
+     * @return the first wagon of the tail that has been unlinked, if any
+     */
+    private Wagon unlink(Wagon front) {
+        if (!reversed) {
+            return front.unlinkTail();
+        }
+        Wagon tail = front.getNextWagon();
+        if (tail != null) {
+            tail.unlinkTail();
+        }
+        return tail;
+    }
+
+    /**
+     * Re-links the wagons of a reversed train from front to back,
+     * before the links are modified by a wagon of this train that is not aware of the orientation
+     */
+    void applyOrientation() {
+        if (!reversed) {
+            return;
+        }
+        reversed = false;
+        lastWagon.reverseLinks();
+    }
+
+    /**
+     * Links an adopted sequence of wagons in front of the current first wagon (if any)
+     */
+    private void linkAtFront(Wagon head, Wagon tail) {
+        if (index != null) {
+            index.insert(0, index.build(head));
+        }
+        if (firstWagon == null) {
+            lastWagon = tail;
+        } else {
+            link(tail, firstWagon);
+        }
+        firstWagon = head;
+    }
+
+    /**
+     * Links an adopted sequence of wagons behind the current last wagon (if any)
+     */
+    private void linkAtRear(Wagon head, Wagon tail) {
+        if (index != null) {
+            index.insert(index.size(), index.build(head));
+        }
+        if (lastWagon == null) {
+            firstWagon = head;
+        } else {
+            link(lastWagon, head);
+        }
+        lastWagon = tail;
+    }
+
+    /**
+     * Registers all wagons from head until the end of its loose sequence as part of this train.
+     * The sequence is re-linked back to front if this train is reversed, such that its order is kept.
+     *
+     * @param head the first wagon of the sequence
+     * @return the last wagon of the sequence
+     */
+    private Wagon adopt(Wagon head) {
+        Wagon first = reversed ? head.reverseLinks() : head;
+        Wagon last = first;
+        Wagon wagon = first;
+        int hops = 0;
+        while (wagon != null) {
+            // the links of the sequence are followed before it becomes part of the orientation of this train
+            Wagon next = wagon.getNextWagon();
+            register(wagon);
+            last = wagon;
+            wagon = next;
+            hops++;
+        }
+        TrainMetrics.hops(hops);
+        compositionChanged();
+        return reversed ? first : last;
+    }
+
+    private void register(Wagon wagon) {
+        wagon.train = this;
+        wagonsById.put(wagon.getId(), wagon);
+        if (yard != null) {
+            yard.wagonAdded(this, wagon);
+        }
+        numberOfWagons++;
+        if (wagon instanceof PassengerWagon passengerWagon) {
+            totalNumberOfSeats += passengerWagon.getNumberOfSeats();
+        } else if (wagon instanceof FreightWagon freightWagon) {
+            totalMaxWeight += freightWagon.getMaxWeight();
+        }
+    }
+
+    /**
+     * Notifies the yard, if any, once the wagons of a change of the composition have been (un)registered
+     */
+    private void compositionChanged() {
+        if (yard != null) {
+            yard.compositionChanged(this);
+        }
+    }
+
+    private void unregister(Wagon wagon) {
+        wagon.train = null;
+        wagon.indexNode = null;
+        wagonsById.remove(wagon.getId(), wagon);
+        if (yard != null) {
+            yard.wagonRemoved(this, wagon);
+        }
+        numberOfWagons--;
+        if (wagon instanceof PassengerWagon passengerWagon) {
+            totalNumberOfSeats -= passengerWagon.getNumberOfSeats();
+        } else if (wagon instanceof FreightWagon freightWagon) {
+            totalMaxWeight -= freightWagon.getMaxWeight();
+        }
+    }
+
+    /**
+     * Notification by a wagon of this train that a sequence of wagons has been attached behind it,
+     * i.e. at the rear of this train
+     *
+     * @param head the first wagon of the attached sequence
+     */
+    void wagonsAttached(Wagon head) {
+        beginWrite();
+        try {
+            if (index != null) {
+                index.insert(index.size(), index.build(head));
+            }
+            lastWagon = adopt(head);
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Notification that the sequence from head until the end of this train has been detached
+     *
+     * @param front the wagon that remains as the last wagon of this train (null if none remains)
+     * @param head  the first wagon of the detached sequence
+     */
+    void wagonsDetached(Wagon front, Wagon head) {
+        beginWrite();
+        try {
+            if (index != null) {
+                index.truncate(front == null ? 0 : index.positionOf(front) + 1);
+            }
+            if (front == null) {
+                firstWagon = null;
+            }
+            Wagon last = lastWagon;
+            lastWagon = front;
+            Wagon wagon = head;
+            int hops = 0;
+            while (wagon != null) {
+                Wagon next = wagon.getNextWagon();
+                unregister(wagon);
+                wagon = next;
+                hops++;
+            }
+            TrainMetrics.hops(hops);
+            compositionChanged();
+            if (reversed) {
+                // the detached wagons are loose now, and are re-linked in their order within this train
+                last.reverseLinks();
+                reversed = front != null;
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Notification that the sequence from oldStart until the end of this train has been reversed
+     *
+     * @param oldStart the former start of the reversed sequence, which now is the last wagon
+     * @param newStart the new start of the reversed sequence
+     */
+    void sequenceReversed(Wagon oldStart, Wagon newStart) {
+        beginWrite();
+        try {
+            if (index != null) {
+                index.reverseFrom(index.positionOf(oldStart));
+            }
+            if (oldStart == firstWagon) {
+                firstWagon = newStart;
+            }
+            lastWagon = oldStart;
+        } finally {
+            endWrite();
+        }
     }
 
     @Override
     public String toString() {
+        return read(Train::describe);
+    }
+
+    private String describe() {
         StringBuilder sb =
                 new StringBuilder("Train with engine: " + engine + " from " + origin + " to " + destination + "\n");
         if (firstWagon == null) {
@@ -0,0 +1,177 @@
+package models;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TrainMetrics counts the calls, the link hops between wagons, the allocated bytes and the wall time
+ * of the public operations of trains, and exposes them as a JMX MXBean named {@value #OBJECT_NAME}.
+ *
+ * The instrumentation is disabled by default, in which case every operation only reads one volatile flag.
+ * The costs of an operation that calls other operations (e.g. attachToRear calls canAttach)
+ * are attributed to the outermost operation only.
+ */
+public final class TrainMetrics implements TrainMetricsMXBean {
+    public static final String OBJECT_NAME = "models:type=TrainMetrics";
+
+    /**
+     * The instrumented operations of a train
+     */
+    public enum Operation {
+        CAN_ATTACH, ATTACH_TO_REAR, INSERT_AT_FRONT, INSERT_AT_POSITION, MOVE_ONE_WAGON, SPLIT_AT_POSITION,
+        REVERSE, FIND_WAGON_AT_POSITION, FIND_WAGON_BY_ID
+    }
+
+    /**
+     * The operation that is in progress on a thread, which collects the hops of the operations it calls
+     */
+    static final class Probe {
+        private int depth;
+        private Operation operation;
+        private long hops;
+        private long startAllocatedBytes;
+        private long startNanos;
+    }
+
+    private static final TrainMetrics INSTANCE = new TrainMetrics();
+    private static final int OPERATIONS = Operation.values().length;
+
+    private static volatile boolean enabled;
+    private static final ThreadLocal<Probe> PROBES = ThreadLocal.withInitial(Probe::new);
+    private static final LongAdder[] CALLS = newAdders();
+    private static final LongAdder[] HOPS = newAdders();
+    private static final LongAdder[] ALLOCATED_BYTES = newAdders();
+    private static final LongAdder[] NANOS = newAdders();
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private TrainMetrics() {
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, if they have not been registered yet
+     *
+     * @return the metrics
+     */
+    public static TrainMetrics register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // registered before
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register " + OBJECT_NAME, e);
+        }
+        return INSTANCE;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        TrainMetrics.enabled = enabled;
+    }
+
+    @Override
+    public Map<String, OperationStatistics> getStatistics() {
+        Map<String, OperationStatistics> statistics = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            int i = operation.ordinal();
+            statistics.put(operation.name(), new OperationStatistics(CALLS[i].sum(), HOPS[i].sum(),
+                    ALLOCATED_BYTES[i].sum(), NANOS[i].sum()));
+        }
+        return statistics;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < OPERATIONS; i++) {
+            CALLS[i].reset();
+            HOPS[i].reset();
+            ALLOCATED_BYTES[i].reset();
+            NANOS[i].reset();
+        }
+    }
+
+    /**
+     * Starts measuring an operation on the current thread
+     *
+     * @return the probe of the operation, or null if the instrumentation is disabled
+     */
+    static Probe begin(Operation operation) {
+        if (!enabled) {
+            return null;
+        }
+        Probe probe = PROBES.get();
+        if (probe.depth++ == 0) {
+            probe.operation = operation;
+            probe.hops = 0;
+            probe.startAllocatedBytes = THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+            probe.startNanos = System.nanoTime();
+        }
+        return probe;
+    }
+
+    /**
+     * Completes the measurement of the operation of the given probe
+     *
+     * @param probe the probe returned by begin (null if the instrumentation was disabled)
+     */
+    static void end(Probe probe) {
+        if (probe == null || --probe.depth > 0) {
+            return;
+        }
+        long nanos = System.nanoTime() - probe.startNanos;
+        int i = probe.operation.ordinal();
+        CALLS[i].increment();
+        HOPS[i].add(probe.hops);
+        NANOS[i].add(nanos);
+        if (THREADS != null) {
+            ALLOCATED_BYTES[i].add(THREADS.getCurrentThreadAllocatedBytes() - probe.startAllocatedBytes);
+        }
+    }
+
+    /**
+     * Counts the given number of hops from wagon to wagon (or between nodes of an index)
+     * towards the operation in progress on the current thread, if any
+     */
+    static void hops(long count) {
+        if (!enabled) {
+            return;
+        }
+        Probe probe = PROBES.get();
+        if (probe.depth > 0) {
+            probe.hops += count;
+        }
+    }
+
+    private static LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * @return the bean that reports the bytes allocated by a thread, or null if the JVM does not support it
+     */
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean allocationCounter
+                && allocationCounter.isThreadAllocatedMemorySupported()) {
+            allocationCounter.setThreadAllocatedMemoryEnabled(true);
+            return allocationCounter;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,25 @@
+package models;
+
+import java.util.Map;
+
+/**
+ * The JMX management interface of the instrumentation of train operations
+ *
+ * @see TrainMetrics
+ */
+public interface TrainMetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return the statistics of every operation, by the name of the operation
+     */
+    Map<String, OperationStatistics> getStatistics();
+
+    /**
+     * Resets the statistics of all operations to zero
+     */
+    void reset();
+}
@@ -0,0 +1,228 @@
+package models;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A TrainSnapshot stores the compositions of a set of trains in a compact binary file,
+ * which is read and written through a memory-mapped FileChannel.
+ *
+ * The file starts with a header, which includes the sequence number of the last journal operation that the snapshot covers
+ * (see ShuntingJournal), and one record per train (engine, origin, destination and number of wagons),
+ * followed by one flat block of fixed-width wagon records (id, type and capacity) of all trains in order.
+ * Only passenger and freight wagons can be stored; the type of every wagon is stored as an explicit tag.
+ * The wagon block is read by a single bulk copy, after which the wagons of each train are linked directly
+ * and adopted by their train at once, instead of being attached to the rear one by one.
+ */
+public class TrainSnapshot {
+    private static final int MAGIC = 0x54524E53; // "TRNS"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 3 * Integer.BYTES + 2 * Long.BYTES;
+    private static final int INTS_PER_WAGON = 3;
+    private static final byte INDEXED = 1;
+
+    private TrainSnapshot() {
+    }
+
+    /**
+     * Writes the current compositions of the given trains to a snapshot file that covers no journal operations
+     *
+     * @see #write(Path, Collection, long)
+     */
+    public static void write(Path path, Collection<Train> trains) throws IOException {
+        write(path, trains, 0);
+    }
+
+    /**
+     * Writes the current compositions of the given trains to a snapshot file.
+     * The trains shall not be shunted concurrently.
+     *
+     * @param path           the file to write, which is replaced if it exists
+     * @param trains         the trains to store
+     * @param sequenceNumber the sequence number of the last journal operation that the compositions include
+     * @throws IOException if the file cannot be written, or if any of the wagons is of a type that cannot be stored
+     *                     (in which case an existing file is left unchanged)
+     */
+    public static void write(Path path, Collection<Train> trains, long sequenceNumber) throws IOException {
+        List<byte[]> names = new ArrayList<>();
+        long size = HEADER_BYTES;
+        long numberOfWagons = 0;
+        for (Train train : trains) {
+            for (Wagon wagon = train.getFirstWagon(); wagon != null; wagon = wagon.getNextWagon()) {
+                if (typeOf(wagon) == 0) {
+                    throw new IOException(wagon + " is of a type that cannot be stored in a snapshot");
+                }
+            }
+            byte[] origin = train.getOrigin().getBytes(StandardCharsets.UTF_8);
+            byte[] destination = train.getDestination().getBytes(StandardCharsets.UTF_8);
+            names.add(origin);
+            names.add(destination);
+            size += 3 * Integer.BYTES + 1 + 2 * Integer.BYTES + origin.length + destination.length;
+            numberOfWagons += train.getNumberOfWagons();
+        }
+        long wagonOffset = align(size);
+        size = wagonOffset + numberOfWagons * INTS_PER_WAGON * Integer.BYTES;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(trains.size()).putLong(numberOfWagons).putLong(sequenceNumber);
+            int name = 0;
+            for (Train train : trains) {
+                buffer.putInt(train.getEngine().getLocNumber())
+                        .putInt(train.getEngine().getMaxWagons())
+                        .putInt(train.getNumberOfWagons())
+                        .put(train.isIndexed() ? INDEXED : 0);
+                for (int i = 0; i < 2; i++) {
+                    byte[] bytes = names.get(name++);
+                    buffer.putInt(bytes.length).put(bytes);
+                }
+            }
+
+            IntBuffer wagons = buffer.position((int) wagonOffset).slice().asIntBuffer();
+            for (Train train : trains) {
+                for (Wagon wagon = train.getFirstWagon(); wagon != null; wagon = wagon.getNextWagon()) {
+                    wagons.put(wagon.getId()).put(typeOf(wagon)).put(capacityOf(wagon));
+                }
+            }
+            buffer.force();
+        }
+    }
+
+    /**
+     * Reads the trains from a snapshot file, with new locomotives and wagons
+     *
+     * @param path the file to read
+     * @return the trains in the order in which they were written
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static List<Train> read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large for a train snapshot");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            checkHeader(path, buffer);
+            int numberOfTrains = buffer.getInt();
+            long numberOfWagons = buffer.getLong();
+            buffer.getLong();
+
+            List<Train> trains = new ArrayList<>(numberOfTrains);
+            int[] lengths = new int[numberOfTrains];
+            boolean[] indexed = new boolean[numberOfTrains];
+            for (int t = 0; t < numberOfTrains; t++) {
+                Locomotive engine = new Locomotive(buffer.getInt(), buffer.getInt());
+                lengths[t] = buffer.getInt();
+                indexed[t] = buffer.get() == INDEXED;
+                String origin = readString(buffer);
+                String destination = readString(buffer);
+                trains.add(new Train(engine, origin, destination));
+            }
+
+            int[] records = new int[Math.toIntExact(numberOfWagons * INTS_PER_WAGON)];
+            buffer.position((int) align(buffer.position())).slice().asIntBuffer().get(records);
+
+            int record = 0;
+            for (int t = 0; t < numberOfTrains; t++) {
+                Wagon head = null;
+                Wagon last = null;
+                for (int w = 0; w < lengths[t]; w++, record += INTS_PER_WAGON) {
+                    Wagon wagon = newWagon(records[record], records[record + 1], records[record + 2]);
+                    if (last == null) {
+                        head = wagon;
+                    } else {
+                        // linking loose wagons takes constant time
+                        last.attachTail(wagon);
+                    }
+                    last = wagon;
+                }
+                Train train = trains.get(t);
+                train.setIndexed(indexed[t]);
+                train.setFirstWagon(head);
+            }
+            return trains;
+        } catch (RuntimeException e) {
+            throw new IOException(path + " is not a valid train snapshot", e);
+        }
+    }
+
+    /**
+     * Reads the sequence number of the last journal operation that the snapshot covers
+     *
+     * @param path the file to read
+     * @return the sequence number (0 if the snapshot covers no journal operations)
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static long readSequenceNumber(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), HEADER_BYTES));
+            checkHeader(path, header);
+            return header.getLong(header.position() + Integer.BYTES + Long.BYTES);
+        }
+    }
+
+    /**
+     * Checks the magic number and version of the snapshot, after which the buffer is positioned at the number of trains
+     */
+    private static void checkHeader(Path path, ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException(path + " is not a train snapshot");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException(path + " has unsupported snapshot version " + version);
+        }
+    }
+
+    /**
+     * @return the type tag of the wagon as stored, or 0 if wagons of its type cannot be stored
+     */
+    static int typeOf(Wagon wagon) {
+        if (wagon instanceof PassengerWagon) {
+            return WagonStore.PASSENGER;
+        }
+        return wagon instanceof FreightWagon ? WagonStore.FREIGHT : 0;
+    }
+
+    /**
+     * @return the number of seats or the maximum weight of a wagon that can be stored
+     */
+    static int capacityOf(Wagon wagon) {
+        return wagon instanceof PassengerWagon passengerWagon
+                ? passengerWagon.getNumberOfSeats() : ((FreightWagon) wagon).getMaxWeight();
+    }
+
+    static Wagon newWagon(int id, int type, int capacity) throws IOException {
+        return switch (type) {
+            case WagonStore.PASSENGER -> new PassengerWagon(id, capacity);
+            case WagonStore.FREIGHT -> new FreightWagon(id, capacity);
+            default -> throw new IOException("Wagon " + id + " has an unknown type " + type);
+        };
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Name of " + length + " bytes exceeds the snapshot");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the offset rounded up to a multiple of the size of an int
+     */
+    private static long align(long offset) {
+        return (offset + Integer.BYTES - 1) & -Integer.BYTES;
+    }
+}
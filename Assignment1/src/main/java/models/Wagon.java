@@ -7,6 +7,10 @@ public abstract class Wagon {
     protected int id;
     private Wagon nextWagon;
     private Wagon previousWagon;
+    // the train that this wagon is part of, if any; maintained by Train
+    Train train;
+    // the node of this wagon in the positional index of its train, if the train is indexed
+    SequenceIndex.Node indexNode;
 
     public Wagon(int wagonId) {
         this.id = wagonId;
@@ -16,26 +20,35 @@ public abstract class Wagon {
         return id;
     }
 
+    /**
+     * The links of the wagons of a train in reversed orientation are followed the other way around
+     *
+     * @return the next wagon in the order of the train that this wagon is part of
+     */
     public Wagon getNextWagon() {
-        return nextWagon;
+        return train != null && train.reversed ? previousWagon : nextWagon;
     }
 
+    /**
+     * @return the previous wagon in the order of the train that this wagon is part of
+     * @see #getNextWagon()
+     */
     public Wagon getPreviousWagon() {
-        return previousWagon;
+        return train != null && train.reversed ? nextWagon : previousWagon;
     }
 
     /**
      * @return whether this wagon has a wagon appended at the tail
      */
     public boolean hasNextWagon() {
-        return nextWagon != null;
+        return getNextWagon() != null;
     }
 
     /**
      * @return whether this wagon has a wagon prepended at the front
      */
     public boolean hasPreviousWagon() {
-        return previousWagon != null;
+        return getPreviousWagon() != null;
     }
 
     /**
@@ -47,9 +60,12 @@ public abstract class Wagon {
     public Wagon getLastWagonAttached() {
         Wagon currentWagon = this;
 
+        int hops = 0;
         while (currentWagon.hasNextWagon()) {
             currentWagon = currentWagon.getNextWagon();
+            hops++;
         }
+        TrainMetrics.hops(hops);
 
         return currentWagon;
     }
@@ -65,6 +81,7 @@ public abstract class Wagon {
             currentWagon = currentWagon.getNextWagon();
             length++;
         }
+        TrainMetrics.hops(length - 1);
         return length;
     }
 
@@ -90,8 +107,23 @@ public abstract class Wagon {
         if (tail.hasPreviousWagon()) {
             throw new IllegalStateException(tail.getPreviousWagon() + " is already pulling " + tail);
         }
-        this.nextWagon = tail;
-        tail.previousWagon = this;
+        if (tail.train != null) {
+            // tail is the first wagon of another train, which loses its complete sequence
+            tail.train.wagonsDetached(null, tail);
+        }
+        Train train = this.train;
+        if (train == null) {
+            linkTail(tail);
+            return;
+        }
+        train.beginWrite();
+        try {
+            train.applyOrientation();
+            linkTail(tail);
+            train.wagonsAttached(tail);
+        } finally {
+            train.endWrite();
+        }
     }
 
     /**
@@ -101,12 +133,21 @@ public abstract class Wagon {
      * or <code>null</code> if it had no wagons attached to its tail.
      */
     public Wagon detachTail() {
-        Wagon tail = this.getNextWagon();
-        if (tail != null) {
-            tail.previousWagon = null;
-            this.nextWagon = null;
+        Train train = this.train;
+        if (train == null) {
+            return unlinkTail();
+        }
+        train.beginWrite();
+        try {
+            train.applyOrientation();
+            Wagon tail = unlinkTail();
+            if (tail != null) {
+                train.wagonsDetached(this, tail);
+            }
+            return tail;
+        } finally {
+            train.endWrite();
         }
-        return tail;
     }
 
     /**
@@ -118,11 +159,23 @@ public abstract class Wagon {
      */
     public Wagon detachFront() {
         Wagon front = this.getPreviousWagon();
-        if (front != null) {
-            front.nextWagon = null;
-            this.previousWagon = null;
+        if (front == null) {
+            return null;
+        }
+        Train train = this.train;
+        if (train == null) {
+            front.unlinkTail();
+            return front;
+        }
+        train.beginWrite();
+        try {
+            train.applyOrientation();
+            front.unlinkTail();
+            train.wagonsDetached(front, this);
+            return front;
+        } finally {
+            train.endWrite();
         }
-        return front;
     }
 
     /**
@@ -170,27 +223,77 @@ public abstract class Wagon {
      * @return the new start Wagon of the reversed sequence (with is the former last Wagon of the original sequence)
      */
     public Wagon reverseSequence() {
-        Wagon originalHead = this.getPreviousWagon();
+        Train train = this.train;
+        if (train == null) {
+            return reverseLinks();
+        }
+        train.beginWrite();
+        try {
+            train.applyOrientation();
+            Wagon newStart = reverseLinks();
+            train.sequenceReversed(this, newStart);
+            return newStart;
+        } finally {
+            train.endWrite();
+        }
+    }
+
+    /**
+     * Reverses the links of the sequence from this wagon until its final successor without notification of the train.
+     * Only to be used by Train, which takes care of its own bookkeeping.
+     *
+     * @return the new start wagon of the reversed sequence
+     */
+    Wagon reverseLinks() {
+        Wagon originalHead = this.previousWagon;
         Wagon current = this;
         Wagon prev = null;
+        int hops = 0;
 
         while (current != null) {
-            Wagon next = current.getNextWagon();
+            Wagon next = current.nextWagon;
             current.nextWagon = prev;
             current.previousWagon = next;
             prev = current;
             current = next;
+            hops++;
         }
+        TrainMetrics.hops(hops);
 
         if (originalHead != null) {
             prev.previousWagon = originalHead;
             originalHead.nextWagon = prev;
         }
-
         return prev;
     }
 
+    /**
+     * Links the tail wagon behind this wagon without any validation or notification of the train.
+     * Only to be used by Train, which takes care of its own bookkeeping.
+     *
+     * @param tail the wagon to link behind this wagon (can be null)
+     */
+    void linkTail(Wagon tail) {
+        this.nextWagon = tail;
+        if (tail != null) {
+            tail.previousWagon = this;
+        }
+    }
 
+    /**
+     * Unlinks the tail from this wagon without notification of the train.
+     * Only to be used by Train, which takes care of its own bookkeeping.
+     *
+     * @return the first wagon of the tail that has been unlinked, if any
+     */
+    Wagon unlinkTail() {
+        Wagon tail = this.nextWagon;
+        if (tail != null) {
+            tail.previousWagon = null;
+            this.nextWagon = null;
+        }
+        return tail;
+    }
 
     @Override
     public String toString() {
@@ -0,0 +1,192 @@
+package models;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * A WagonPool holds idle wagons, indexed by their number of seats or maximum weight,
+ * from which trains are assembled for a requested capacity with the fewest wagons.
+ *
+ * The fewest wagons that reach a capacity are found greedily: taking the largest wagons first
+ * minimizes the number of wagons, after which the last wagon is the smallest one that still completes the capacity,
+ * such that as little capacity as possible is wasted.
+ * The wagons are linked as a WagonSegment, which a train attaches without walking it again.
+ * Wagons in the pool shall not be shunted otherwise until they are taken from the pool.
+ */
+public class WagonPool {
+    private final TreeMap<Integer, ArrayDeque<Wagon>> passengerWagonsBySeats = new TreeMap<>();
+    private final TreeMap<Integer, ArrayDeque<Wagon>> freightWagonsByMaxWeight = new TreeMap<>();
+    private int size;
+    private long totalNumberOfSeats;
+    private long totalMaxWeight;
+
+    /**
+     * Adds an idle wagon to this pool
+     *
+     * @param wagon a wagon that is not part of any train or sequence
+     * @throws IllegalArgumentException if the wagon is not idle
+     */
+    public synchronized void add(Wagon wagon) {
+        if (wagon.train != null || wagon.hasNextWagon() || wagon.hasPreviousWagon()) {
+            throw new IllegalArgumentException(wagon + " is not idle");
+        }
+        if (wagon instanceof PassengerWagon passengerWagon) {
+            add(passengerWagonsBySeats, passengerWagon.getNumberOfSeats(), wagon);
+            totalNumberOfSeats += passengerWagon.getNumberOfSeats();
+        } else if (wagon instanceof FreightWagon freightWagon) {
+            add(freightWagonsByMaxWeight, freightWagon.getMaxWeight(), wagon);
+            totalMaxWeight += freightWagon.getMaxWeight();
+        } else {
+            throw new IllegalArgumentException(wagon + " is of an unknown type");
+        }
+        size++;
+    }
+
+    /**
+     * @return the number of wagons in this pool
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the total number of seats of the passenger wagons in this pool
+     */
+    public synchronized long getTotalNumberOfSeats() {
+        return totalNumberOfSeats;
+    }
+
+    /**
+     * @return the total maximum weight of the freight wagons in this pool
+     */
+    public synchronized long getTotalMaxWeight() {
+        return totalMaxWeight;
+    }
+
+    /**
+     * Takes the fewest passenger wagons from this pool that together have at least the given number of seats,
+     * linked as one sequence in order of decreasing number of seats
+     *
+     * @param numberOfSeats the requested number of seats
+     * @return the head wagon of the sequence
+     * (null if the pool has too few seats, or no seats are requested)
+     */
+    public synchronized Wagon takePassengerWagons(int numberOfSeats) {
+        if (numberOfSeats > totalNumberOfSeats) {
+            return null;
+        }
+        return link(take(passengerWagonsBySeats, numberOfSeats)).getHead();
+    }
+
+    /**
+     * Takes the fewest freight wagons from this pool that together have at least the given maximum weight,
+     * linked as one sequence in order of decreasing maximum weight
+     *
+     * @param maxWeight the requested maximum weight
+     * @return the head wagon of the sequence
+     * (null if the pool has too little maximum weight, or no weight is requested)
+     */
+    public synchronized Wagon takeFreightWagons(int maxWeight) {
+        if (maxWeight > totalMaxWeight) {
+            return null;
+        }
+        return link(take(freightWagonsByMaxWeight, maxWeight)).getHead();
+    }
+
+    /**
+     * Attaches the fewest passenger wagons from this pool that have at least the given number of seats
+     * to the rear of the train, as one sequence
+     *
+     * @param train         a passenger train or a train without wagons
+     * @param numberOfSeats the requested number of additional seats
+     * @return whether the wagons could be attached
+     * (no wagons are taken if the pool has too few seats or the train cannot pull the wagons)
+     */
+    public synchronized boolean attachPassengerWagons(Train train, int numberOfSeats) {
+        if (train.isFreightTrain() || numberOfSeats > totalNumberOfSeats) {
+            return false;
+        }
+        return attach(train, take(passengerWagonsBySeats, numberOfSeats));
+    }
+
+    /**
+     * Attaches the fewest freight wagons from this pool that have at least the given maximum weight
+     * to the rear of the train, as one sequence
+     *
+     * @param train     a freight train or a train without wagons
+     * @param maxWeight the requested additional maximum weight
+     * @return whether the wagons could be attached
+     * (no wagons are taken if the pool has too little maximum weight or the train cannot pull the wagons)
+     */
+    public synchronized boolean attachFreightWagons(Train train, int maxWeight) {
+        if (train.isPassengerTrain() || maxWeight > totalMaxWeight) {
+            return false;
+        }
+        return attach(train, take(freightWagonsByMaxWeight, maxWeight));
+    }
+
+    private boolean attach(Train train, List<Wagon> wagons) {
+        if (wagons.isEmpty()) {
+            return true;
+        }
+        int headroom = train.getEngine().getMaxWagons() - train.getNumberOfWagons();
+        if (wagons.size() > headroom || !train.attachToRear(link(wagons))) {
+            // the wagons are returned as idle wagons
+            for (Wagon wagon : wagons) {
+                wagon.removeFromSequence();
+                add(wagon);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Takes the fewest wagons from the index of which the capacities sum up to at least the requested capacity,
+     * given that the index holds sufficient capacity
+     */
+    private List<Wagon> take(TreeMap<Integer, ArrayDeque<Wagon>> wagonsByCapacity, int capacity) {
+        List<Wagon> wagons = new ArrayList<>();
+        int remaining = capacity;
+        while (remaining > 0) {
+            int largest = wagonsByCapacity.lastKey();
+            // the smallest wagon that completes the capacity, or else the largest wagon
+            Integer taken = largest >= remaining ? wagonsByCapacity.ceilingKey(remaining) : largest;
+            wagons.add(remove(wagonsByCapacity, taken));
+            remaining -= taken;
+        }
+        return wagons;
+    }
+
+    private void add(TreeMap<Integer, ArrayDeque<Wagon>> wagonsByCapacity, int capacity, Wagon wagon) {
+        wagonsByCapacity.computeIfAbsent(capacity, key -> new ArrayDeque<>()).add(wagon);
+    }
+
+    private Wagon remove(TreeMap<Integer, ArrayDeque<Wagon>> wagonsByCapacity, int capacity) {
+        ArrayDeque<Wagon> wagons = wagonsByCapacity.get(capacity);
+        Wagon wagon = wagons.poll();
+        if (wagons.isEmpty()) {
+            wagonsByCapacity.remove(capacity);
+        }
+        size--;
+        if (wagon instanceof PassengerWagon passengerWagon) {
+            totalNumberOfSeats -= passengerWagon.getNumberOfSeats();
+        } else {
+            totalMaxWeight -= ((FreightWagon) wagon).getMaxWeight();
+        }
+        return wagon;
+    }
+
+    /**
+     * Links the wagons into one segment, in the given order
+     */
+    private static WagonSegment link(List<Wagon> wagons) {
+        WagonSegment segment = new WagonSegment();
+        for (Wagon wagon : wagons) {
+            segment.append(wagon);
+        }
+        return segment;
+    }
+}
@@ -0,0 +1,124 @@
+package models;
+
+/**
+ * A WagonSegment is a loose sequence of wagons, which is not part of any train,
+ * that knows its head and tail wagon, its length and its capacity.
+ * A train attaches a segment without walking the sequence to count its wagons,
+ * and a segment is extended at its tail in constant time.
+ *
+ * Once attached to a train, the segment is empty. Its wagons shall not be shunted otherwise in the meantime.
+ */
+public final class WagonSegment {
+    private Wagon head;
+    private Wagon tail;
+    private int length;
+    private int totalNumberOfSeats;
+    private int totalMaxWeight;
+
+    /**
+     * Creates an empty segment
+     */
+    public WagonSegment() {
+    }
+
+    /**
+     * Detaches the sequence of wagons headed by the given wagon from its predecessors or from its train, if any,
+     * and creates a segment of it
+     *
+     * @param head the head wagon of the sequence
+     * @return the segment of the detached sequence
+     */
+    public static WagonSegment detach(Wagon head) {
+        Train.detachSequence(head);
+        WagonSegment segment = new WagonSegment();
+        segment.head = head;
+        for (Wagon wagon = head; wagon != null; wagon = wagon.getNextWagon()) {
+            segment.count(wagon);
+            segment.tail = wagon;
+        }
+        return segment;
+    }
+
+    /**
+     * Appends a single loose wagon at the tail of this segment
+     *
+     * @param wagon the wagon to append
+     * @return this segment
+     * @throws IllegalArgumentException if the wagon is part of this segment or of a train,
+     *                                  or is already connected to other wagons
+     */
+    public WagonSegment append(Wagon wagon) {
+        if (wagon == tail) {
+            throw new IllegalArgumentException(wagon + " is already the tail of this segment");
+        }
+        if (wagon.train != null) {
+            throw new IllegalArgumentException(wagon + " is part of a train");
+        }
+        if (wagon.hasNextWagon()) {
+            throw new IllegalArgumentException(wagon + " is already pulling " + wagon.getNextWagon());
+        }
+        if (wagon.hasPreviousWagon()) {
+            throw new IllegalArgumentException(wagon.getPreviousWagon() + " is already pulling " + wagon);
+        }
+        if (tail == null) {
+            head = wagon;
+        } else {
+            tail.attachTail(wagon);
+        }
+        tail = wagon;
+        count(wagon);
+        return this;
+    }
+
+    public Wagon getHead() {
+        return head;
+    }
+
+    public Wagon getTail() {
+        return tail;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return head == null;
+    }
+
+    /**
+     * @return the total number of seats of the passenger wagons in this segment
+     */
+    public int getTotalNumberOfSeats() {
+        return totalNumberOfSeats;
+    }
+
+    /**
+     * @return the total maximum weight of the freight wagons in this segment
+     */
+    public int getTotalMaxWeight() {
+        return totalMaxWeight;
+    }
+
+    /**
+     * Empties this segment, after its wagons have become part of a train
+     */
+    void clear() {
+        head = tail = null;
+        length = totalNumberOfSeats = totalMaxWeight = 0;
+    }
+
+    private void count(Wagon wagon) {
+        length++;
+        if (wagon instanceof PassengerWagon passengerWagon) {
+            totalNumberOfSeats += passengerWagon.getNumberOfSeats();
+        } else if (wagon instanceof FreightWagon freightWagon) {
+            totalMaxWeight += freightWagon.getMaxWeight();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return head == null ? "Empty segment" : "Segment of " + length + " wagons from " + head + " to " + tail;
+    }
+}
@@ -0,0 +1,95 @@
+package models;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * A WagonSpliterator traverses a range of positions of a train, following the links between its wagons.
+ * An indexed train is split at the middle position of the range, of which the wagon is found in logarithmic time.
+ * A train without an index is split by copying a batch of wagons from the front of the range into an array,
+ * with batches that grow by a fixed unit, like the spliterator of a LinkedList.
+ */
+class WagonSpliterator implements Spliterator<Wagon> {
+    private static final int BATCH_UNIT = 1 << 10;
+    private static final int MAX_BATCH = 1 << 25;
+    private static final int CHARACTERISTICS = ORDERED | SIZED | SUBSIZED | NONNULL;
+
+    private final Train train;
+    // the next wagon to traverse, and its position in the train
+    private Wagon next;
+    private int position;
+    private int remaining;
+    private int batch;
+
+    WagonSpliterator(Train train, Wagon next, int position, int remaining) {
+        this.train = train;
+        this.next = next;
+        this.position = position;
+        this.remaining = remaining;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Wagon> action) {
+        if (remaining == 0) {
+            return false;
+        }
+        Wagon wagon = next;
+        next = wagon.getNextWagon();
+        position++;
+        remaining--;
+        action.accept(wagon);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Wagon> action) {
+        Wagon wagon = next;
+        for (int i = remaining; i > 0; i--) {
+            action.accept(wagon);
+            wagon = wagon.getNextWagon();
+        }
+        next = wagon;
+        position += remaining;
+        remaining = 0;
+    }
+
+    @Override
+    public Spliterator<Wagon> trySplit() {
+        if (remaining < 2) {
+            return null;
+        }
+        int half = remaining / 2;
+        Wagon middle = train.findIndexedWagon(position + half);
+        if (middle != null) {
+            Spliterator<Wagon> prefix = new WagonSpliterator(train, next, position, half);
+            next = middle;
+            position += half;
+            remaining -= half;
+            return prefix;
+        }
+
+        int size = Math.min(remaining, Math.min(batch + BATCH_UNIT, MAX_BATCH));
+        Object[] wagons = new Object[size];
+        Wagon wagon = next;
+        for (int i = 0; i < size; i++) {
+            wagons[i] = wagon;
+            wagon = wagon.getNextWagon();
+        }
+        next = wagon;
+        position += size;
+        remaining -= size;
+        batch = size;
+        return Spliterators.spliterator(wagons, 0, size, ORDERED | NONNULL);
+    }
+
+    @Override
+    public long estimateSize() {
+        return remaining;
+    }
+
+    @Override
+    public int characteristics() {
+        return CHARACTERISTICS;
+    }
+}
@@ -0,0 +1,303 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A WagonStore holds many wagons in primitive int arrays (a struct of arrays)
+ * instead of one object per wagon, which keeps huge fleets out of reach of the garbage collector.
+ * A wagon is addressed by its int handle, i.e. its index into the arrays,
+ * and the doubly linked sequences of wagons are maintained via the next and previous arrays.
+ * Wagon ids are expected to be unique within a store.
+ *
+ * @see StoredTrain for a train of which the wagons live in a WagonStore
+ */
+public class WagonStore {
+    /**
+     * The handle that represents no wagon at all, like null does for Wagon references
+     */
+    public static final int NONE = -1;
+
+    static final int PASSENGER = 1;
+    static final int FREIGHT = 2;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] nextWagons = new int[INITIAL_CAPACITY];
+    private int[] previousWagons = new int[INITIAL_CAPACITY];
+    private int[] types = new int[INITIAL_CAPACITY];
+    private int[] numbersOfSeats = new int[INITIAL_CAPACITY];
+    private int[] maxWeights = new int[INITIAL_CAPACITY];
+    // the number of the train that each wagon is part of, if any; maintained by StoredTrain
+    int[] trainNumbers = new int[INITIAL_CAPACITY];
+    private int size;
+
+    private final IntIntMap wagonsById = new IntIntMap();
+    private final List<StoredTrain> trains = new ArrayList<>();
+
+    /**
+     * @return the number of wagons in this store
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds a new passenger wagon to this store
+     *
+     * @return the handle of the new wagon
+     */
+    public int newPassengerWagon(int wagonId, int numberOfSeats) {
+        int wagon = newWagon(wagonId, PASSENGER);
+        numbersOfSeats[wagon] = numberOfSeats;
+        return wagon;
+    }
+
+    /**
+     * Adds a new freight wagon to this store
+     *
+     * @return the handle of the new wagon
+     */
+    public int newFreightWagon(int wagonId, int maxWeight) {
+        int wagon = newWagon(wagonId, FREIGHT);
+        maxWeights[wagon] = maxWeight;
+        return wagon;
+    }
+
+    private int newWagon(int wagonId, int type) {
+        if (size == ids.length) {
+            grow(2 * size);
+        }
+        int wagon = size++;
+        ids[wagon] = wagonId;
+        types[wagon] = type;
+        nextWagons[wagon] = NONE;
+        previousWagons[wagon] = NONE;
+        trainNumbers[wagon] = NONE;
+        wagonsById.put(wagonId, wagon);
+        return wagon;
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        nextWagons = Arrays.copyOf(nextWagons, capacity);
+        previousWagons = Arrays.copyOf(previousWagons, capacity);
+        types = Arrays.copyOf(types, capacity);
+        numbersOfSeats = Arrays.copyOf(numbersOfSeats, capacity);
+        maxWeights = Arrays.copyOf(maxWeights, capacity);
+        trainNumbers = Arrays.copyOf(trainNumbers, capacity);
+    }
+
+    /**
+     * @param wagonId the id of the wagon to find
+     * @return the handle of the wagon with the given id, or NONE if there is no such wagon in this store
+     */
+    public int findWagonById(int wagonId) {
+        return wagonsById.get(wagonId);
+    }
+
+    public int getId(int wagon) {
+        return ids[wagon];
+    }
+
+    public boolean isPassengerWagon(int wagon) {
+        return types[wagon] == PASSENGER;
+    }
+
+    public boolean isFreightWagon(int wagon) {
+        return types[wagon] == FREIGHT;
+    }
+
+    /**
+     * @return the number of seats of a passenger wagon (0 for a freight wagon)
+     */
+    public int getNumberOfSeats(int wagon) {
+        return numbersOfSeats[wagon];
+    }
+
+    /**
+     * @return the maximum weight of a freight wagon (0 for a passenger wagon)
+     */
+    public int getMaxWeight(int wagon) {
+        return maxWeights[wagon];
+    }
+
+    int getType(int wagon) {
+        return types[wagon];
+    }
+
+    public int getNextWagon(int wagon) {
+        return nextWagons[wagon];
+    }
+
+    public int getPreviousWagon(int wagon) {
+        return previousWagons[wagon];
+    }
+
+    public boolean hasNextWagon(int wagon) {
+        return nextWagons[wagon] != NONE;
+    }
+
+    public boolean hasPreviousWagon(int wagon) {
+        return previousWagons[wagon] != NONE;
+    }
+
+    /**
+     * @return the last wagon attached to the given wagon, or the wagon itself if none is attached
+     * @see Wagon#getLastWagonAttached()
+     */
+    public int getLastWagonAttached(int wagon) {
+        while (nextWagons[wagon] != NONE) {
+            wagon = nextWagons[wagon];
+        }
+        return wagon;
+    }
+
+    /**
+     * @return the length of the sequence of wagons towards the end of its tail, including the wagon itself
+     * @see Wagon#getSequenceLength()
+     */
+    public int getSequenceLength(int wagon) {
+        int length = 1;
+        while (nextWagons[wagon] != NONE) {
+            wagon = nextWagons[wagon];
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Attaches the tail wagon and its connected successors behind the given wagon
+     *
+     * @throws IllegalStateException if the wagon already has a wagon appended to it,
+     *                               or if tail is already attached to a wagon in front of it.
+     * @see Wagon#attachTail(Wagon)
+     */
+    public void attachTail(int wagon, int tail) {
+        if (tail == NONE) {
+            return;
+        }
+        if (hasNextWagon(wagon)) {
+            throw new IllegalStateException(toString(wagon) + " has already been attached to " + toString(nextWagons[wagon]));
+        }
+        if (hasPreviousWagon(tail)) {
+            throw new IllegalStateException(toString(previousWagons[tail]) + " is already pulling " + toString(tail));
+        }
+        if (trainNumbers[tail] != NONE) {
+            // tail is the first wagon of another train, which loses its complete sequence
+            trainOf(tail).wagonsDetached(NONE, tail);
+        }
+        linkTail(wagon, tail);
+        if (trainNumbers[wagon] != NONE) {
+            trainOf(wagon).wagonsAttached(tail);
+        }
+    }
+
+    /**
+     * Detaches the tail from the given wagon
+     *
+     * @return the first wagon of the tail that has been detached, or NONE
+     * @see Wagon#detachTail()
+     */
+    public int detachTail(int wagon) {
+        int tail = unlinkTail(wagon);
+        if (tail != NONE && trainNumbers[wagon] != NONE) {
+            trainOf(wagon).wagonsDetached(wagon, tail);
+        }
+        return tail;
+    }
+
+    /**
+     * Detaches the given wagon from the wagon in front of it
+     *
+     * @return the former previous wagon that has been detached from, or NONE
+     * @see Wagon#detachFront()
+     */
+    public int detachFront(int wagon) {
+        int front = previousWagons[wagon];
+        if (front != NONE) {
+            unlinkTail(front);
+            if (trainNumbers[wagon] != NONE) {
+                trainOf(wagon).wagonsDetached(front, wagon);
+            }
+        }
+        return front;
+    }
+
+    /**
+     * Reverses the order in the sequence of wagons from the given wagon until its final successor
+     *
+     * @return the new start wagon of the reversed sequence
+     * @see Wagon#reverseSequence()
+     */
+    public int reverseSequence(int wagon) {
+        int originalHead = previousWagons[wagon];
+        int current = wagon;
+        int previous = NONE;
+
+        while (current != NONE) {
+            int next = nextWagons[current];
+            nextWagons[current] = previous;
+            previousWagons[current] = next;
+            previous = current;
+            current = next;
+        }
+
+        if (originalHead != NONE) {
+            previousWagons[previous] = originalHead;
+            nextWagons[originalHead] = previous;
+        }
+
+        if (trainNumbers[wagon] != NONE) {
+            trainOf(wagon).sequenceReversed(wagon, previous);
+        }
+        return previous;
+    }
+
+    public String toString(int wagon) {
+        return "[Wagon-" + ids[wagon] + "]";
+    }
+
+    /**
+     * Links the tail behind the wagon without validation or notification of the train
+     */
+    void linkTail(int wagon, int tail) {
+        nextWagons[wagon] = tail;
+        if (tail != NONE) {
+            previousWagons[tail] = wagon;
+        }
+    }
+
+    /**
+     * Unlinks the tail from the wagon without notification of the train
+     *
+     * @return the first wagon of the tail that has been unlinked, or NONE
+     */
+    int unlinkTail(int wagon) {
+        int tail = nextWagons[wagon];
+        if (tail != NONE) {
+            previousWagons[tail] = NONE;
+            nextWagons[wagon] = NONE;
+        }
+        return tail;
+    }
+
+    /**
+     * @return the train that the wagon is part of, or null
+     */
+    StoredTrain trainOf(int wagon) {
+        return trainNumbers[wagon] == NONE ? null : trains.get(trainNumbers[wagon]);
+    }
+
+    /**
+     * Registers a new train of this store
+     *
+     * @return the number of the train within this store
+     */
+    int addTrain(StoredTrain train) {
+        trains.add(train);
+        return trains.size() - 1;
+    }
+}
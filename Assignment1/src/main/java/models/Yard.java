@@ -0,0 +1,453 @@
+package models;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A Yard is a collection of Trains that are shunted together.
+ * The yard keeps an index of which train holds which wagon,
+ * such that wagons can be located by their id without scanning all trains,
+ * a registry of the routes of its trains with their capacity, and an index of the headroom of its trains.
+ *
+ * The shunting operations of the yard are thread-safe: every train has its own lock,
+ * and operations that involve multiple trains acquire their locks in a fixed global order,
+ * such that concurrent operations cannot deadlock.
+ * Trains and wagons of a yard shall then only be shunted via the yard.
+ */
+public class Yard {
+    private static final int INDEX_STRIPES = 64;
+
+    /**
+     * The lock of a train in this yard, with its position in the global lock order
+     */
+    private static class Berth {
+        final ReentrantLock lock = new ReentrantLock();
+        final long order;
+        // set when the train is removed from the yard, guarded by the lock
+        boolean retired;
+
+        Berth(long order) {
+            this.order = order;
+        }
+    }
+
+    /**
+     * The changes during the shunting operation of the current thread that are only processed when it completes.
+     * Wagons that have been removed from a train are only removed from the index if they have not been added
+     * to another train by then, such that a wagon that is moved does not disappear from the index in the meantime.
+     * The routes and capacities of the trains of which wagons have been added or removed are updated once per train.
+     */
+    private static class PendingChanges {
+        int depth;
+        int size;
+        int[] wagonIds = new int[16];
+        Train[] trains = new Train[16];
+        int numberOfChangedTrains;
+        Train[] changedTrains = new Train[4];
+
+        void removed(int wagonId, Train train) {
+            if (size == wagonIds.length) {
+                wagonIds = Arrays.copyOf(wagonIds, 2 * size);
+                trains = Arrays.copyOf(trains, 2 * size);
+            }
+            wagonIds[size] = wagonId;
+            trains[size++] = train;
+        }
+
+        void changed(Train train) {
+            // an operation involves few trains, so a linear search is cheap
+            for (int i = numberOfChangedTrains - 1; i >= 0; i--) {
+                if (changedTrains[i] == train) {
+                    return;
+                }
+            }
+            if (numberOfChangedTrains == changedTrains.length) {
+                changedTrains = Arrays.copyOf(changedTrains, 2 * numberOfChangedTrains);
+            }
+            changedTrains[numberOfChangedTrains++] = train;
+        }
+    }
+
+    private final ThreadLocal<PendingChanges> pendingChanges = ThreadLocal.withInitial(PendingChanges::new);
+    private final List<Train> trains = new CopyOnWriteArrayList<>();
+    private final Map<Train, Berth> berths = new ConcurrentHashMap<>();
+    private final AtomicLong nextOrder = new AtomicLong();
+    // the index from wagon id to train is striped by id, each stripe being guarded by its own monitor
+    private final IntMap<Train>[] trainsByWagonId;
+    private final RouteRegistry routes = new RouteRegistry();
+    private final CapacityIndex capacities = new CapacityIndex();
+
+    @SuppressWarnings("unchecked")
+    public Yard() {
+        trainsByWagonId = (IntMap<Train>[]) new IntMap<?>[INDEX_STRIPES];
+        for (int i = 0; i < INDEX_STRIPES; i++) {
+            trainsByWagonId[i] = new IntMap<>();
+        }
+    }
+
+    /**
+     * @return an unmodifiable view on the trains in this yard
+     */
+    public List<Train> getTrains() {
+        return Collections.unmodifiableList(trains);
+    }
+
+    /**
+     * @return the registry of the routes of the trains in this yard
+     */
+    public RouteRegistry getRoutes() {
+        return routes;
+    }
+
+    /**
+     * @return the index of the headroom of the trains in this yard
+     */
+    public CapacityIndex getCapacities() {
+        return capacities;
+    }
+
+    /**
+     * Adds the given train, including all its wagons, to this yard
+     *
+     * @param train the train to be added
+     * @throws IllegalStateException if the train is already part of a yard
+     */
+    public void addTrain(Train train) {
+        synchronized (train) {
+            if (train.yard != null) {
+                throw new IllegalStateException(train.getEngine() + " is already part of a yard");
+            }
+            train.yard = this;
+        }
+        Berth berth = new Berth(nextOrder.getAndIncrement());
+        // the berth is locked before it is published, such that no operation sees the train half added
+        berth.lock.lock();
+        berths.put(train, berth);
+        try {
+            for (Wagon wagon = train.getFirstWagon(); wagon != null; wagon = wagon.getNextWagon()) {
+                addToIndex(wagon.getId(), train);
+            }
+            routes.trainAdded(train);
+            capacities.add(train, berth.order);
+            trains.add(train);
+        } finally {
+            berth.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the given train, including all its wagons, from this yard
+     *
+     * @param train the train to be removed
+     * @return whether the train was part of this yard
+     */
+    public boolean removeTrain(Train train) {
+        Berth berth = berths.get(train);
+        if (berth == null) {
+            return false;
+        }
+        berth.lock.lock();
+        try {
+            if (berth.retired) {
+                // removed by another thread while this one was waiting for the lock
+                return false;
+            }
+            berth.retired = true;
+            capacities.remove(train);
+            routes.trainRemoved(train);
+            for (Wagon wagon = train.getFirstWagon(); wagon != null; wagon = wagon.getNextWagon()) {
+                removeFromIndex(wagon.getId(), train);
+            }
+            trains.remove(train);
+            train.yard = null;
+            berths.remove(train);
+            return true;
+        } finally {
+            berth.lock.unlock();
+        }
+    }
+
+    /**
+     * Finds the train that holds the wagon with the given wagonId
+     *
+     * @param wagonId the id of the wagon
+     * @return the train holding the wagon
+     * (return null if no train in this yard holds a wagon with the given wagonId)
+     */
+    public Train findTrainByWagonId(int wagonId) {
+        IntMap<Train> stripe = stripeOf(wagonId);
+        synchronized (stripe) {
+            return stripe.get(wagonId);
+        }
+    }
+
+    /**
+     * Finds the wagon with the given wagonId on any train in this yard
+     *
+     * @param wagonId the id of the wagon to find
+     * @return the wagon found
+     * (return null if no wagon was found with the given wagonId)
+     */
+    public Wagon findWagonById(int wagonId) {
+        while (true) {
+            Train train = findTrainByWagonId(wagonId);
+            if (train == null) {
+                return null;
+            }
+            Wagon wagon = withLocks(train, null, () -> train.findWagonById(wagonId));
+            if (wagon != null) {
+                return wagon;
+            }
+            // the wagon has moved to another train in the meantime
+        }
+    }
+
+    /**
+     * Tries to remove the wagon with the given wagonId from whichever train in this yard holds it
+     * and attach it at the rear of the given toTrain
+     *
+     * @param wagonId the id of the wagon to be moved
+     * @param toTrain the train to which the wagon shall be attached
+     * @return whether the move could be completed successfully
+     * @see Train#moveOneWagon(int, Train)
+     */
+    public boolean moveOneWagon(int wagonId, Train toTrain) {
+        while (true) {
+            Train fromTrain = findTrainByWagonId(wagonId);
+            if (fromTrain == null || fromTrain == toTrain) {
+                return false;
+            }
+            Boolean moved = withLocks(fromTrain, toTrain, () ->
+                    fromTrain.findWagonById(wagonId) == null ? null : fromTrain.moveOneWagon(wagonId, toTrain));
+            if (moved != null) {
+                return moved;
+            }
+            // the wagon has moved to another train in the meantime
+        }
+    }
+
+    /**
+     * Tries to remove the wagon with the given wagonId from fromTrain and attach it at the rear of toTrain
+     *
+     * @see Train#moveOneWagon(int, Train)
+     */
+    public boolean moveOneWagon(Train fromTrain, int wagonId, Train toTrain) {
+        return withLocks(fromTrain, toTrain, () -> fromTrain.moveOneWagon(wagonId, toTrain));
+    }
+
+    /**
+     * Tries to split fromTrain at the given position and move the split sequence to the rear of toTrain
+     *
+     * @see Train#splitAtPosition(int, Train)
+     */
+    public boolean splitAtPosition(Train fromTrain, int position, Train toTrain) {
+        return withLocks(fromTrain, toTrain, () -> fromTrain.splitAtPosition(position, toTrain));
+    }
+
+    /**
+     * Tries to attach the sequence of wagons headed by the given wagon to the rear of the train,
+     * taking it from any train in this yard that may hold it
+     *
+     * @see Train#attachToRear(Wagon)
+     */
+    public boolean attachToRear(Train train, Wagon wagon) {
+        return withWagonLocks(train, wagon, () -> train.attachToRear(wagon));
+    }
+
+    /**
+     * Tries to insert the sequence of wagons headed by the given wagon at the front of the train,
+     * taking it from any train in this yard that may hold it
+     *
+     * @see Train#insertAtFront(Wagon)
+     */
+    public boolean insertAtFront(Train train, Wagon wagon) {
+        return withWagonLocks(train, wagon, () -> train.insertAtFront(wagon));
+    }
+
+    /**
+     * Tries to insert the sequence of wagons headed by the given wagon at the given position of the train,
+     * taking it from any train in this yard that may hold it
+     *
+     * @see Train#insertAtPosition(int, Wagon)
+     */
+    public boolean insertAtPosition(Train train, int position, Wagon wagon) {
+        return withWagonLocks(train, wagon, () -> train.insertAtPosition(position, wagon));
+    }
+
+    /**
+     * Reverses the sequence of wagons in the train
+     *
+     * @see Train#reverse()
+     */
+    public void reverse(Train train) {
+        withLocks(train, null, () -> {
+            train.reverse();
+            return null;
+        });
+    }
+
+    /**
+     * Executes the shunting plan while holding the locks of all trains involved
+     *
+     * @see ShuntingPlan#execute()
+     */
+    public boolean execute(ShuntingPlan plan) {
+        while (true) {
+            Train[] involved = plan.getTrainsInvolved();
+            Boolean executed = withLocks(involved, () ->
+                    Arrays.equals(involved, plan.getTrainsInvolved()) ? plan.execute() : null);
+            if (executed != null) {
+                return executed;
+            }
+            // a wagon of the plan has moved to another train in the meantime
+        }
+    }
+
+    /**
+     * Performs the action on the train while holding its lock
+     *
+     * @param train  the train
+     * @param action the action to perform
+     * @return the result of the action
+     */
+    public <T> T withLock(Train train, Supplier<T> action) {
+        return withLocks(train, null, action);
+    }
+
+    /**
+     * Performs an action on the train that also involves the sequence headed by the given wagon,
+     * while holding the locks of the train and of the train that holds the wagon, if any
+     */
+    private boolean withWagonLocks(Train train, Wagon wagon, Supplier<Boolean> action) {
+        while (true) {
+            Train wagonTrain = wagon.train;
+            // a wagon without a train may be in the middle of a move between trains,
+            // which then still are indexed as holding it and are locked as well to await the move
+            Train lockTrain = wagonTrain != null ? wagonTrain : findTrainByWagonId(wagon.getId());
+            Boolean result = withLocks(train, lockTrain, () -> wagon.train == wagonTrain ? action.get() : null);
+            if (result != null) {
+                return result;
+            }
+            // the wagon has moved to another train in the meantime
+        }
+    }
+
+    private <T> T withLocks(Train first, Train second, Supplier<T> action) {
+        return withLocks(second == null || second == first ? new Train[]{first} : new Train[]{first, second}, action);
+    }
+
+    /**
+     * Performs the action while holding the locks of all given trains,
+     * which are acquired in the global lock order to prevent deadlocks
+     *
+     * @throws IllegalArgumentException if any of the trains is not part of this yard,
+     *                                  which includes a train that holds a wagon involved in the action,
+     *                                  or if it is removed from this yard while awaiting its lock
+     */
+    private <T> T withLocks(Train[] involved, Supplier<T> action) {
+        Berth[] locks = new Berth[involved.length];
+        int count = 0;
+        for (Train train : involved) {
+            Berth berth = berths.get(train);
+            if (berth == null) {
+                throw new IllegalArgumentException(train.getEngine() + " is not part of this yard");
+            }
+            locks[count++] = berth;
+        }
+        Arrays.sort(locks, 0, count, Comparator.comparingLong(berth -> berth.order));
+
+        for (int i = 0; i < count; i++) {
+            locks[i].lock.lock();
+        }
+        for (int i = 0; i < count; i++) {
+            if (locks[i].retired) {
+                for (int j = count - 1; j >= 0; j--) {
+                    locks[j].lock.unlock();
+                }
+                throw new IllegalArgumentException("A train has been removed from this yard");
+            }
+        }
+        PendingChanges changes = pendingChanges.get();
+        changes.depth++;
+        try {
+            return action.get();
+        } finally {
+            if (--changes.depth == 0) {
+                for (int i = 0; i < changes.size; i++) {
+                    removeFromIndex(changes.wagonIds[i], changes.trains[i]);
+                    changes.trains[i] = null;
+                }
+                changes.size = 0;
+                for (int i = 0; i < changes.numberOfChangedTrains; i++) {
+                    routes.refresh(changes.changedTrains[i]);
+                    capacities.refresh(changes.changedTrains[i]);
+                    changes.changedTrains[i] = null;
+                }
+                changes.numberOfChangedTrains = 0;
+            }
+            for (int i = count - 1; i >= 0; i--) {
+                locks[i].lock.unlock();
+            }
+        }
+    }
+
+    private IntMap<Train> stripeOf(int wagonId) {
+        return trainsByWagonId[wagonId & (INDEX_STRIPES - 1)];
+    }
+
+    /**
+     * Notification by a train of this yard that a wagon has become part of it
+     */
+    void wagonAdded(Train train, Wagon wagon) {
+        addToIndex(wagon.getId(), train);
+    }
+
+    /**
+     * Notification by a train of this yard that a wagon is no longer part of it
+     */
+    void wagonRemoved(Train train, Wagon wagon) {
+        PendingChanges changes = pendingChanges.get();
+        if (changes.depth > 0) {
+            changes.removed(wagon.getId(), train);
+        } else {
+            removeFromIndex(wagon.getId(), train);
+        }
+    }
+
+    /**
+     * Notification by a train of this yard that wagons have been added to it or removed from it
+     */
+    void compositionChanged(Train train) {
+        PendingChanges changes = pendingChanges.get();
+        if (changes.depth > 0) {
+            changes.changed(train);
+        } else {
+            // a wagon-level change outside of a shunting operation of the yard
+            routes.refresh(train);
+            capacities.refresh(train);
+        }
+    }
+
+    private void addToIndex(int wagonId, Train train) {
+        IntMap<Train> stripe = stripeOf(wagonId);
+        synchronized (stripe) {
+            stripe.put(wagonId, train);
+        }
+    }
+
+    private void removeFromIndex(int wagonId, Train train) {
+        IntMap<Train> stripe = stripeOf(wagonId);
+        synchronized (stripe) {
+            // no removal if the wagon has been added to another train already
+            stripe.remove(wagonId, train);
+        }
+    }
+}
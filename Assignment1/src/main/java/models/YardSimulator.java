@@ -0,0 +1,226 @@
+package models;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A YardSimulator generates a seeded random workload of shunting operations on a yard of trains
+ * and measures the throughput, the latency of the operations and the growth of the heap.
+ *
+ * Every dispatcher runs a discrete-event simulation: shunting requests arrive at the trains of its share
+ * of the yard after exponentially distributed intervals, and are executed against the yard in the order
+ * of their simulated arrival time. Dispatchers run concurrently, optionally on virtual threads if the JVM supports them.
+ * With a single dispatcher, the resulting yard only depends on the seed.
+ */
+public class YardSimulator {
+    private static final String[] CITIES = {"Amsterdam", "Berlin", "Brussels", "London", "Paris", "Vienna", "Zürich"};
+
+    private enum Operation {MOVE, SPLIT, INSERT, REVERSE, FIND}
+
+    /**
+     * A shunting request that arrives at a train at a simulated time
+     */
+    private record Event(double time, int train, Operation operation) {
+    }
+
+    /**
+     * The results of a simulation run
+     */
+    public record Report(long operations, long succeeded, long elapsedNanos, long[] latencyPercentiles,
+                         long heapGrowth, boolean virtualThreads) {
+        /**
+         * The percentiles that are reported, as fractions
+         */
+        public static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999, 1.0};
+        private static final String[] LABELS = {"p50", "p90", "p99", "p99.9", "max"};
+
+        public double getOperationsPerSecond() {
+            return operations * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(String.format("%d operations (%d succeeded) in %.2fs: %.0f ops/s on %s threads%n",
+                    operations, succeeded, elapsedNanos / 1e9, getOperationsPerSecond(), virtualThreads ? "virtual" : "platform"));
+            sb.append("latency:");
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                sb.append(String.format(" %s=%.1fus", LABELS[i], latencyPercentiles[i] / 1e3));
+            }
+            return sb.append(String.format("%nheap growth: %.1f MB", heapGrowth / 1e6)).toString();
+        }
+    }
+
+    private final long seed;
+    private final Yard yard = new Yard();
+    private final List<Train> trains = new ArrayList<>();
+    private final int numberOfWagons;
+
+    /**
+     * Creates a yard of trains with random routes, alternating passenger and freight trains
+     *
+     * @param seed           the seed of the workload
+     * @param numberOfTrains the number of trains in the yard
+     * @param wagonsPerTrain the initial number of wagons of each train
+     */
+    public YardSimulator(long seed, int numberOfTrains, int wagonsPerTrain) {
+        this.seed = seed;
+        this.numberOfWagons = numberOfTrains * wagonsPerTrain;
+        SplittableRandom random = new SplittableRandom(seed);
+        int wagonId = 0;
+        for (int t = 0; t < numberOfTrains; t++) {
+            Train train = new Train(new Locomotive(t, 2 * wagonsPerTrain + random.nextInt(wagonsPerTrain + 1)),
+                    CITIES[random.nextInt(CITIES.length)], CITIES[random.nextInt(CITIES.length)]);
+            WagonSegment wagons = new WagonSegment();
+            for (int w = 0; w < wagonsPerTrain; w++, wagonId++) {
+                wagons.append(t % 2 == 0
+                        ? new PassengerWagon(wagonId, 20 + random.nextInt(61))
+                        : new FreightWagon(wagonId, 1000 * (10 + random.nextInt(91))));
+            }
+            train.attachToRear(wagons);
+            yard.addTrain(train);
+            trains.add(train);
+        }
+    }
+
+    public Yard getYard() {
+        return yard;
+    }
+
+    /**
+     * Runs the given number of shunting operations, divided over the dispatchers
+     *
+     * @param numberOfOperations  the total number of operations
+     * @param numberOfDispatchers the number of dispatchers that shunt concurrently
+     * @param virtualThreads      whether the dispatchers shall run on virtual threads, if the JVM supports them
+     * @return the report of the run
+     * @throws IllegalArgumentException if there are more dispatchers than trains
+     */
+    public Report run(int numberOfOperations, int numberOfDispatchers, boolean virtualThreads) {
+        if (numberOfDispatchers < 1 || numberOfDispatchers > trains.size()) {
+            throw new IllegalArgumentException("Every dispatcher needs at least one train, but there are "
+                    + trains.size() + " trains for " + numberOfDispatchers + " dispatchers");
+        }
+        // the latencies are allocated before the heap is measured, such that they do not count as growth of the heap
+        long[][] latencies = new long[numberOfDispatchers][];
+        for (int d = 0; d < numberOfDispatchers; d++) {
+            latencies[d] = new long[numberOfOperations / numberOfDispatchers
+                    + (d < numberOfOperations % numberOfDispatchers ? 1 : 0)];
+        }
+        long[] succeeded = new long[numberOfDispatchers];
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+
+        ExecutorService executor = virtualThreads ? newVirtualThreadExecutor() : null;
+        boolean onVirtualThreads = executor != null;
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(numberOfDispatchers);
+        }
+        long started = System.nanoTime();
+        try {
+            List<Future<?>> dispatchers = new ArrayList<>();
+            for (int d = 0; d < numberOfDispatchers; d++) {
+                int dispatcher = d;
+                dispatchers.add(executor.submit(() ->
+                        succeeded[dispatcher] = dispatch(dispatcher, numberOfDispatchers, latencies[dispatcher])));
+            }
+            for (Future<?> dispatcher : dispatchers) {
+                dispatcher.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The simulation has been interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A dispatcher has failed", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        long elapsed = System.nanoTime() - started;
+
+        System.gc();
+        long heapGrowth = memory.getHeapMemoryUsage().getUsed() - heapBefore;
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        long[] percentiles = new long[Report.PERCENTILES.length];
+        for (int i = 0; i < percentiles.length && all.length > 0; i++) {
+            percentiles[i] = all[(int) Math.min(all.length - 1, Math.ceil(Report.PERCENTILES[i] * all.length) - 1)];
+        }
+        return new Report(all.length, Arrays.stream(succeeded).sum(), elapsed, percentiles, heapGrowth,
+                onVirtualThreads);
+    }
+
+    /**
+     * Simulates the arrival of shunting requests at the trains of one dispatcher and executes them in order
+     *
+     * @param dispatcher          the index of the dispatcher, which handles the trains with this index modulo the number of dispatchers
+     * @param numberOfDispatchers the number of dispatchers
+     * @param latencies           the latencies of the operations, one per operation to execute
+     * @return the number of operations that succeeded
+     */
+    private long dispatch(int dispatcher, int numberOfDispatchers, long[] latencies) {
+        SplittableRandom random = new SplittableRandom(seed + 31L * (dispatcher + 1));
+        PriorityQueue<Event> events = new PriorityQueue<>((a, b) -> Double.compare(a.time, b.time));
+        Operation[] operations = Operation.values();
+        for (int t = dispatcher; t < trains.size(); t += numberOfDispatchers) {
+            events.add(new Event(nextInterval(random), t, operations[random.nextInt(operations.length)]));
+        }
+        long succeeded = 0;
+        for (int i = 0; i < latencies.length && !events.isEmpty(); i++) {
+            Event event = events.poll();
+            long started = System.nanoTime();
+            if (execute(event, random)) {
+                succeeded++;
+            }
+            latencies[i] = System.nanoTime() - started;
+            events.add(new Event(event.time + nextInterval(random), event.train, operations[random.nextInt(operations.length)]));
+        }
+        return succeeded;
+    }
+
+    private boolean execute(Event event, SplittableRandom random) {
+        Train train = trains.get(event.train);
+        Train other = trains.get(random.nextInt(trains.size()));
+        int length = train.getNumberOfWagons();
+        return switch (event.operation) {
+            case MOVE -> yard.moveOneWagon(random.nextInt(numberOfWagons), train);
+            case SPLIT -> other != train && length > 0 && yard.splitAtPosition(train, random.nextInt(length), other);
+            case INSERT -> {
+                Wagon wagon = yard.findWagonById(random.nextInt(numberOfWagons));
+                yield wagon != null && wagon.train != train
+                        && yard.insertAtPosition(train, random.nextInt(length + 1), wagon);
+            }
+            case REVERSE -> {
+                yard.reverse(train);
+                yield true;
+            }
+            case FIND -> yard.findWagonById(random.nextInt(numberOfWagons)) != null;
+        };
+    }
+
+    /**
+     * @return an exponentially distributed interval between requests at a train, with mean 1
+     */
+    private static double nextInterval(SplittableRandom random) {
+        return -Math.log(1 - random.nextDouble());
+    }
+
+    /**
+     * @return an executor that starts a virtual thread per task, or null if the JVM does not support virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            // looked up reflectively, such that the simulator still compiles and runs on JVMs without virtual threads
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
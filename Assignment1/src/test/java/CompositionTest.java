@@ -0,0 +1,178 @@
+import models.*;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class CompositionTest {
+    Train passengerTrain, freightTrain;
+    Composition composition;
+
+    @BeforeEach
+    public void setup() {
+        Locale.setDefault(Locale.ENGLISH);
+        passengerTrain = new Train(new Locomotive(24531, 12), "Amsterdam", "Paris");
+        for (int id = 8001; id <= 8006; id++) {
+            passengerTrain.attachToRear(new PassengerWagon(id, 10 * (id - 8000)));
+        }
+        freightTrain = new Train(new Locomotive(63427, 50), "Amsterdam", "Berlin");
+        freightTrain.attachToRear(new FreightWagon(9001, 50000));
+        composition = Composition.of(passengerTrain);
+    }
+
+    @AfterEach
+    public void checkRepresentationInvariants() {
+        TrainTest.checkRepresentationInvariant(passengerTrain);
+        TrainTest.checkRepresentationInvariant(freightTrain);
+    }
+
+    private static String idsOf(Composition composition) {
+        StringBuilder ids = new StringBuilder();
+        for (Wagon wagon : composition) {
+            ids.append(wagon.getId()).append(' ');
+        }
+        return ids.toString().trim();
+    }
+
+    @Test
+    public void T01_CompositionShouldSnapshotTheSequence() {
+        assertEquals(6, composition.size());
+        assertEquals(210, composition.getTotalNumberOfSeats());
+        assertEquals(0, composition.getTotalMaxWeight());
+        assertEquals("8001 8002 8003 8004 8005 8006", idsOf(composition));
+        assertEquals(8003, composition.findWagonAtPosition(2).getId());
+        assertNull(composition.findWagonAtPosition(6));
+        assertNull(composition.findWagonAtPosition(-1));
+
+        passengerTrain.reverse();
+        assertEquals("8001 8002 8003 8004 8005 8006", idsOf(composition),
+                "a composition should not be affected by shunting its wagons");
+        assertTrue(Composition.empty().isEmpty());
+        assertEquals(0, Composition.of((Wagon) null).size());
+    }
+
+    @Test
+    public void T02_OperationsShouldKeepEarlierVersionsValid() {
+        Composition front = composition.front(2);
+        Composition rear = composition.rear(2);
+        Composition reversed = composition.reverse();
+        Composition swapped = rear.concat(front);
+        Composition shorter = swapped.removeAtPosition(1);
+        Composition extended = shorter.insertAtPosition(2, freightTrain.getFirstWagon());
+
+        assertEquals("8001 8002", idsOf(front));
+        assertEquals("8003 8004 8005 8006", idsOf(rear));
+        assertEquals("8006 8005 8004 8003 8002 8001", idsOf(reversed));
+        assertEquals("8003 8004 8005 8006 8001 8002", idsOf(swapped));
+        assertEquals("8003 8005 8006 8001 8002", idsOf(shorter));
+        assertEquals("8003 8005 9001 8006 8001 8002", idsOf(extended));
+        assertEquals(50000, extended.getTotalMaxWeight());
+        assertEquals(210 - 40, extended.getTotalNumberOfSeats());
+        assertEquals("8001 8002 8003 8004 8005 8006", idsOf(composition));
+
+        assertEquals("8001 8002 8003 8004", idsOf(reversed.rear(2).front(4).reverse().reverse().reverse()));
+        assertEquals(8005, reversed.findWagonAtPosition(1).getId());
+        assertThrows(IndexOutOfBoundsException.class, () -> composition.front(7));
+        assertThrows(IndexOutOfBoundsException.class, () -> composition.removeAtPosition(6));
+    }
+
+    @Test
+    public void T03_CompositionShouldBeAppliedToATrain() {
+        Train otherTrain = new Train(new Locomotive(29123, 7), "Amsterdam", "London");
+        Composition planned = composition.rear(3).reverse().concat(composition.front(2));
+        assertTrue(planned.applyTo(otherTrain));
+        assertEquals(5, otherTrain.getNumberOfWagons());
+        assertEquals(8006, otherTrain.getFirstWagon().getId());
+        assertEquals(8002, otherTrain.getLastWagonAttached().getId());
+        assertEquals(1, passengerTrain.getNumberOfWagons(), "the wagons should have been taken from their train");
+        assertEquals(8003, passengerTrain.getFirstWagon().getId());
+        TrainTest.checkRepresentationInvariant(otherTrain);
+
+        assertFalse(planned.attachToRear(freightTrain.getFirstWagon()).applyTo(otherTrain),
+                "should not apply a composition of mixed wagon types");
+        assertFalse(planned.concat(planned).applyTo(passengerTrain), "should not apply duplicate wagons");
+        assertEquals(5, otherTrain.getNumberOfWagons());
+    }
+
+    @Test
+    public void T04_RandomOperationsShouldMatchAList() {
+        Random random = new Random(8);
+        List<Wagon> wagons = new ArrayList<>();
+        for (Wagon wagon : composition) {
+            wagons.add(wagon);
+        }
+        List<Wagon> expected = new ArrayList<>(wagons);
+        Composition actual = composition;
+        for (int op = 0; op < 2000; op++) {
+            int from = random.nextInt(expected.size() + 1);
+            int to = from + random.nextInt(expected.size() - from + 1);
+            switch (random.nextInt(4)) {
+                case 0 -> {
+                    // reverse a range of positions
+                    Collections.reverse(expected.subList(from, to));
+                    actual = actual.front(from).concat(actual.rear(from).front(to - from).reverse()).concat(actual.rear(to));
+                }
+                case 1 -> {
+                    Wagon wagon = wagons.get(random.nextInt(wagons.size()));
+                    expected.add(from, wagon);
+                    actual = actual.insertAtPosition(from, wagon);
+                }
+                case 2 -> {
+                    if (from < expected.size()) {
+                        expected.remove(from);
+                        actual = actual.removeAtPosition(from);
+                    }
+                }
+                default -> {
+                    // move a range of positions to the front
+                    List<Wagon> range = new ArrayList<>(expected.subList(from, to));
+                    expected.subList(from, to).clear();
+                    expected.addAll(0, range);
+                    actual = actual.rear(from).front(to - from).concat(actual.front(from)).concat(actual.rear(to));
+                }
+            }
+            assertEquals(expected.size(), actual.size());
+            int position = random.nextInt(expected.size() + 1);
+            assertSame(position < expected.size() ? expected.get(position) : null, actual.findWagonAtPosition(position));
+        }
+        List<Wagon> iterated = new ArrayList<>();
+        actual.forEach(iterated::add);
+        assertEquals(expected, iterated);
+    }
+
+    @Test
+    public void T05_ApplyingShouldTakeWagonsFromLongTrainsInLinearTime() {
+        final int numberOfWagons = 40000;
+        Train longTrain = new Train(new Locomotive(1, numberOfWagons), "Amsterdam", "Paris");
+        WagonSegment segment = new WagonSegment();
+        for (int id = 1; id <= numberOfWagons; id++) {
+            segment.append(new PassengerWagon(id, 1));
+        }
+        longTrain.attachToRear(segment);
+        // every other wagon of the long train, in its order, behind the last wagon of another train
+        Composition planned = Composition.empty();
+        for (Wagon wagon = longTrain.getFirstWagon(); wagon != null; wagon = wagon.getNextWagon().getNextWagon()) {
+            planned = planned.attachToRear(wagon);
+        }
+        planned = planned.insertAtFront(passengerTrain.getLastWagonAttached());
+        Train otherTrain = new Train(new Locomotive(2, numberOfWagons), "Amsterdam", "London");
+
+        Composition applied = planned;
+        assertTimeout(Duration.ofSeconds(2), () -> assertTrue(applied.applyTo(otherTrain)));
+        assertEquals(numberOfWagons / 2 + 1, otherTrain.getNumberOfWagons());
+        assertEquals(idsOf(planned), idsOf(Composition.of(otherTrain)));
+        assertEquals(numberOfWagons / 2, longTrain.getNumberOfWagons());
+        assertEquals(2, longTrain.getFirstWagon().getId());
+        assertEquals(numberOfWagons, longTrain.getLastWagonAttached().getId());
+        assertEquals(5, passengerTrain.getNumberOfWagons());
+        TrainTest.checkRepresentationInvariant(otherTrain);
+        TrainTest.checkRepresentationInvariant(longTrain);
+    }
+}
@@ -0,0 +1,235 @@
+import models.*;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class FleetOptimizerTest {
+    List<Locomotive> locomotives;
+    List<Wagon> wagons;
+
+    @BeforeEach
+    public void setup() {
+        Locale.setDefault(Locale.ENGLISH);
+        locomotives = new ArrayList<>();
+        wagons = new ArrayList<>();
+    }
+
+    private void createFleet(Random random, int numberOfLocomotives, int numberOfWagons) {
+        for (int l = 0; l < numberOfLocomotives; l++) {
+            locomotives.add(new Locomotive(1000 + l, 1 + random.nextInt(6)));
+        }
+        for (int w = 0; w < numberOfWagons; w++) {
+            if (random.nextBoolean()) {
+                wagons.add(new PassengerWagon(8000 + w, 10 * (1 + random.nextInt(5))));
+            } else {
+                wagons.add(new FreightWagon(9000 + w, 1000 * (1 + random.nextInt(5))));
+            }
+        }
+    }
+
+    private static long valueOf(List<Train> trains, long seatValue, long weightValue) {
+        long value = 0;
+        for (Train train : trains) {
+            value += train.getTotalNumberOfSeats() * seatValue + train.getTotalMaxWeight() * weightValue;
+        }
+        return value;
+    }
+
+    /**
+     * @return the best value over all assignments of types to locomotives
+     */
+    private long bruteForceValue(long seatValue, long weightValue) {
+        List<Long> seats = new ArrayList<>();
+        List<Long> weights = new ArrayList<>();
+        for (Wagon wagon : wagons) {
+            if (wagon instanceof PassengerWagon passengerWagon) {
+                seats.add(passengerWagon.getNumberOfSeats() * seatValue);
+            } else {
+                weights.add(((FreightWagon) wagon).getMaxWeight() * weightValue);
+            }
+        }
+        seats.sort(Collections.reverseOrder());
+        weights.sort(Collections.reverseOrder());
+        long best = 0;
+        for (int mask = 0; mask < 1 << locomotives.size(); mask++) {
+            long passengerCapacity = 0, freightCapacity = 0;
+            for (int l = 0; l < locomotives.size(); l++) {
+                if ((mask & 1 << l) != 0) {
+                    passengerCapacity += locomotives.get(l).getMaxWagons();
+                } else {
+                    freightCapacity += locomotives.get(l).getMaxWagons();
+                }
+            }
+            long value = 0;
+            for (int i = 0; i < Math.min(passengerCapacity, seats.size()); i++) {
+                value += seats.get(i);
+            }
+            for (int i = 0; i < Math.min(freightCapacity, weights.size()); i++) {
+                value += weights.get(i);
+            }
+            best = Math.max(best, value);
+        }
+        return best;
+    }
+
+    private static String describe(List<Train> trains) {
+        StringBuilder sb = new StringBuilder();
+        for (Train train : trains) {
+            sb.append(train.getEngine().getLocNumber()).append(':');
+            for (Wagon wagon = train.getFirstWagon(); wagon != null; wagon = wagon.getNextWagon()) {
+                sb.append(' ').append(wagon.getId());
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void T01_OptimizerShouldComposeValidTrains() {
+        createFleet(new Random(1), 6, 40);
+        List<Train> trains = new FleetOptimizer(1, 100, 1).optimize(locomotives, wagons, "Amsterdam", "Berlin");
+        Map<Wagon, Train> seen = new IdentityHashMap<>();
+        for (Train train : trains) {
+            TrainTest.checkRepresentationInvariant(train);
+            assertTrue(train.isPassengerTrain() || train.isFreightTrain());
+            for (Wagon wagon = train.getFirstWagon(); wagon != null; wagon = wagon.getNextWagon()) {
+                assertNull(seen.put(wagon, train), "a wagon should be part of one train only");
+            }
+        }
+        assertTrue(locomotives.size() >= trains.size());
+    }
+
+    @Test
+    public void T02_OptimizerShouldFindTheMostValuableTrains() {
+        Random random = new Random(2);
+        for (int round = 0; round < 30; round++) {
+            setup();
+            createFleet(random, 1 + random.nextInt(9), random.nextInt(50));
+            long seatValue = random.nextInt(200), weightValue = random.nextInt(3);
+            List<Train> trains = new FleetOptimizer(round, seatValue, weightValue)
+                    .optimize(locomotives, wagons, "Here", "There");
+            assertEquals(bruteForceValue(seatValue, weightValue), valueOf(trains, seatValue, weightValue),
+                    "round " + round);
+        }
+    }
+
+    @Test
+    public void T03_OptimizerShouldBeDeterministicForASeed() {
+        createFleet(new Random(3), 14, 120);
+        String first = describe(new FleetOptimizer(7, 80, 1).optimize(locomotives, wagons, "Here", "There"));
+        for (int run = 0; run < 5; run++) {
+            List<Train> trains = new FleetOptimizer(7, 80, 1).optimize(locomotives, wagons, "Here", "There");
+            assertEquals(first, describe(trains));
+            for (Train train : trains) {
+                TrainTest.checkRepresentationInvariant(train);
+            }
+        }
+    }
+
+    @Test
+    public void T04_OptimizerShouldScaleToManyLocomotives() {
+        Random random = new Random(4);
+        createFleet(random, 60, 400);
+        long seatValue = 97, weightValue = 3;
+        List<Train> trains = assertTimeout(Duration.ofSeconds(2),
+                () -> new FleetOptimizer(4, seatValue, weightValue).optimize(locomotives, wagons, "Here", "There"));
+
+        // the best value over all achievable combined capacities of the passenger locomotives
+        int totalCapacity = 0;
+        for (Locomotive locomotive : locomotives) {
+            totalCapacity += locomotive.getMaxWagons();
+        }
+        boolean[] achievable = new boolean[totalCapacity + 1];
+        achievable[0] = true;
+        for (Locomotive locomotive : locomotives) {
+            for (int p = totalCapacity; p >= locomotive.getMaxWagons(); p--) {
+                achievable[p] |= achievable[p - locomotive.getMaxWagons()];
+            }
+        }
+        List<Long> seats = new ArrayList<>();
+        List<Long> weights = new ArrayList<>();
+        for (Wagon wagon : wagons) {
+            if (wagon instanceof PassengerWagon passengerWagon) {
+                seats.add(passengerWagon.getNumberOfSeats() * seatValue);
+            } else {
+                weights.add(((FreightWagon) wagon).getMaxWeight() * weightValue);
+            }
+        }
+        seats.sort(Collections.reverseOrder());
+        weights.sort(Collections.reverseOrder());
+        long best = 0;
+        for (int p = 0; p <= totalCapacity; p++) {
+            if (achievable[p]) {
+                long value = seats.stream().limit(p).mapToLong(Long::longValue).sum()
+                        + weights.stream().limit(totalCapacity - p).mapToLong(Long::longValue).sum();
+                best = Math.max(best, value);
+            }
+        }
+        assertEquals(best, valueOf(trains, seatValue, weightValue));
+        for (Train train : trains) {
+            TrainTest.checkRepresentationInvariant(train);
+            assertTrue(train.isPassengerTrain() || train.isFreightTrain());
+        }
+    }
+
+    @Test
+    public void T05_OptimizerShouldHandleHugeCapacities() {
+        Random random = new Random(5);
+        createFleet(random, 0, 30);
+        locomotives.add(new Locomotive(1, Integer.MAX_VALUE));
+        locomotives.add(new Locomotive(2, Integer.MAX_VALUE - 1));
+        locomotives.add(new Locomotive(3, 4));
+        List<Train> trains = new FleetOptimizer(5, 10, 1).optimize(locomotives, wagons, "Here", "There");
+        assertEquals(bruteForceValue(10, 1), valueOf(trains, 10, 1));
+        assertEquals(wagons.size(), trains.stream().mapToInt(Train::getNumberOfWagons).sum());
+    }
+
+    @Test
+    public void T06_OptimizerShouldHandleManyLocomotives() {
+        for (int l = 0; l < 2000; l++) {
+            locomotives.add(new Locomotive(1000 + l, 100000));
+        }
+        createFleet(new Random(6), 0, 10);
+        List<Train> trains = assertTimeout(Duration.ofSeconds(2),
+                () -> new FleetOptimizer(6, 10, 1).optimize(locomotives, wagons, "Here", "There"));
+        assertEquals(bruteForceValue(10, 1), valueOf(trains, 10, 1));
+        assertTrue(trains.size() <= 2);
+
+        // the bitsets are bounded by the number of wagons, beyond which the optimizer gives up
+        setup();
+        for (int l = 0; l < 3000; l++) {
+            locomotives.add(new Locomotive(1000 + l, 10000));
+        }
+        createFleet(new Random(6), 0, 20000);
+        assertThrows(IllegalArgumentException.class,
+                () -> new FleetOptimizer(6, 10, 1).optimize(locomotives, wagons, "Here", "There"));
+    }
+
+    @Test
+    public void T07_ParallelPassesShouldNotChangeTheResult() {
+        Random random = new Random(7);
+        for (int l = 0; l < 40; l++) {
+            locomotives.add(new Locomotive(1000 + l, 1 + random.nextInt(5000)));
+        }
+        createFleet(random, 0, 6000);
+        String common = describe(new FleetOptimizer(7, 80, 1).optimize(locomotives, wagons, "Here", "There"));
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            String pooled = describe(new FleetOptimizer(7, 80, 1).optimize(locomotives, wagons, "Here", "There", pool));
+            assertEquals(common, pooled);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+import models.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class ShuntingJournalTest {
+    @TempDir
+    Path directory;
+    Path snapshot, journal;
+    Train passengerTrain, otherPassengerTrain, freightTrain;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        Locale.setDefault(Locale.ENGLISH);
+        snapshot = directory.resolve("yard.snapshot");
+        journal = directory.resolve("yard.journal");
+        passengerTrain = new Train(new Locomotive(24531, 12), "Amsterdam", "Paris");
+        for (int id = 8001; id <= 8005; id++) {
+            passengerTrain.attachToRear(new PassengerWagon(id, 30 + id % 10));
+        }
+        otherPassengerTrain = new Train(new Locomotive(29123, 12), "Amsterdam", "London");
+        freightTrain = new Train(new Locomotive(63427, 50), "Amsterdam", "Berlin");
+        freightTrain.attachToRear(new FreightWagon(9001, 50000));
+        TrainSnapshot.write(snapshot, trains());
+    }
+
+    private List<Train> trains() {
+        return List.of(passengerTrain, otherPassengerTrain, freightTrain);
+    }
+
+    private static String describe(List<Train> trains) {
+        StringBuilder sb = new StringBuilder();
+        for (Train train : trains) {
+            sb.append(train.getEngine().getLocNumber()).append(':');
+            for (Wagon wagon = train.getFirstWagon(); wagon != null; wagon = wagon.getNextWagon()) {
+                sb.append(' ').append(wagon.getId());
+            }
+            sb.append(" seats=").append(train.getTotalNumberOfSeats()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void shunt(ShuntingJournal shunting, Train from, Train to, int firstNewId) {
+        assertTrue(shunting.splitAtPosition(from, 3, to));
+        shunting.reverse(to);
+        assertTrue(shunting.moveOneWagon(to, 8004, from));
+        Wagon loose = new PassengerWagon(firstNewId, 20);
+        loose.attachTail(new PassengerWagon(firstNewId + 1, 25));
+        assertTrue(shunting.insertAtPosition(from, 1, loose));
+        assertTrue(shunting.attachToRear(to, from.getFirstWagon().getNextWagon().getNextWagon()));
+        assertFalse(shunting.insertAtPosition(to, 1, new FreightWagon(firstNewId + 2, 4000)),
+                "a failed operation should not be recorded");
+    }
+
+    @Test
+    public void T01_ReplayShouldRestoreTheShuntedTrains() throws IOException {
+        try (ShuntingJournal shunting = new ShuntingJournal(journal)) {
+            shunt(shunting, passengerTrain, otherPassengerTrain, 7001);
+        }
+        List<Train> recovered = ShuntingJournal.recover(snapshot, journal);
+        assertEquals(describe(trains()), describe(recovered));
+        for (Train train : recovered) {
+            TrainTest.checkRepresentationInvariant(train);
+        }
+    }
+
+    @Test
+    public void T02_ReplayShouldIgnoreATornRecord() throws IOException {
+        try (ShuntingJournal shunting = new ShuntingJournal(journal)) {
+            assertTrue(shunting.moveOneWagon(passengerTrain, 8002, otherPassengerTrain));
+            shunting.commit();
+            assertTrue(shunting.moveOneWagon(passengerTrain, 8003, otherPassengerTrain));
+        }
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        List<Train> recovered = ShuntingJournal.recover(snapshot, journal);
+        assertEquals("29123: 8002 seats=32\n", describe(recovered.subList(1, 2)));
+
+        // reopening the journal discards the torn record, after which new records are appended
+        try (ShuntingJournal shunting = new ShuntingJournal(journal)) {
+            assertTrue(shunting.moveOneWagon(recovered.get(0), 8005, recovered.get(1)));
+        }
+        assertEquals(2, ShuntingJournal.replay(journal, TrainSnapshot.read(snapshot)));
+        assertEquals(describe(recovered), describe(ShuntingJournal.recover(snapshot, journal)));
+    }
+
+    @Test
+    public void T03_ReplayShouldContinueFromACheckpoint() throws IOException {
+        try (ShuntingJournal shunting = new ShuntingJournal(journal, 2)) {
+            shunt(shunting, passengerTrain, otherPassengerTrain, 7001);
+            shunting.checkpoint(snapshot, trains());
+            assertEquals(0, ShuntingJournal.replay(journal, TrainSnapshot.read(snapshot)));
+            shunt(shunting, otherPassengerTrain, passengerTrain, 7101);
+            shunting.reverse(freightTrain);
+        }
+        assertEquals(describe(trains()), describe(ShuntingJournal.recover(snapshot, journal)));
+    }
+
+    @Test
+    public void T04_ConcurrentCommitsShouldAllBeDurable() throws Exception {
+        List<Train> trains = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            trains.add(new Train(new Locomotive(100 + t, 1000), "Amsterdam", "Rome"));
+        }
+        TrainSnapshot.write(snapshot, trains);
+        List<Thread> threads = new ArrayList<>();
+        try (ShuntingJournal shunting = new ShuntingJournal(journal, 16)) {
+            for (int t = 0; t < trains.size(); t++) {
+                Train train = trains.get(t);
+                int firstId = 10000 * (t + 1);
+                threads.add(new Thread(() -> {
+                    try {
+                        for (int i = 0; i < 200; i++) {
+                            assertTrue(shunting.attachToRear(train, new PassengerWagon(firstId + i, 1 + i % 50)));
+                            if (i % 10 == 0) {
+                                shunting.reverse(train);
+                            }
+                            if (i % 25 == 0) {
+                                shunting.commit();
+                            }
+                        }
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+        List<Train> recovered = TrainSnapshot.read(snapshot);
+        assertEquals(8 * (200 + 20), ShuntingJournal.replay(journal, recovered));
+        assertEquals(describe(trains), describe(recovered));
+    }
+
+    @Test
+    public void T05_CrashDuringACheckpointShouldNotReplayOperationsTwice() throws IOException {
+        byte[] staleJournal;
+        try (ShuntingJournal shunting = new ShuntingJournal(journal)) {
+            shunt(shunting, passengerTrain, otherPassengerTrain, 7001);
+            shunting.reverse(freightTrain);
+            // the checkpoint commits the journal before it replaces the snapshot
+            shunting.commit();
+            staleJournal = Files.readAllBytes(journal);
+            shunting.checkpoint(snapshot, trains());
+        }
+        // the crash happened after the snapshot was replaced, but before the journal was replaced
+        Files.write(journal, staleJournal);
+        assertEquals(describe(trains()), describe(ShuntingJournal.recover(snapshot, journal)));
+
+        // the reopened journal continues after the operations that the snapshot covers
+        try (ShuntingJournal shunting = new ShuntingJournal(journal)) {
+            shunt(shunting, otherPassengerTrain, passengerTrain, 7101);
+        }
+        List<Train> recovered = ShuntingJournal.recover(snapshot, journal);
+        assertEquals(describe(trains()), describe(recovered));
+        for (Train train : recovered) {
+            TrainTest.checkRepresentationInvariant(train);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import models.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class ShuntingPlanTest {
+    Train passengerTrain, trainWithoutWagons, shortTrain, freightTrain;
+    Wagon looseWagon1, looseWagon2;
+
+    @BeforeEach
+    public void setup() {
+        Locale.setDefault(Locale.ENGLISH);
+        passengerTrain = new Train(new Locomotive(24531, 8), "Amsterdam", "Paris");
+        for (int id = 8001; id <= 8007; id++) {
+            passengerTrain.attachToRear(new PassengerWagon(id, 40));
+        }
+        trainWithoutWagons = new Train(new Locomotive(29123, 7), "Amsterdam", "London");
+        shortTrain = new Train(new Locomotive(29124, 3), "Amsterdam", "Brussels");
+        shortTrain.attachToRear(new PassengerWagon(8101, 60));
+        freightTrain = new Train(new Locomotive(63427, 50), "Amsterdam", "Berlin");
+        freightTrain.attachToRear(new FreightWagon(9001, 50000));
+
+        looseWagon1 = new PassengerWagon(8011, 50);
+        looseWagon2 = new PassengerWagon(8012, 50);
+        looseWagon1.attachTail(looseWagon2);
+    }
+
+    @AfterEach
+    public void checkRepresentationInvariants() {
+        TrainTest.checkRepresentationInvariant(passengerTrain);
+        TrainTest.checkRepresentationInvariant(trainWithoutWagons);
+        TrainTest.checkRepresentationInvariant(shortTrain);
+        TrainTest.checkRepresentationInvariant(freightTrain);
+        WagonTest.checkRepresentationInvariant(looseWagon1);
+        WagonTest.checkRepresentationInvariant(looseWagon2);
+    }
+
+    private static String idsOf(Train train) {
+        StringBuilder ids = new StringBuilder();
+        for (Wagon wagon = train.getFirstWagon(); wagon != null; wagon = wagon.getNextWagon()) {
+            ids.append(wagon.getId()).append(' ');
+        }
+        return ids.toString().trim();
+    }
+
+    @Test
+    public void T01_AValidPlanShouldBeAppliedCompletely() {
+        ShuntingPlan plan = new ShuntingPlan()
+                .splitAtPosition(passengerTrain, 4, trainWithoutWagons)
+                .insertAtPosition(trainWithoutWagons, 1, looseWagon1)
+                .moveOneWagon(passengerTrain, 8002, shortTrain)
+                .reverse(trainWithoutWagons);
+        assertEquals(4, plan.size());
+        assertTrue(plan.execute());
+        assertEquals(-1, plan.getFailedStep());
+
+        assertEquals("8001 8003 8004", idsOf(passengerTrain));
+        assertEquals("8007 8006 8012 8011 8005", idsOf(trainWithoutWagons));
+        assertEquals("8101 8002", idsOf(shortTrain));
+    }
+
+    @Test
+    public void T02_AnInvalidPlanShouldBeRejectedWithoutChanges() {
+        ShuntingPlan plan = new ShuntingPlan()
+                .splitAtPosition(passengerTrain, 2, trainWithoutWagons)
+                .moveOneWagon(trainWithoutWagons, 8005, shortTrain)
+                .moveOneWagon(passengerTrain, 8005, freightTrain);
+        assertFalse(plan.validate(), "the wagon has already been moved by the second step");
+        assertEquals(2, plan.getFailedStep());
+        assertFalse(plan.execute());
+
+        plan = new ShuntingPlan()
+                .attachToRear(shortTrain, looseWagon1)
+                .moveOneWagon(passengerTrain, 8001, shortTrain);
+        assertFalse(plan.execute(), "the short train has insufficient capacity for the third wagon");
+        assertEquals(1, plan.getFailedStep());
+
+        assertEquals("8001 8002 8003 8004 8005 8006 8007", idsOf(passengerTrain));
+        assertEquals("8101", idsOf(shortTrain));
+        assertEquals(0, trainWithoutWagons.getNumberOfWagons());
+        assertSame(looseWagon2, looseWagon1.getNextWagon());
+    }
+
+    @Test
+    public void T03_AFailingPlanShouldBeRolledBack() {
+        // validation counts two wagons from 8006 onwards, but the first step extends that sequence to three
+        ShuntingPlan plan = new ShuntingPlan()
+                .attachToRear(passengerTrain, looseWagon2)
+                .attachToRear(shortTrain, passengerTrain.findWagonById(8006));
+        assertTrue(plan.validate());
+        assertFalse(plan.execute());
+        assertEquals(1, plan.getFailedStep());
+
+        assertEquals("8001 8002 8003 8004 8005 8006 8007", idsOf(passengerTrain));
+        assertEquals(280, passengerTrain.getTotalNumberOfSeats());
+        assertEquals("8101", idsOf(shortTrain));
+        assertSame(looseWagon2, looseWagon1.getNextWagon());
+        assertSame(looseWagon1, looseWagon2.getPreviousWagon());
+    }
+}
@@ -0,0 +1,247 @@
+import models.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Locale;
+
+import static models.WagonStore.NONE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that a StoredTrain behaves the same as a Train, following the scenarios of TrainTest
+ */
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class StoredTrainTest {
+    WagonStore store;
+    StoredTrain passengerTrain, trainWithoutWagons, freightTrain;
+
+    int passengerWagon1, passengerWagon2, passengerWagon3;
+    int passengerWagon8001, passengerWagon8002;
+    int freightWagon1, freightWagon2;
+    int freightWagon9001, freightWagon9002;
+
+    @BeforeEach
+    public void setup() {
+        Locale.setDefault(Locale.ENGLISH);
+        store = new WagonStore();
+        Locomotive rembrandt = new Locomotive(24531, 8);
+        passengerTrain = new StoredTrain(store, rembrandt, "Amsterdam", "Paris");
+        int wagon;
+        passengerWagon8001 = store.newPassengerWagon(8001, 32);
+        passengerTrain.setFirstWagon(passengerWagon8001);
+        passengerWagon8002 = store.newPassengerWagon(8002, 32);
+        store.attachTail(passengerWagon8001, passengerWagon8002);
+        store.attachTail(passengerWagon8002, store.newPassengerWagon(8003, 18)); wagon = store.getNextWagon(passengerWagon8002);
+        store.attachTail(wagon, store.newPassengerWagon(8004, 44)); wagon = store.getNextWagon(wagon);
+        store.attachTail(wagon, store.newPassengerWagon(8005, 44)); wagon = store.getNextWagon(wagon);
+        store.attachTail(wagon, store.newPassengerWagon(8006, 44)); wagon = store.getNextWagon(wagon);
+        store.attachTail(wagon, store.newPassengerWagon(8007, 40));
+
+        Locomotive vanGogh = new Locomotive(29123, 7);
+        trainWithoutWagons = new StoredTrain(store, vanGogh, "Amsterdam", "London");
+
+        Locomotive clusius = new Locomotive(63427, 50);
+        freightTrain = new StoredTrain(store, clusius, "Amsterdam", "Berlin");
+        freightWagon9001 = store.newFreightWagon(9001, 50000);
+        freightTrain.setFirstWagon(freightWagon9001);
+        freightWagon9002 = store.newFreightWagon(9002, 40000);
+        store.attachTail(freightWagon9001, freightWagon9002);
+        store.attachTail(freightWagon9002, store.newFreightWagon(9003, 30000));
+
+        passengerWagon1 = store.newPassengerWagon(8011, 50);
+        passengerWagon2 = store.newPassengerWagon(8012, 50);
+        passengerWagon3 = store.newPassengerWagon(8013, 50);
+        store.attachTail(passengerWagon1, passengerWagon2);
+        store.attachTail(passengerWagon2, passengerWagon3);
+        freightWagon1 = store.newFreightWagon(9011, 60000);
+        freightWagon2 = store.newFreightWagon(9012, 60000);
+        store.attachTail(freightWagon1, freightWagon2);
+    }
+
+    @AfterEach
+    public void checkRepresentationInvariants() {
+        for (int wagon = 0; wagon < store.size(); wagon++) {
+            checkRepresentationInvariant(store, wagon);
+        }
+        checkRepresentationInvariant(passengerTrain);
+        checkRepresentationInvariant(trainWithoutWagons);
+        checkRepresentationInvariant(freightTrain);
+    }
+
+    public static void checkRepresentationInvariant(WagonStore store, int wagon) {
+        assertTrue(!store.hasNextWagon(wagon) || wagon == store.getPreviousWagon(store.getNextWagon(wagon)),
+                String.format("Wagon %s should be the previous wagon of its next wagon, if any", store.toString(wagon)));
+        assertTrue(!store.hasPreviousWagon(wagon) || wagon == store.getNextWagon(store.getPreviousWagon(wagon)),
+                String.format("Wagon %s should be the next wagon of its previous wagon, if any", store.toString(wagon)));
+    }
+
+    public static void checkRepresentationInvariant(StoredTrain train) {
+        WagonStore store = train.getStore();
+        assertFalse(train.hasWagons() && store.hasPreviousWagon(train.getFirstWagon()),
+                "The first wagon in a train should not have a previous wagon");
+        for (int wagon = train.getFirstWagon(); wagon != NONE; wagon = store.getNextWagon(wagon)) {
+            assertTrue(!store.hasNextWagon(wagon)
+                            || store.isPassengerWagon(wagon) == store.isPassengerWagon(store.getNextWagon(wagon)),
+                    String.format("Wagon %s should be of the same type as its next wagon in the train, if any",
+                            store.toString(wagon)));
+        }
+        assertThat("Number of wagons in the train should not exceed engine capacity",
+                train.getNumberOfWagons(), lessThanOrEqualTo(train.getEngine().getMaxWagons()));
+        assertEquals(train.hasWagons() ? store.getSequenceLength(train.getFirstWagon()) : 0, train.getNumberOfWagons(),
+                "The number of wagons should match the length of the sequence");
+        assertEquals(train.hasWagons() ? store.getLastWagonAttached(train.getFirstWagon()) : NONE,
+                train.getLastWagonAttached(),
+                "The last wagon attached should be the last wagon of the sequence");
+    }
+
+    @Test
+    public void T11_TrainTypeFollowsItsFirstWagon() {
+        assertTrue(passengerTrain.isPassengerTrain());
+        assertFalse(passengerTrain.isFreightTrain());
+        assertFalse(freightTrain.isPassengerTrain());
+        assertTrue(freightTrain.isFreightTrain());
+        assertFalse(trainWithoutWagons.isPassengerTrain());
+        assertFalse(trainWithoutWagons.isFreightTrain());
+    }
+
+    @Test
+    public void T12_ATrainShouldKnowItsNumberOfWagons() {
+        assertFalse(trainWithoutWagons.hasWagons());
+        assertEquals(0, trainWithoutWagons.getNumberOfWagons());
+        assertEquals(NONE, trainWithoutWagons.getLastWagonAttached());
+        assertEquals(7, passengerTrain.getNumberOfWagons());
+        assertEquals(8007, store.getId(passengerTrain.getLastWagonAttached()));
+        assertEquals(3, freightTrain.getNumberOfWagons());
+        assertEquals(9003, store.getId(freightTrain.getLastWagonAttached()));
+    }
+
+    @Test
+    public void T13_checkCumulativeWagonPropertiesOnTrain() {
+        assertEquals(254, passengerTrain.getTotalNumberOfSeats());
+        assertEquals(0, trainWithoutWagons.getTotalNumberOfSeats());
+        assertEquals(0, freightTrain.getTotalNumberOfSeats());
+        assertEquals(0, passengerTrain.getTotalMaxWeight());
+        assertEquals(0, trainWithoutWagons.getTotalMaxWeight());
+        assertEquals(120000, freightTrain.getTotalMaxWeight());
+        assertTrue(freightTrain.toString().indexOf(" from Amsterdam to Berlin") > 0);
+    }
+
+    @Test
+    public void T14_findWagonOnTrainAtPosition() {
+        assertEquals(8001, store.getId(passengerTrain.findWagonAtPosition(0)));
+        assertEquals(8002, store.getId(passengerTrain.findWagonAtPosition(1)));
+        assertEquals(8007, store.getId(passengerTrain.findWagonAtPosition(6)));
+        assertEquals(NONE, passengerTrain.findWagonAtPosition(7));
+        assertEquals(NONE, passengerTrain.findWagonAtPosition(-1));
+        assertEquals(NONE, trainWithoutWagons.findWagonAtPosition(0));
+    }
+
+    @Test
+    public void T15_findWagonOnTrainById() {
+        assertEquals(40000, store.getMaxWeight(freightTrain.findWagonById(9002)));
+        assertEquals(NONE, freightTrain.findWagonById(9000));
+        assertEquals(NONE, freightTrain.findWagonById(8001), "wagon of another train should not be found");
+        assertEquals(NONE, trainWithoutWagons.findWagonById(8000));
+    }
+
+    @Test
+    public void T16_CanAttachChecksCapacityTypeAndMembership() {
+        assertFalse(passengerTrain.canAttach(passengerWagon1));
+        assertFalse(passengerTrain.canAttach(passengerWagon2));
+        assertTrue(passengerTrain.canAttach(passengerWagon3));
+        assertTrue(freightTrain.canAttach(freightWagon1));
+        assertFalse(freightTrain.canAttach(passengerWagon3));
+        assertFalse(passengerTrain.canAttach(freightWagon2));
+        assertTrue(trainWithoutWagons.canAttach(freightWagon2));
+        assertFalse(freightTrain.canAttach(freightWagon9002));
+        assertFalse(passengerTrain.canAttach(passengerWagon8001));
+    }
+
+    @Test
+    public void T17_CanAttachToRear() {
+        assertTrue(trainWithoutWagons.attachToRear(passengerTrain.getLastWagonAttached()));
+        assertEquals(8007, store.getId(trainWithoutWagons.getFirstWagon()));
+        assertTrue(trainWithoutWagons.attachToRear(passengerTrain.getLastWagonAttached()));
+        assertEquals(8006, store.getId(trainWithoutWagons.getLastWagonAttached()));
+        assertTrue(trainWithoutWagons.attachToRear(passengerWagon8002));
+        assertEquals(8002, store.getId(trainWithoutWagons.findWagonAtPosition(2)));
+        assertEquals(8005, store.getId(trainWithoutWagons.getLastWagonAttached()));
+        assertFalse(trainWithoutWagons.attachToRear(passengerWagon8002));
+        assertEquals(6, trainWithoutWagons.getNumberOfWagons());
+        assertEquals(1, passengerTrain.getNumberOfWagons());
+    }
+
+    @Test
+    public void T18_CanInsertAtFront() {
+        assertTrue(freightTrain.insertAtFront(freightWagon1));
+        assertEquals(5, freightTrain.getNumberOfWagons());
+        assertEquals(freightWagon1, freightTrain.getFirstWagon());
+        assertEquals(freightWagon2, freightTrain.findWagonAtPosition(1));
+        assertFalse(passengerTrain.insertAtFront(passengerWagon1));
+        assertTrue(passengerTrain.insertAtFront(passengerWagon3));
+        assertEquals(8, passengerTrain.getNumberOfWagons());
+        assertEquals(2, store.getSequenceLength(passengerWagon1));
+        assertEquals(passengerWagon3, passengerTrain.getFirstWagon());
+    }
+
+    @Test
+    public void T19_CanInsertAtAnyPosition() {
+        assertTrue(trainWithoutWagons.insertAtPosition(0, passengerTrain.getLastWagonAttached()));
+        assertTrue(trainWithoutWagons.insertAtPosition(0, passengerTrain.getLastWagonAttached()));
+        assertEquals(8006, store.getId(trainWithoutWagons.getFirstWagon()));
+        assertTrue(trainWithoutWagons.insertAtPosition(2, passengerTrain.getLastWagonAttached()));
+        assertEquals(8005, store.getId(trainWithoutWagons.findWagonAtPosition(2)));
+        assertTrue(trainWithoutWagons.insertAtPosition(2, passengerTrain.getLastWagonAttached()));
+        assertEquals(8004, store.getId(trainWithoutWagons.findWagonAtPosition(2)));
+        assertTrue(trainWithoutWagons.insertAtPosition(2, passengerWagon8002));
+        assertEquals(8002, store.getId(trainWithoutWagons.findWagonAtPosition(2)));
+        assertEquals(8003, store.getId(trainWithoutWagons.findWagonAtPosition(3)));
+        assertEquals(8004, store.getId(trainWithoutWagons.findWagonAtPosition(4)));
+        assertFalse(trainWithoutWagons.insertAtPosition(1, passengerWagon8002));
+        assertEquals(6, trainWithoutWagons.getNumberOfWagons());
+        assertEquals(1, passengerTrain.getNumberOfWagons());
+    }
+
+    @Test
+    public void T20_ShouldSplitTrainCorrectly() {
+        assertTrue(passengerTrain.splitAtPosition(4, trainWithoutWagons));
+        assertEquals(3, trainWithoutWagons.getNumberOfWagons());
+        assertEquals(4, passengerTrain.getNumberOfWagons());
+        assertTrue(passengerTrain.splitAtPosition(3, trainWithoutWagons));
+        assertFalse(passengerTrain.splitAtPosition(3, trainWithoutWagons));
+        assertFalse(passengerTrain.splitAtPosition(2, freightTrain));
+        assertTrue(passengerTrain.splitAtPosition(0, trainWithoutWagons));
+        assertEquals(7, trainWithoutWagons.getNumberOfWagons());
+        assertEquals(0, passengerTrain.getNumberOfWagons());
+        assertFalse(passengerTrain.splitAtPosition(0, trainWithoutWagons));
+    }
+
+    @Test
+    public void T21_ShouldMoveOneWagonCorrectly() {
+        assertTrue(passengerTrain.moveOneWagon(8002, trainWithoutWagons));
+        assertEquals(1, trainWithoutWagons.getNumberOfWagons());
+        assertEquals(6, passengerTrain.getNumberOfWagons());
+        assertEquals(passengerWagon8002, trainWithoutWagons.getFirstWagon());
+        assertTrue(passengerTrain.moveOneWagon(8001, trainWithoutWagons));
+        assertEquals(8003, store.getId(passengerTrain.getFirstWagon()));
+        assertTrue(passengerTrain.moveOneWagon(8007, trainWithoutWagons));
+        assertEquals(3, trainWithoutWagons.getNumberOfWagons());
+        assertEquals(4, passengerTrain.getNumberOfWagons());
+        assertFalse(passengerTrain.moveOneWagon(8006, freightTrain));
+        assertEquals(4, passengerTrain.getNumberOfWagons());
+        assertEquals(3, freightTrain.getNumberOfWagons());
+    }
+
+    @Test
+    public void T22_checkReverseTrain() {
+        passengerTrain.reverse();
+        assertEquals(7, passengerTrain.getNumberOfWagons());
+        assertEquals(8007, store.getId(passengerTrain.findWagonAtPosition(0)));
+        assertEquals(8006, store.getId(passengerTrain.findWagonAtPosition(1)));
+        assertEquals(8001, store.getId(passengerTrain.findWagonAtPosition(6)));
+        assertEquals(8001, store.getId(passengerTrain.getLastWagonAttached()));
+        trainWithoutWagons.reverse();
+        assertEquals(0, trainWithoutWagons.getNumberOfWagons());
+    }
+}
@@ -0,0 +1,123 @@
+import models.*;
+import org.junit.jupiter.api.*;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class TrainMetricsTest {
+    TrainMetrics metrics;
+    Train passengerTrain, otherPassengerTrain;
+
+    @BeforeEach
+    public void setup() {
+        Locale.setDefault(Locale.ENGLISH);
+        metrics = TrainMetrics.register();
+        metrics.reset();
+        passengerTrain = new Train(new Locomotive(24531, 20), "Amsterdam", "Paris");
+        for (int id = 8001; id <= 8010; id++) {
+            passengerTrain.attachToRear(new PassengerWagon(id, 10));
+        }
+        otherPassengerTrain = new Train(new Locomotive(29123, 20), "Amsterdam", "London");
+    }
+
+    @AfterEach
+    public void disable() {
+        metrics.setEnabled(false);
+        metrics.reset();
+        TrainTest.checkRepresentationInvariant(passengerTrain);
+        TrainTest.checkRepresentationInvariant(otherPassengerTrain);
+    }
+
+    @Test
+    public void T01_DisabledMetricsShouldNotCount() {
+        assertFalse(metrics.isEnabled());
+        passengerTrain.findWagonAtPosition(5);
+        passengerTrain.moveOneWagon(8003, otherPassengerTrain);
+        metrics.getStatistics().values().forEach(statistics -> assertEquals(0, statistics.getCalls()));
+    }
+
+    @Test
+    public void T02_EnabledMetricsShouldCountOutermostOperations() {
+        metrics.setEnabled(true);
+        assertEquals(passengerTrain.findWagonById(8004), passengerTrain.findWagonAtPosition(3));
+        assertEquals(8008, passengerTrain.findWagonAtPosition(7).getId());
+        assertTrue(passengerTrain.moveOneWagon(8003, otherPassengerTrain));
+        assertTrue(otherPassengerTrain.canAttach(passengerTrain.findWagonAtPosition(8)));
+
+        Map<String, OperationStatistics> statistics = metrics.getStatistics();
+        OperationStatistics find = statistics.get(TrainMetrics.Operation.FIND_WAGON_AT_POSITION.name());
+        assertEquals(3, find.getCalls());
+        // 3 hops from the front to position 3, 2 hops from the rear to position 7 of 10 wagons
+        // and no hops to the last position 8 after the move
+        assertEquals(3 + 2, find.getHops());
+        assertTrue(find.getNanos() > 0);
+        assertEquals(1, statistics.get(TrainMetrics.Operation.FIND_WAGON_BY_ID.name()).getCalls());
+
+        // the attachment to otherPassengerTrain is part of the move
+        assertEquals(1, statistics.get(TrainMetrics.Operation.MOVE_ONE_WAGON.name()).getCalls());
+        assertEquals(1, statistics.get(TrainMetrics.Operation.MOVE_ONE_WAGON.name()).getHops());
+        assertEquals(0, statistics.get(TrainMetrics.Operation.ATTACH_TO_REAR.name()).getCalls());
+        assertEquals(1, statistics.get(TrainMetrics.Operation.CAN_ATTACH.name()).getCalls());
+    }
+
+    @Test
+    public void T03_IndexedTrainShouldCountTreeHops() {
+        passengerTrain.setIndexed(true);
+        metrics.setEnabled(true);
+        for (int position = 0; position < passengerTrain.getNumberOfWagons(); position++) {
+            passengerTrain.findWagonAtPosition(position);
+        }
+        OperationStatistics find = metrics.getStatistics().get(TrainMetrics.Operation.FIND_WAGON_AT_POSITION.name());
+        assertEquals(10, find.getCalls());
+        assertTrue(find.getHops() < 10 * 9 / 2, "the index should need fewer hops than walking the wagons");
+    }
+
+    @Test
+    public void T04_MetricsShouldBeManageableThroughJmx() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(TrainMetrics.OBJECT_NAME);
+        assertSame(metrics, TrainMetrics.register());
+        server.setAttribute(name, new Attribute("Enabled", true));
+        assertTrue(metrics.isEnabled());
+
+        passengerTrain.reverse();
+        TabularData statistics = (TabularData) server.getAttribute(name, "Statistics");
+        CompositeData reverse = (CompositeData) statistics.get(new Object[]{TrainMetrics.Operation.REVERSE.name()}).get("value");
+        assertEquals(1L, reverse.get("calls"));
+
+        server.invoke(name, "reset", null, null);
+        assertEquals(0, metrics.getStatistics().get(TrainMetrics.Operation.REVERSE.name()).getCalls());
+    }
+
+    @Test
+    public void T05_SegmentAttachmentShouldCountAsTheOuterOperation() {
+        metrics.setEnabled(true);
+        assertTrue(otherPassengerTrain.attachToRear(WagonSegment.detach(passengerTrain.findWagonById(8009))));
+        assertTrue(otherPassengerTrain.insertAtFront(WagonSegment.detach(passengerTrain.findWagonById(8007))));
+
+        Map<String, OperationStatistics> statistics = metrics.getStatistics();
+        assertEquals(1, statistics.get(TrainMetrics.Operation.ATTACH_TO_REAR.name()).getCalls());
+        assertEquals(1, statistics.get(TrainMetrics.Operation.INSERT_AT_FRONT.name()).getCalls());
+        assertEquals(0, statistics.get(TrainMetrics.Operation.INSERT_AT_POSITION.name()).getCalls());
+        assertEquals(List.of(8007, 8008, 8009, 8010), ids(otherPassengerTrain));
+    }
+
+    private static List<Integer> ids(Train train) {
+        List<Integer> ids = new ArrayList<>();
+        for (Wagon wagon = train.getFirstWagon(); wagon != null; wagon = wagon.getNextWagon()) {
+            ids.add(wagon.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,116 @@
+import models.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class TrainSnapshotTest {
+    @TempDir
+    Path directory;
+    Train passengerTrain, trainWithoutWagons, freightTrain;
+
+    @BeforeEach
+    public void setup() {
+        Locale.setDefault(Locale.ENGLISH);
+        passengerTrain = new Train(new Locomotive(24531, 7), "Amsterdam", "Paris");
+        for (int id = 8001; id <= 8005; id++) {
+            passengerTrain.attachToRear(new PassengerWagon(id, 30 + id % 10));
+        }
+        passengerTrain.reverse();
+        trainWithoutWagons = new Train(new Locomotive(29123, 7), "Amsterdam", "Zürich");
+        freightTrain = new Train(new Locomotive(63427, 50), "Amsterdam", "Berlin");
+        freightTrain.setIndexed(true);
+        for (int id = 9001; id <= 9003; id++) {
+            freightTrain.attachToRear(new FreightWagon(id, 1000 * (id % 10)));
+        }
+    }
+
+    private static String describe(Train train) {
+        StringBuilder sb = new StringBuilder(train.getEngine().getLocNumber() + "/" + train.getEngine().getMaxWagons()
+                + " " + train.getOrigin() + "-" + train.getDestination() + (train.isIndexed() ? " indexed" : "") + ":");
+        for (Wagon wagon = train.getFirstWagon(); wagon != null; wagon = wagon.getNextWagon()) {
+            sb.append(' ').append(wagon.getId());
+        }
+        return sb + " seats=" + train.getTotalNumberOfSeats() + " weight=" + train.getTotalMaxWeight();
+    }
+
+    @Test
+    public void T01_SnapshotShouldRestoreTheTrains() throws IOException {
+        Path path = directory.resolve("yard.snapshot");
+        TrainSnapshot.write(path, List.of(passengerTrain, trainWithoutWagons, freightTrain));
+        List<Train> trains = TrainSnapshot.read(path);
+
+        assertEquals(3, trains.size());
+        assertEquals(describe(passengerTrain), describe(trains.get(0)));
+        assertEquals(describe(trainWithoutWagons), describe(trains.get(1)));
+        assertEquals(describe(freightTrain), describe(trains.get(2)));
+        assertNotSame(passengerTrain.getFirstWagon(), trains.get(0).getFirstWagon());
+        for (Train train : trains) {
+            TrainTest.checkRepresentationInvariant(train);
+        }
+        assertEquals(9002, trains.get(2).findWagonAtPosition(1).getId());
+    }
+
+    @Test
+    public void T02_SnapshotShouldHandleManyWagons() throws IOException {
+        List<Train> trains = new ArrayList<>();
+        int id = 0;
+        for (int t = 0; t < 10; t++) {
+            Train train = new Train(new Locomotive(t, 100000), "Here", "There");
+            for (int w = 0; w < 20000; w++) {
+                train.attachToRear(new PassengerWagon(id++, w % 80));
+            }
+            trains.add(train);
+        }
+        Path path = directory.resolve("large.snapshot");
+        TrainSnapshot.write(path, trains);
+        List<Train> restored = TrainSnapshot.read(path);
+        for (int t = 0; t < trains.size(); t++) {
+            assertEquals(trains.get(t).getNumberOfWagons(), restored.get(t).getNumberOfWagons());
+            assertEquals(trains.get(t).getTotalNumberOfSeats(), restored.get(t).getTotalNumberOfSeats());
+            assertEquals(trains.get(t).getLastWagonAttached().getId(), restored.get(t).getLastWagonAttached().getId());
+        }
+    }
+
+    @Test
+    public void T03_InvalidSnapshotsShouldBeRejected() throws IOException {
+        Path path = directory.resolve("invalid.snapshot");
+        Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20});
+        assertThrows(IOException.class, () -> TrainSnapshot.read(path));
+
+        TrainSnapshot.write(path, List.of(passengerTrain));
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 4));
+        assertThrows(IOException.class, () -> TrainSnapshot.read(path), "a truncated snapshot should be rejected");
+    }
+
+    @Test
+    public void T04_CorruptNamesAndUnknownWagonTypesShouldBeRejected() throws IOException {
+        Path path = directory.resolve("corrupt.snapshot");
+        TrainSnapshot.write(path, List.of(passengerTrain));
+        byte[] bytes = Files.readAllBytes(path);
+        // the length of the origin, after the header and the engine, length and index flag of the train
+        int originLength = 3 * Integer.BYTES + 2 * Long.BYTES + 3 * Integer.BYTES + 1;
+        bytes[originLength] = 0x7F;
+        Files.write(path, bytes);
+        assertThrows(IOException.class, () -> TrainSnapshot.read(path), "a name beyond the file should be rejected");
+
+        TrainSnapshot.write(path, List.of(passengerTrain));
+        Train otherTrain = new Train(new Locomotive(11111, 3), "Amsterdam", "Brussels");
+        assertTrue(otherTrain.attachToRear(new Wagon(7001) {
+        }));
+        assertThrows(IOException.class, () -> TrainSnapshot.write(path, List.of(freightTrain, otherTrain)),
+                "a wagon of an unknown type should be rejected");
+        assertEquals(describe(passengerTrain), describe(TrainSnapshot.read(path).get(0)),
+                "the existing snapshot should be left unchanged");
+    }
+}
@@ -1,7 +1,15 @@
 import models.*;
 import org.junit.jupiter.api.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.StreamSupport;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
@@ -78,6 +86,11 @@ public class TrainTest {
         //  check that the capacity of the engine has not exceeded
         assertThat("Number of wagons in the train should not exceed engine capacity",
                 train.getNumberOfWagons(), lessThanOrEqualTo(train.getEngine().getMaxWagons()));
+        //  check that the maintained composition metadata matches the actual sequence of wagons
+        assertEquals(train.hasWagons() ? train.getFirstWagon().getSequenceLength() : 0, train.getNumberOfWagons(),
+                "The number of wagons should match the length of the sequence");
+        assertSame(train.hasWagons() ? train.getFirstWagon().getLastWagonAttached() : null, train.getLastWagonAttached(),
+                "The last wagon attached should be the last wagon of the sequence");
     }
 
     @Test
@@ -392,4 +405,314 @@ public class TrainTest {
         trainWithoutWagons.reverse();
         assertEquals(0, trainWithoutWagons.getNumberOfWagons());
     }
+
+    @Test
+    public void T23_IndexedTrainsShouldFindWagonsAtPosition() {
+        passengerTrain.setIndexed(true);
+        trainWithoutWagons.setIndexed(true);
+        assertTrue(passengerTrain.isIndexed());
+        assertEquals(8005, passengerTrain.findWagonAtPosition(4).getId());
+
+        assertTrue(passengerTrain.splitAtPosition(3, trainWithoutWagons));
+        assertTrue(trainWithoutWagons.insertAtPosition(1, passengerWagon3));
+        passengerTrain.reverse();
+        assertTrue(passengerTrain.moveOneWagon(8002, trainWithoutWagons));
+
+        int[] passengerIds = {8003, 8001};
+        int[] otherIds = {8004, 8013, 8005, 8006, 8007, 8002};
+        for (int i = 0; i < passengerIds.length; i++) {
+            assertEquals(passengerIds[i], passengerTrain.findWagonAtPosition(i).getId());
+        }
+        for (int i = 0; i < otherIds.length; i++) {
+            assertEquals(otherIds[i], trainWithoutWagons.findWagonAtPosition(i).getId());
+        }
+
+        trainWithoutWagons.setIndexed(false);
+        assertFalse(trainWithoutWagons.isIndexed());
+        assertEquals(8002, trainWithoutWagons.findWagonAtPosition(5).getId());
+    }
+
+    @Test
+    public void T23_IndexedTrainsShouldMatchTheirSequenceAfterRandomShunting() {
+        Random random = new Random(23);
+        Train[] trains = new Train[3];
+        List<List<Wagon>> expected = new ArrayList<>();
+        int nextId = 1;
+        for (int t = 0; t < trains.length; t++) {
+            trains[t] = new Train(new Locomotive(t, 10000), "Here", "There");
+            trains[t].setIndexed(true);
+            expected.add(new ArrayList<>());
+        }
+
+        for (int step = 0; step < 2000; step++) {
+            int t = random.nextInt(trains.length);
+            Train train = trains[t];
+            List<Wagon> wagons = expected.get(t);
+            int other = (t + 1 + random.nextInt(trains.length - 1)) % trains.length;
+            int position = random.nextInt(wagons.size() + 1);
+            switch (random.nextInt(6)) {
+                case 0, 1 -> {
+                    Wagon wagon = new PassengerWagon(nextId++, 10);
+                    assertTrue(train.insertAtPosition(position, wagon));
+                    wagons.add(position, wagon);
+                }
+                case 2 -> {
+                    if (position < wagons.size()) {
+                        assertTrue(train.splitAtPosition(position, trains[other]));
+                        List<Wagon> moved = wagons.subList(position, wagons.size());
+                        expected.get(other).addAll(moved);
+                        moved.clear();
+                    }
+                }
+                case 3 -> {
+                    if (position < wagons.size()) {
+                        Wagon wagon = wagons.remove(position);
+                        assertTrue(train.moveOneWagon(wagon.getId(), trains[other]));
+                        expected.get(other).add(wagon);
+                    }
+                }
+                case 4 -> {
+                    train.reverse();
+                    Collections.reverse(wagons);
+                }
+                default -> {
+                    if (position < wagons.size()) {
+                        // reverse part of the train at wagon level
+                        wagons.get(position).reverseSequence();
+                        Collections.reverse(wagons.subList(position, wagons.size()));
+                    }
+                }
+            }
+        }
+
+        for (int t = 0; t < trains.length; t++) {
+            List<Wagon> wagons = expected.get(t);
+            assertEquals(wagons.size(), trains[t].getNumberOfWagons());
+            for (int i = 0; i < wagons.size(); i++) {
+                assertSame(wagons.get(i), trains[t].findWagonAtPosition(i));
+            }
+            checkRepresentationInvariant(trains[t]);
+        }
+    }
+
+    @Test
+    public void T24_ReversedTrainsShouldBeTraversedInReverse() {
+        Wagon first = passengerTrain.getFirstWagon();
+        Wagon second = first.getNextWagon();
+        passengerTrain.reverse();
+        assertSame(first, passengerTrain.getLastWagonAttached());
+        assertSame(second, first.getPreviousWagon(), "links should be followed in the order of the reversed train");
+        assertNull(first.getNextWagon());
+        assertEquals(first.getId(), passengerTrain.findWagonAtPosition(passengerTrain.getNumberOfWagons() - 1).getId());
+
+        Wagon wagon = new PassengerWagon(8101, 50);
+        assertTrue(passengerTrain.attachToRear(wagon));
+        assertSame(wagon, first.getNextWagon());
+        assertSame(first, wagon.getPreviousWagon());
+        checkRepresentationInvariant(passengerTrain);
+
+        passengerTrain.reverse();
+        assertSame(wagon, passengerTrain.getFirstWagon());
+        assertSame(second, first.getNextWagon());
+        checkRepresentationInvariant(passengerTrain);
+    }
+
+    @Test
+    public void T24_ReversedTrainsShouldMatchTheirSequenceAfterRandomShunting() {
+        Random random = new Random(24);
+        Train[] trains = new Train[4];
+        List<List<Wagon>> expected = new ArrayList<>();
+        int nextId = 1;
+        for (int t = 0; t < trains.length; t++) {
+            trains[t] = new Train(new Locomotive(t, 10000), "Here", "There");
+            trains[t].setIndexed(t % 2 == 0);
+            expected.add(new ArrayList<>());
+        }
+
+        for (int step = 0; step < 3000; step++) {
+            int t = random.nextInt(trains.length);
+            Train train = trains[t];
+            List<Wagon> wagons = expected.get(t);
+            int other = (t + 1 + random.nextInt(trains.length - 1)) % trains.length;
+            List<Wagon> otherWagons = expected.get(other);
+            int position = random.nextInt(wagons.size() + 1);
+            int otherPosition = random.nextInt(otherWagons.size() + 1);
+            switch (random.nextInt(8)) {
+                case 0, 1 -> {
+                    train.reverse();
+                    Collections.reverse(wagons);
+                }
+                case 2 -> {
+                    Wagon wagon = new PassengerWagon(nextId++, 10);
+                    assertTrue(train.insertAtPosition(position, wagon));
+                    wagons.add(position, wagon);
+                }
+                case 3 -> {
+                    if (otherPosition < otherWagons.size()) {
+                        // take the rear of another train
+                        List<Wagon> moved = otherWagons.subList(otherPosition, otherWagons.size());
+                        assertTrue(train.attachToRear(moved.get(0)));
+                        wagons.addAll(moved);
+                        moved.clear();
+                    }
+                }
+                case 4 -> {
+                    if (otherPosition < otherWagons.size()) {
+                        List<Wagon> moved = otherWagons.subList(otherPosition, otherWagons.size());
+                        assertTrue(train.insertAtFront(moved.get(0)));
+                        wagons.addAll(0, moved);
+                        moved.clear();
+                    }
+                }
+                case 5 -> {
+                    if (position < wagons.size()) {
+                        Wagon wagon = wagons.remove(position);
+                        assertTrue(train.moveOneWagon(wagon.getId(), trains[other]));
+                        otherWagons.add(wagon);
+                    }
+                }
+                case 6 -> {
+                    if (position < wagons.size()) {
+                        assertTrue(train.splitAtPosition(position, trains[other]));
+                        List<Wagon> moved = wagons.subList(position, wagons.size());
+                        otherWagons.addAll(moved);
+                        moved.clear();
+                    }
+                }
+                default -> {
+                    if (position > 0 && position < wagons.size()) {
+                        // shunt at wagon level, which is not aware of the orientation of the train
+                        Wagon tail = wagons.get(position - 1).detachTail();
+                        assertSame(wagons.get(position), tail);
+                        List<Wagon> moved = wagons.subList(position, wagons.size());
+                        List<Wagon> loose = new ArrayList<>(moved);
+                        moved.clear();
+                        wagons.get(0).getLastWagonAttached().attachTail(loose.get(0));
+                        wagons.addAll(loose);
+                    }
+                }
+            }
+            if (step % 100 == 0) {
+                assertEquals(wagons, sequenceOf(train));
+            }
+        }
+
+        for (int t = 0; t < trains.length; t++) {
+            List<Wagon> wagons = expected.get(t);
+            assertEquals(wagons, sequenceOf(trains[t]));
+            assertEquals(wagons.size(), trains[t].getNumberOfWagons());
+            for (int i = 0; i < wagons.size(); i++) {
+                assertSame(wagons.get(i), trains[t].findWagonAtPosition(i));
+            }
+            checkRepresentationInvariant(trains[t]);
+        }
+    }
+
+    @Test
+    public void T25_WagonsShouldBeTraversedInParallel() {
+        for (boolean indexed : new boolean[]{false, true}) {
+            Train train = new Train(new Locomotive(1, 5000), "Amsterdam", "Paris");
+            train.setIndexed(indexed);
+            for (int id = 1; id <= 5000; id++) {
+                train.attachToRear(new PassengerWagon(id, id % 60));
+            }
+            assertTrue(train.splitAtPosition(4000, new Train(new Locomotive(2, 1000), "Amsterdam", "Paris")));
+            train.reverse();
+            List<Wagon> expected = sequenceOf(train);
+
+            assertEquals(4000, train.spliterator().getExactSizeIfKnown());
+            assertEquals(expected, StreamSupport.stream(train.spliterator(), false).toList());
+            assertEquals(expected, StreamSupport.stream(train.spliterator(), true).toList(),
+                    "a parallel traversal should keep the order of the wagons");
+            assertEquals(train.getTotalNumberOfSeats(), train.seats().parallel().sum());
+            assertEquals(0, train.maxWeights().parallel().sum());
+            List<Wagon> iterated = new ArrayList<>();
+            train.forEach(iterated::add);
+            assertEquals(expected, iterated);
+            checkRepresentationInvariant(train);
+        }
+        assertEquals(freightTrain.getTotalMaxWeight(), freightTrain.maxWeights().sum());
+        assertFalse(trainWithoutWagons.spliterator().tryAdvance(wagon -> fail()));
+    }
+
+    @Test
+    public void T26_ConcurrentLookupsShouldNotCorruptAReversedIndex() throws Exception {
+        Train train = new Train(new Locomotive(1, 2000), "Amsterdam", "Paris");
+        train.setIndexed(true);
+        for (int id = 1; id <= 2000; id++) {
+            train.attachToRear(new PassengerWagon(id, id % 60));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 20; round++) {
+                // every reversal leaves pending reversals in the index, which concurrent lookups carry down without applying
+                train.reverse();
+                List<Wagon> expected = sequenceOf(train);
+                List<Future<?>> lookups = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    final Random random = new Random(round * 4L + t);
+                    lookups.add(executor.submit(() -> {
+                        for (int i = 0; i < 2000; i++) {
+                            int position = random.nextInt(expected.size());
+                            assertSame(expected.get(position), train.findWagonAtPosition(position));
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> lookup : lookups) {
+                    lookup.get();
+                }
+                checkRepresentationInvariant(train);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void T26_LookupsShouldSeeAConsistentIndexWhileTheTrainIsReversed() throws Exception {
+        Train train = new Train(new Locomotive(1, 2000), "Amsterdam", "Paris");
+        train.setIndexed(true);
+        for (int id = 1; id <= 2000; id++) {
+            train.attachToRear(new PassengerWagon(id, id % 60));
+        }
+        List<Wagon> forward = sequenceOf(train);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?> reversals = executor.submit(() -> {
+                for (int round = 0; round < 2000; round++) {
+                    train.reverse();
+                }
+            });
+            List<Future<?>> lookups = new ArrayList<>();
+            for (int t = 0; t < 3; t++) {
+                final Random random = new Random(t);
+                lookups.add(executor.submit(() -> {
+                    for (int i = 0; i < 20000; i++) {
+                        // every lookup sees the train either in its original order or reversed
+                        int position = random.nextInt(forward.size());
+                        Wagon wagon = train.findWagonAtPosition(position);
+                        assertTrue(wagon == forward.get(position) || wagon == forward.get(forward.size() - 1 - position),
+                                "position " + position + " found " + wagon);
+                    }
+                    return null;
+                }));
+            }
+            reversals.get();
+            for (Future<?> lookup : lookups) {
+                lookup.get();
+            }
+            checkRepresentationInvariant(train);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<Wagon> sequenceOf(Train train) {
+        List<Wagon> wagons = new ArrayList<>();
+        for (Wagon wagon = train.getFirstWagon(); wagon != null; wagon = wagon.getNextWagon()) {
+            wagons.add(wagon);
+        }
+        return wagons;
+    }
 }
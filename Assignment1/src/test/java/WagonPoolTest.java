@@ -0,0 +1,103 @@
+import models.*;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class WagonPoolTest {
+    WagonPool pool;
+    Train passengerTrain, freightTrain;
+
+    @BeforeEach
+    public void setup() {
+        Locale.setDefault(Locale.ENGLISH);
+        pool = new WagonPool();
+        for (int id = 8001; id <= 8010; id++) {
+            pool.add(new PassengerWagon(id, 10 * (id - 8000)));
+        }
+        for (int id = 9001; id <= 9003; id++) {
+            pool.add(new FreightWagon(id, 10000));
+        }
+        passengerTrain = new Train(new Locomotive(24531, 3), "Amsterdam", "Paris");
+        freightTrain = new Train(new Locomotive(63427, 50), "Amsterdam", "Berlin");
+        freightTrain.attachToRear(new FreightWagon(9101, 50000));
+    }
+
+    @AfterEach
+    public void checkRepresentationInvariants() {
+        TrainTest.checkRepresentationInvariant(passengerTrain);
+        TrainTest.checkRepresentationInvariant(freightTrain);
+    }
+
+    private static List<Integer> idsOf(Wagon head) {
+        List<Integer> ids = new ArrayList<>();
+        for (Wagon wagon = head; wagon != null; wagon = wagon.getNextWagon()) {
+            ids.add(wagon.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void T01_PoolShouldTakeTheFewestWagons() {
+        assertEquals(550, pool.getTotalNumberOfSeats());
+        assertEquals(List.of(8010, 8005), idsOf(pool.takePassengerWagons(141)),
+                "the last wagon should be the smallest that completes the seats");
+        assertEquals(List.of(8004), idsOf(pool.takePassengerWagons(35)));
+        assertEquals(10, pool.size());
+        assertEquals(550 - 190, pool.getTotalNumberOfSeats());
+
+        assertNull(pool.takePassengerWagons(1000));
+        assertNull(pool.takePassengerWagons(0));
+        assertEquals(10, pool.size(), "no wagons should be taken when the seats cannot be reached");
+        assertEquals(List.of(9001, 9002), idsOf(pool.takeFreightWagons(15000)));
+        assertThrows(IllegalArgumentException.class, () -> pool.add(freightTrain.getFirstWagon()));
+    }
+
+    @Test
+    public void T02_PoolShouldAttachWagonsToATrain() {
+        assertTrue(pool.attachPassengerWagons(passengerTrain, 250));
+        assertEquals(List.of(8010, 8009, 8006), idsOf(passengerTrain.getFirstWagon()));
+        assertEquals(250, passengerTrain.getTotalNumberOfSeats());
+
+        assertFalse(pool.attachPassengerWagons(passengerTrain, 10), "the locomotive cannot pull more wagons");
+        assertEquals(10, pool.size(), "the wagons should be returned to the pool");
+        assertFalse(pool.attachPassengerWagons(freightTrain, 10));
+        assertTrue(pool.attachFreightWagons(freightTrain, 25000));
+        assertEquals(80000, freightTrain.getTotalMaxWeight());
+        assertEquals(4, freightTrain.getNumberOfWagons());
+    }
+
+    @Test
+    public void T03_PoolShouldMatchTheMinimumNumberOfWagons() {
+        Random random = new Random(17);
+        for (int round = 0; round < 200; round++) {
+            WagonPool randomPool = new WagonPool();
+            List<Integer> seats = new ArrayList<>();
+            int numberOfWagons = 1 + random.nextInt(20);
+            for (int w = 0; w < numberOfWagons; w++) {
+                int numberOfSeats = 1 + random.nextInt(60);
+                seats.add(numberOfSeats);
+                randomPool.add(new PassengerWagon(w, numberOfSeats));
+            }
+            seats.sort((a, b) -> b - a);
+            int requested = 1 + random.nextInt(seats.stream().mapToInt(Integer::intValue).sum());
+            int minimum = 0;
+            for (int sum = 0; sum < requested; minimum++) {
+                sum += seats.get(minimum);
+            }
+
+            Wagon head = randomPool.takePassengerWagons(requested);
+            int sum = 0;
+            for (Wagon wagon = head; wagon != null; wagon = wagon.getNextWagon()) {
+                sum += ((PassengerWagon) wagon).getNumberOfSeats();
+            }
+            assertTrue(sum >= requested, "round " + round);
+            assertEquals(minimum, head.getSequenceLength(), "round " + round);
+        }
+    }
+}
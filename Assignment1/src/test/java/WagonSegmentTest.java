@@ -0,0 +1,99 @@
+import models.*;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class WagonSegmentTest {
+    Train passengerTrain, otherPassengerTrain;
+    WagonSegment segment;
+
+    @BeforeEach
+    public void setup() {
+        Locale.setDefault(Locale.ENGLISH);
+        passengerTrain = new Train(new Locomotive(24531, 8), "Amsterdam", "Paris");
+        for (int id = 8001; id <= 8004; id++) {
+            passengerTrain.attachToRear(new PassengerWagon(id, 10));
+        }
+        otherPassengerTrain = new Train(new Locomotive(29123, 7), "Amsterdam", "London");
+        segment = new WagonSegment();
+        for (int id = 8101; id <= 8103; id++) {
+            segment.append(new PassengerWagon(id, 20));
+        }
+    }
+
+    @AfterEach
+    public void checkRepresentationInvariants() {
+        TrainTest.checkRepresentationInvariant(passengerTrain);
+        TrainTest.checkRepresentationInvariant(otherPassengerTrain);
+    }
+
+    private static List<Integer> idsOf(Train train) {
+        List<Integer> ids = new ArrayList<>();
+        for (Wagon wagon : train) {
+            ids.add(wagon.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void T01_SegmentShouldKnowItsWagons() {
+        assertEquals(3, segment.getLength());
+        assertEquals(60, segment.getTotalNumberOfSeats());
+        assertEquals(8101, segment.getHead().getId());
+        assertEquals(8103, segment.getTail().getId());
+        assertSame(segment.getTail(), segment.getHead().getLastWagonAttached());
+        assertThrows(IllegalArgumentException.class, () -> segment.append(passengerTrain.getFirstWagon()));
+        assertThrows(IllegalArgumentException.class, () -> segment.append(segment.getHead()));
+        assertThrows(IllegalArgumentException.class, () -> segment.append(segment.getTail()));
+        assertThrows(IllegalArgumentException.class, () -> new WagonSegment().append(segment.getTail()));
+        assertTrue(new WagonSegment().isEmpty());
+    }
+
+    @Test
+    public void T01_SegmentShouldNotAppendItsOwnTail() {
+        WagonSegment single = new WagonSegment().append(new PassengerWagon(8201, 5));
+        assertThrows(IllegalArgumentException.class, () -> single.append(single.getTail()));
+        assertEquals(1, single.getLength());
+        assertFalse(single.getHead().hasNextWagon(), "the wagon should not be linked to itself");
+        assertEquals(1, single.getHead().getSequenceLength());
+    }
+
+    @Test
+    public void T02_TrainShouldAttachASegment() {
+        passengerTrain.setIndexed(true);
+        passengerTrain.reverse();
+        assertTrue(passengerTrain.insertAtPosition(1, segment));
+        assertTrue(segment.isEmpty(), "an attached segment should be empty");
+        assertEquals(List.of(8004, 8101, 8102, 8103, 8003, 8002, 8001), idsOf(passengerTrain));
+        assertEquals(100, passengerTrain.getTotalNumberOfSeats());
+        assertEquals(8102, passengerTrain.findWagonAtPosition(2).getId());
+
+        WagonSegment tooLong = new WagonSegment().append(new PassengerWagon(8201, 5)).append(new PassengerWagon(8202, 5));
+        assertFalse(passengerTrain.canAttach(tooLong));
+        assertFalse(passengerTrain.attachToRear(tooLong));
+        assertEquals(2, tooLong.getLength());
+        assertTrue(otherPassengerTrain.insertAtFront(tooLong));
+        assertTrue(otherPassengerTrain.attachToRear(new WagonSegment()));
+        assertEquals(List.of(8201, 8202), idsOf(otherPassengerTrain));
+    }
+
+    @Test
+    public void T03_SegmentShouldBeDetachedFromATrain() {
+        WagonSegment detached = WagonSegment.detach(passengerTrain.findWagonById(8003));
+        assertEquals(2, detached.getLength());
+        assertEquals(20, detached.getTotalNumberOfSeats());
+        assertEquals(8004, detached.getTail().getId());
+        assertEquals(List.of(8001, 8002), idsOf(passengerTrain));
+        assertFalse(detached.getHead().hasPreviousWagon());
+
+        assertTrue(otherPassengerTrain.attachToRear(detached));
+        assertTrue(otherPassengerTrain.attachToRear(segment));
+        assertEquals(List.of(8003, 8004, 8101, 8102, 8103), idsOf(otherPassengerTrain));
+        assertEquals(80, otherPassengerTrain.getTotalNumberOfSeats());
+    }
+}
@@ -0,0 +1,61 @@
+import models.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class YardSimulatorTest {
+
+    @BeforeEach
+    public void setup() {
+        Locale.setDefault(Locale.ENGLISH);
+    }
+
+    private static String describe(Yard yard) {
+        StringBuilder sb = new StringBuilder();
+        for (Train train : yard.getTrains()) {
+            sb.append(train.getEngine().getLocNumber()).append(':');
+            for (Wagon wagon : train) {
+                sb.append(' ').append(wagon.getId());
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void checkYard(Yard yard, int numberOfWagons) {
+        int wagons = 0;
+        for (Train train : yard.getTrains()) {
+            TrainTest.checkRepresentationInvariant(train);
+            assertTrue(train.getNumberOfWagons() <= train.getEngine().getMaxWagons());
+            wagons += train.getNumberOfWagons();
+        }
+        assertEquals(numberOfWagons, wagons, "the simulation should neither lose nor create wagons");
+    }
+
+    @Test
+    public void T01_SimulationShouldReportAllOperations() {
+        YardSimulator simulator = new YardSimulator(1, 40, 10);
+        YardSimulator.Report report = simulator.run(20000, 4, true);
+        assertEquals(20000, report.operations());
+        assertTrue(report.succeeded() > 0 && report.succeeded() <= 20000);
+        long[] percentiles = report.latencyPercentiles();
+        for (int i = 1; i < percentiles.length; i++) {
+            assertTrue(percentiles[i - 1] <= percentiles[i]);
+        }
+        assertTrue(report.toString().contains("p99.9="));
+        checkYard(simulator.getYard(), 400);
+        assertThrows(IllegalArgumentException.class, () -> simulator.run(10, 41, false));
+    }
+
+    @Test
+    public void T02_SingleDispatcherShouldBeDeterministic() {
+        YardSimulator first = new YardSimulator(7, 20, 8);
+        YardSimulator second = new YardSimulator(7, 20, 8);
+        assertEquals(first.run(5000, 1, false).succeeded(), second.run(5000, 1, false).succeeded());
+        assertEquals(describe(first.getYard()), describe(second.getYard()));
+        checkYard(first.getYard(), 160);
+    }
+}
@@ -0,0 +1,300 @@
+import models.*;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class YardTest {
+    Yard yard;
+    Train passengerTrain, trainWithoutWagons, freightTrain;
+
+    @BeforeEach
+    public void setup() {
+        Locale.setDefault(Locale.ENGLISH);
+        yard = new Yard();
+        passengerTrain = new Train(new Locomotive(24531, 8), "Amsterdam", "Paris");
+        for (int id = 8001; id <= 8005; id++) {
+            passengerTrain.attachToRear(new PassengerWagon(id, 40));
+        }
+        trainWithoutWagons = new Train(new Locomotive(29123, 7), "Amsterdam", "London");
+        freightTrain = new Train(new Locomotive(63427, 50), "Amsterdam", "Berlin");
+        for (int id = 9001; id <= 9003; id++) {
+            freightTrain.attachToRear(new FreightWagon(id, 50000));
+        }
+        yard.addTrain(passengerTrain);
+        yard.addTrain(trainWithoutWagons);
+        yard.addTrain(freightTrain);
+    }
+
+    @AfterEach
+    public void checkRepresentationInvariants() {
+        for (Train train : yard.getTrains()) {
+            TrainTest.checkRepresentationInvariant(train);
+            for (Wagon wagon = train.getFirstWagon(); wagon != null; wagon = wagon.getNextWagon()) {
+                assertSame(train, yard.findTrainByWagonId(wagon.getId()),
+                        String.format("Wagon %s should be indexed on its train", wagon));
+                assertSame(wagon, train.findWagonById(wagon.getId()));
+            }
+            long seats = 0, weight = 0;
+            for (Train other : yard.getTrains()) {
+                if (other.getOrigin().equals(train.getOrigin()) && other.getDestination().equals(train.getDestination())) {
+                    seats += other.getTotalNumberOfSeats();
+                    weight += other.getTotalMaxWeight();
+                }
+            }
+            assertEquals(seats, yard.getRoutes().getTotalNumberOfSeats(train.getOrigin(), train.getDestination()));
+            assertEquals(weight, yard.getRoutes().getTotalMaxWeight(train.getOrigin(), train.getDestination()));
+        }
+    }
+
+    @Test
+    public void T01_YardShouldFindTrainsByWagonId() {
+        assertSame(passengerTrain, yard.findTrainByWagonId(8003));
+        assertSame(freightTrain, yard.findTrainByWagonId(9001));
+        assertNull(yard.findTrainByWagonId(7000));
+        assertEquals(9002, yard.findWagonById(9002).getId());
+        assertNull(yard.findWagonById(7000));
+    }
+
+    @Test
+    public void T02_TrainCannotBePartOfTwoYards() {
+        assertThrows(IllegalStateException.class, () -> new Yard().addTrain(passengerTrain));
+        assertTrue(yard.removeTrain(passengerTrain));
+        assertFalse(yard.removeTrain(passengerTrain));
+        assertNull(yard.findTrainByWagonId(8001));
+        new Yard().addTrain(passengerTrain);
+    }
+
+    @Test
+    public void T03_YardShouldMoveWagonsById() {
+        assertTrue(yard.moveOneWagon(8003, trainWithoutWagons));
+        assertSame(trainWithoutWagons, yard.findTrainByWagonId(8003));
+        assertNull(passengerTrain.findWagonById(8003));
+        assertEquals(4, passengerTrain.getNumberOfWagons());
+
+        assertFalse(yard.moveOneWagon(8004, freightTrain), "should not move a wagon to an incompatible train");
+        assertFalse(yard.moveOneWagon(7000, trainWithoutWagons), "should not move an unknown wagon");
+        assertSame(passengerTrain, yard.findTrainByWagonId(8004));
+    }
+
+    @Test
+    public void T04_IndexShouldFollowWagonLevelChanges() {
+        assertTrue(passengerTrain.splitAtPosition(2, trainWithoutWagons));
+        assertSame(trainWithoutWagons, yard.findTrainByWagonId(8005));
+        assertSame(passengerTrain, yard.findTrainByWagonId(8002));
+
+        Wagon wagon = trainWithoutWagons.findWagonById(8004);
+        wagon.detachFront();
+        assertNull(yard.findTrainByWagonId(8004));
+        assertNull(yard.findTrainByWagonId(8005));
+        assertEquals(1, trainWithoutWagons.getNumberOfWagons());
+
+        passengerTrain.getLastWagonAttached().attachTail(wagon);
+        assertSame(passengerTrain, yard.findTrainByWagonId(8005));
+        assertEquals(4, passengerTrain.getNumberOfWagons());
+    }
+
+    @Test
+    public void T05_ConcurrentShuntingShouldPreserveInvariants() throws Exception {
+        final int numberOfTrains = 16, wagonsPerTrain = 50, numberOfThreads = 8, operationsPerThread = 20000;
+        yard = new Yard();
+        List<Train> trains = new ArrayList<>();
+        int wagonId = 1;
+        for (int t = 0; t < numberOfTrains; t++) {
+            Train train = new Train(new Locomotive(t, numberOfTrains * wagonsPerTrain), "Here", "There");
+            if (t % 2 == 0) {
+                train.setIndexed(true);
+            }
+            for (int w = 0; w < wagonsPerTrain; w++) {
+                train.attachToRear(new PassengerWagon(wagonId++, 1));
+            }
+            yard.addTrain(train);
+            trains.add(train);
+        }
+        final int numberOfWagons = wagonId - 1;
+
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        List<Future<?>> dispatchers = new ArrayList<>();
+        for (int d = 0; d < numberOfThreads; d++) {
+            final Random random = new Random(d);
+            dispatchers.add(executor.submit(() -> {
+                for (int op = 0; op < operationsPerThread; op++) {
+                    Train train = trains.get(random.nextInt(numberOfTrains));
+                    Train other = trains.get(random.nextInt(numberOfTrains));
+                    int id = 1 + random.nextInt(numberOfWagons);
+                    int length = yard.withLock(train, train::getNumberOfWagons);
+                    switch (random.nextInt(6)) {
+                        case 0, 1 -> yard.moveOneWagon(id, train);
+                        case 2 -> yard.moveOneWagon(other, id, train);
+                        case 3 -> yard.splitAtPosition(train, random.nextInt(length + 1), other);
+                        case 4 -> {
+                            Wagon wagon = yard.findWagonById(id);
+                            yard.insertAtPosition(train, random.nextInt(length + 1), wagon);
+                        }
+                        default -> yard.reverse(train);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> dispatcher : dispatchers) {
+            dispatcher.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        int total = 0;
+        for (Train train : trains) {
+            total += train.getNumberOfWagons();
+            assertEquals(train.getNumberOfWagons(), train.getTotalNumberOfSeats());
+        }
+        assertEquals(numberOfWagons, total, "no wagon should be lost or duplicated");
+        // the representation invariants of all trains and the index are verified after each test
+    }
+
+    @Test
+    public void T06_ReadersShouldSeeConsistentTotalsWhileShunting() throws Exception {
+        final int numberOfWagons = 200, operations = 20000;
+        Train other = new Train(new Locomotive(1, numberOfWagons), "Here", "There");
+        Train train = new Train(new Locomotive(2, numberOfWagons), "Here", "There");
+        for (int id = 1; id <= numberOfWagons; id++) {
+            train.attachToRear(new PassengerWagon(id, 1));
+        }
+        yard.addTrain(train);
+        yard.addTrain(other);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> shunter = executor.submit(() -> {
+            Random random = new Random(1);
+            for (int op = 0; op < operations; op++) {
+                if (random.nextBoolean()) {
+                    yard.splitAtPosition(train, random.nextInt(numberOfWagons), other);
+                } else {
+                    yard.splitAtPosition(other, random.nextInt(numberOfWagons), train);
+                }
+            }
+            return null;
+        });
+        Future<?> reader = executor.submit(() -> {
+            while (!shunter.isDone()) {
+                // reads do not take the lock of the yard, but still shall never observe a half-shunted train
+                int seats = train.getTotalNumberOfSeats();
+                assertTrue(seats >= 0 && seats <= numberOfWagons, "seats=" + seats);
+                int wagons = other.getNumberOfWagons();
+                assertTrue(wagons >= 0 && wagons <= numberOfWagons, "wagons=" + wagons);
+                assertTrue(train.toString().startsWith("Train with engine"));
+            }
+            return null;
+        });
+        shunter.get();
+        reader.get();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(numberOfWagons, train.getTotalNumberOfSeats() + other.getTotalNumberOfSeats());
+    }
+
+    @Test
+    public void T07_RoutesShouldFollowTheCompositionOfTrains() {
+        RouteRegistry routes = yard.getRoutes();
+        assertEquals(200, routes.getTotalNumberOfSeats("Amsterdam", "Paris"));
+        assertEquals(200, routes.getTotalNumberOfSeats("Amsterdam", null));
+        assertEquals(150000, routes.getTotalMaxWeight(null, "Berlin"));
+        assertEquals(3, routes.getRoute("Amsterdam", null).getTrains().size());
+        assertEquals(Set.of(passengerTrain), routes.getRoute(null, "Paris").getTrains());
+
+        assertTrue(yard.splitAtPosition(passengerTrain, 3, trainWithoutWagons));
+        assertEquals(120, routes.getTotalNumberOfSeats("Amsterdam", "Paris"));
+        assertEquals(80, routes.getTotalNumberOfSeats("Amsterdam", "London"));
+        assertEquals(200, routes.getTotalNumberOfSeats(null, null));
+
+        passengerTrain.findWagonById(8002).detachTail();
+        assertEquals(80, routes.getTotalNumberOfSeats("Amsterdam", "Paris"));
+
+        assertTrue(yard.removeTrain(freightTrain));
+        assertEquals(0, routes.getTotalMaxWeight("Amsterdam", "Berlin"));
+        assertTrue(routes.getRoute("Amsterdam", "Berlin").getTrains().isEmpty());
+        assertEquals(0, routes.getTotalNumberOfSeats("Rotterdam", null));
+        assertTrue(routes.getRoute("Rotterdam", null).getTrains().isEmpty());
+    }
+
+    @Test
+    public void T08_CapacityIndexShouldFindTheBestFittingTrain() {
+        CapacityIndex capacities = yard.getCapacities();
+        Train largePassengerTrain = new Train(new Locomotive(11111, 20), "Amsterdam", "Brussels");
+        largePassengerTrain.attachToRear(new PassengerWagon(8101, 40));
+        yard.addTrain(largePassengerTrain);
+        assertEquals(4, capacities.size());
+
+        Wagon twoWagons = new PassengerWagon(8201, 40);
+        twoWagons.attachTail(new PassengerWagon(8202, 40));
+        // passengerTrain has headroom 3, trainWithoutWagons 7 and largePassengerTrain 19
+        assertSame(passengerTrain, capacities.findBestFit(twoWagons));
+        assertTrue(yard.attachToRear(passengerTrain, twoWagons));
+        assertSame(passengerTrain, capacities.findBestFit(new PassengerWagon(8203, 40)));
+        Wagon otherTwoWagons = new PassengerWagon(8204, 40);
+        otherTwoWagons.attachTail(new PassengerWagon(8205, 40));
+        assertSame(trainWithoutWagons, capacities.findBestFit(otherTwoWagons),
+                "an empty train with less headroom should fit better");
+        assertSame(trainWithoutWagons, capacities.findBestFit(new FreightWagon(9101, 1000)),
+                "an empty train should take wagons of either type");
+
+        assertTrue(yard.splitAtPosition(passengerTrain, 1, largePassengerTrain));
+        assertSame(passengerTrain, capacities.findBestFit(new PassengerWagon(8203, 40)));
+        assertSame(trainWithoutWagons, capacities.findBestFit(passengerTrain.getFirstWagon()),
+                "a sequence should not fit the train that it is part of");
+
+        Wagon tooLong = new FreightWagon(9102, 1000);
+        for (int id = 9103; id < 9160; id++) {
+            tooLong.getLastWagonAttached().attachTail(new FreightWagon(id, 1000));
+        }
+        assertNull(capacities.findBestFit(tooLong));
+
+        // a wagon-level change outside of the yard operations is followed as well
+        Wagon fifteenWagons = new PassengerWagon(8301, 40);
+        for (int id = 8302; id <= 8315; id++) {
+            fifteenWagons.getLastWagonAttached().attachTail(new PassengerWagon(id, 40));
+        }
+        assertNull(capacities.findBestFit(fifteenWagons));
+        largePassengerTrain.getFirstWagon().detachTail();
+        assertSame(largePassengerTrain, capacities.findBestFit(fifteenWagons));
+        assertTrue(yard.removeTrain(largePassengerTrain));
+        assertEquals(3, capacities.size());
+    }
+
+    @Test
+    public void T09_OperationAwaitingARemovedTrainShouldFail() throws Exception {
+        Throwable[] failure = new Throwable[1];
+        Thread waiter = new Thread(() -> {
+            try {
+                yard.reverse(freightTrain);
+            } catch (Throwable e) {
+                failure[0] = e;
+            }
+        });
+        boolean removed = yard.withLock(freightTrain, () -> {
+            waiter.start();
+            // remove the train only once the waiter is blocked on its lock
+            while (waiter.getState() != Thread.State.WAITING) {
+                Thread.onSpinWait();
+            }
+            return yard.removeTrain(freightTrain);
+        });
+        waiter.join();
+
+        assertTrue(removed);
+        assertInstanceOf(IllegalArgumentException.class, failure[0]);
+        assertEquals(9001, freightTrain.getFirstWagon().getId(), "the removed train should not have been reversed");
+        assertNull(yard.findTrainByWagonId(9001));
+        assertFalse(yard.removeTrain(freightTrain));
+    }
+}
@@ -9,6 +9,7 @@ import java.time.LocalDate;
 public class Car implements Comparable<Car> {
 
     private final String licensePlate;
+    private final long plateKey; // the packed license plate, see LicensePlateCodec
     private int emissionCategory;
     private CarType carType;
     private FuelType fuelType;
@@ -32,6 +33,7 @@ public class Car implements Comparable<Car> {
 
     public Car(String licensePlate) {
         this.licensePlate = licensePlate;
+        this.plateKey = LicensePlateCodec.encode(licensePlate);
         this.emissionCategory = 0;
         this.carType = CarType.Unknown;
         this.fuelType = FuelType.Unknown;
@@ -82,6 +84,13 @@ public class Car implements Comparable<Car> {
         return licensePlate;
     }
 
+    /**
+     * @return the license plate packed into a long, or LicensePlateCodec.INVALID if it cannot be packed
+     */
+    public long getPlateKey() {
+        return plateKey;
+    }
+
     public int getEmissionCategory() {
         return emissionCategory;
     }
@@ -94,9 +103,15 @@ public class Car implements Comparable<Car> {
         return fuelType;
     }
 
+    /**
+     * Compares cars by license plate, using the packed license plates if available
+     *
+     * @param other the other car to compare with
+     * @return the same result as the comparison of the license plates as Strings
+     */
     @Override
     public int compareTo(Car other) {
-        return this.licensePlate.compareTo(other.licensePlate);
+        return LicensePlateCodec.compare(this.plateKey, this.licensePlate, other.plateKey, other.licensePlate);
     }
 
     @Override
@@ -115,8 +130,8 @@ public class Car implements Comparable<Car> {
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof Car car)) return false;
-        // cars are uniquely defined by their license plate
-        return licensePlate.equals(car.licensePlate);
+        // cars are uniquely defined by their license plate, which is equal if and only if the valid keys are equal
+        return plateKey == car.plateKey && (plateKey != LicensePlateCodec.INVALID || licensePlate.equals(car.licensePlate));
     }
 
 
@@ -127,6 +142,6 @@ public class Car implements Comparable<Car> {
      */
     @Override
     public int hashCode() {
-        return licensePlate.hashCode();
+        return plateKey != LicensePlateCodec.INVALID ? LicensePlateCodec.hash(plateKey) : licensePlate.hashCode();
     }
 }
@@ -0,0 +1,268 @@
+package models;
+
+import java.util.Collection;
+import java.util.function.Predicate;
+
+/**
+ * An ordered list of cars, sorted by license plate, that also maintains a hash index on license plate.
+ * The index finds a car by its license plate in constant expected time, independent of the sorted and unsorted
+ * sections of the list.
+ * The index is an open addressing hash table with linear probing on the packed license plates,
+ * which holds the first car that has been added for every license plate.
+ * License plates that cannot be packed are hashed and compared as Strings instead.
+ * Removals take linear time, as another car with the same license plate may have to take over the index entry.
+ * Structural modifications via a subList view of the registry are not reflected in the index.
+ */
+@SuppressWarnings("serial")
+public class CarRegistry extends OrderedArrayList<Car> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Car[] table = new Car[INITIAL_CAPACITY];
+    private int numberOfPlates;
+
+    public CarRegistry() {
+        super(Car::compareTo);
+    }
+
+    /**
+     * Finds the car with the given license plate
+     *
+     * @param licensePlate the license plate to search for
+     * @return the car with the given license plate, or null if no such car has been registered
+     */
+    public Car find(String licensePlate) {
+        return table[slotOf(LicensePlateCodec.encode(licensePlate), licensePlate)];
+    }
+
+    /**
+     * Finds the car with the given packed license plate
+     *
+     * @param plateKey a valid key of a license plate, as encoded by LicensePlateCodec
+     * @return the car with the given license plate, or null if no such car has been registered
+     */
+    public Car find(long plateKey) {
+        if (plateKey == LicensePlateCodec.INVALID) {
+            return null;
+        }
+        return table[slotOf(plateKey, null)];
+    }
+
+    /**
+     * Finds the car with the given license plate, or registers a new car with only that license plate if none exists
+     *
+     * @param licensePlate the license plate of the car
+     * @return the registered car with the given license plate
+     */
+    public Car findOrCreate(String licensePlate) {
+        Car car = find(licensePlate);
+        if (car == null) {
+            car = new Car(licensePlate);
+            add(car);
+        }
+        return car;
+    }
+
+    /**
+     * Finds the car with the given packed license plate, or registers a new car with only that license plate
+     * if none exists. The license plate is only decoded into a String for a new car.
+     *
+     * @param plateKey a valid key of a license plate, as encoded by LicensePlateCodec
+     * @return the registered car with the given license plate
+     */
+    public Car findOrCreate(long plateKey) {
+        Car car = find(plateKey);
+        if (car == null) {
+            car = new Car(LicensePlateCodec.decode(plateKey));
+            add(car);
+        }
+        return car;
+    }
+
+    @Override
+    public boolean add(Car car) {
+        super.add(car);
+        index(car);
+        return true;
+    }
+
+    @Override
+    public void add(int index, Car car) {
+        super.add(index, car);
+        index(car);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Car> cars) {
+        for (Car car : cars) {
+            add(car);
+        }
+        return !cars.isEmpty();
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Car> cars) {
+        boolean changed = super.addAll(index, cars);
+        for (Car car : cars) {
+            index(car);
+        }
+        return changed;
+    }
+
+    @Override
+    public Car set(int index, Car car) {
+        Car replaced = super.set(index, car);
+        unindex(replaced);
+        index(car);
+        return replaced;
+    }
+
+    @Override
+    public Car remove(int index) {
+        Car removed = super.remove(index);
+        unindex(removed);
+        return removed;
+    }
+
+    @Override
+    public boolean remove(Object item) {
+        int index = indexOf(item);
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> items) {
+        return reindexAfter(super.removeAll(items));
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> items) {
+        return reindexAfter(super.retainAll(items));
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super Car> filter) {
+        return reindexAfter(super.removeIf(filter));
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        table = new Car[INITIAL_CAPACITY];
+        numberOfPlates = 0;
+    }
+
+    /**
+     * Adds the car to the index, unless a car with the same license plate has been indexed already
+     */
+    private void index(Car car) {
+        if (car == null) {
+            return;
+        }
+        int slot = slotOf(car);
+        if (table[slot] != null) {
+            return;
+        }
+        table[slot] = car;
+        if (++numberOfPlates > table.length / 2) {
+            resize(2 * table.length);
+        }
+    }
+
+    /**
+     * Removes the car from the index, if it is the indexed car of its license plate.
+     * Another car with the same license plate that remains in the list then takes its place.
+     */
+    private void unindex(Car car) {
+        if (car == null) {
+            return;
+        }
+        int slot = slotOf(car);
+        if (table[slot] != car) {
+            return;
+        }
+        delete(slot);
+        for (int i = 0; i < size(); i++) {
+            if (get(i).equals(car)) {
+                index(get(i));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Deletes the car in the given slot by shifting back the cars of its probe sequence,
+     * such that no tombstones are needed
+     */
+    private void delete(int slot) {
+        int mask = table.length - 1;
+        table[slot] = null;
+        numberOfPlates--;
+        for (int next = (slot + 1) & mask; table[next] != null; next = (next + 1) & mask) {
+            int home = hash(table[next].getPlateKey(), table[next].getLicensePlate()) & mask;
+            // move the car into the hole if the hole lies cyclically between its home slot and its current slot
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                table[slot] = table[next];
+                table[next] = null;
+                slot = next;
+            }
+        }
+    }
+
+    private boolean reindexAfter(boolean changed) {
+        if (changed) {
+            resize(table.length);
+        }
+        return changed;
+    }
+
+    /**
+     * Rebuilds the index from the cars in the list with the given capacity
+     */
+    private void resize(int capacity) {
+        while (capacity / 2 < size()) {
+            capacity *= 2;
+        }
+        table = new Car[capacity];
+        numberOfPlates = 0;
+        for (Car car : this) {
+            index(car);
+        }
+    }
+
+    private int slotOf(Car car) {
+        return slotOf(car.getPlateKey(), car.getLicensePlate());
+    }
+
+    /**
+     * @param plateKey     the packed license plate
+     * @param licensePlate the license plate, which is only used if the key is INVALID
+     * @return the slot that holds the car with the given license plate, or the empty slot where it would be held
+     */
+    private int slotOf(long plateKey, String licensePlate) {
+        int mask = table.length - 1;
+        int slot = hash(plateKey, licensePlate) & mask;
+        if (plateKey != LicensePlateCodec.INVALID) {
+            while (table[slot] != null && table[slot].getPlateKey() != plateKey) {
+                slot = (slot + 1) & mask;
+            }
+        } else {
+            while (table[slot] != null && !table[slot].getLicensePlate().equals(licensePlate)) {
+                slot = (slot + 1) & mask;
+            }
+        }
+        return slot;
+    }
+
+    private static int hash(long plateKey, String licensePlate) {
+        if (plateKey != LicensePlateCodec.INVALID) {
+            return LicensePlateCodec.hash(plateKey);
+        }
+        int h = licensePlate.hashCode();
+        // spread the high bits, as the table only uses the low bits of the hash
+        return h ^ (h >>> 16);
+    }
+}
@@ -2,6 +2,7 @@ package models;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Function;
 
 import static models.Car.CarType;
 import static models.Car.FuelType;
@@ -33,9 +34,22 @@ public class Detection {
      * @param textLine The text line to parse.
      * @param cars     A list of known cars, ordered and searchable by licensePlate (i.e. the indexOf method of the list
      *                 shall only consider the licensePlate when comparing cars).
+     *                 A CarRegistry finds the car by its hash index, other lists are searched linearly.
      * @return A new Detection instance with the provided information or null if the textLine is corrupt or incomplete
      */
     public static Detection fromLine(String textLine, List<Car> cars) {
+        return fromLine(textLine, licensePlate -> findOrCreateCar(licensePlate, cars));
+    }
+
+    /**
+     * Parses detection information from a line of text, as fromLine(textLine, cars),
+     * but leaves finding or creating the car with the license plate to the given function.
+     *
+     * @param textLine        The text line to parse.
+     * @param findOrCreateCar A function that provides the car with a given license plate.
+     * @return A new Detection instance with the provided information or null if the textLine is corrupt or incomplete
+     */
+    public static Detection fromLine(String textLine, Function<String, Car> findOrCreateCar) {
         Detection newDetection = null;
         String[] parts = textLine.split(",");
 
@@ -45,26 +59,36 @@ public class Detection {
             String city = parts[1].trim();
             LocalDateTime dateTime = LocalDateTime.parse(parts[2].trim());
 
-            // Search for the car in the list using licensePlate
-            int carIndex = -1;
-            for (Car car : cars) {
-                if (car.getLicensePlate().equals(licensePlate)) {
-                    carIndex = cars.indexOf(car);
-                    break;
-                }
-            }
+            newDetection = new Detection(findOrCreateCar.apply(licensePlate), city, dateTime);
+        }
 
-            // If the car is not found, create a new Car and add it to the list
-            if (carIndex == -1) {
-                Car newCar = new Car(licensePlate);
-                cars.add(newCar);
-                carIndex = cars.indexOf(newCar);
-            }
+        return newDetection;
+    }
 
-            newDetection = new Detection(cars.get(carIndex), city, dateTime);
+    /**
+     * Finds the car with the given licensePlate in the list of cars.
+     * If the car is not found, a new Car is created and added to the list.
+     *
+     * @param licensePlate The license plate of the car.
+     * @param cars         The list of known cars.
+     * @return The car with the given licensePlate.
+     */
+    private static Car findOrCreateCar(String licensePlate, List<Car> cars) {
+        if (cars instanceof CarRegistry registry) {
+            return registry.findOrCreate(licensePlate);
         }
 
-        return newDetection;
+        // Search for the car in the list using licensePlate
+        for (Car car : cars) {
+            if (car.getLicensePlate().equals(licensePlate)) {
+                return car;
+            }
+        }
+
+        // If the car is not found, create a new Car and add it to the list
+        Car newCar = new Car(licensePlate);
+        cars.add(newCar);
+        return newCar;
     }
 
     /**
@@ -79,17 +103,27 @@ public class Detection {
      * null if no offence was found.
      */
     public Violation validatePurple() {
+        if (violatesPurple(car)) {
+            return new Violation(car, city);
+        }
+
+        return null;
+    }
+
+    /**
+     * Determines whether the given car may not enter a purple zone, see validatePurple
+     *
+     * @param car the detected car
+     * @return whether any detection of the car in a purple zone is an offence
+     */
+    public static boolean violatesPurple(Car car) {
         CarType carType = car.getCarType();
         FuelType fuelType = car.getFuelType();
         int emissionCategory = car.getEmissionCategory();
 
-        if ((carType == CarType.Truck || carType == CarType.Coach) &&
+        return (carType == CarType.Truck || carType == CarType.Coach) &&
                 fuelType == FuelType.Diesel &&
-                emissionCategory < 6) {
-            return new Violation(car, city);
-        }
-
-        return null;
+                emissionCategory < 6;
     }
 
     public Car getCar() {
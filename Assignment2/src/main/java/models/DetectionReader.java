@@ -0,0 +1,300 @@
+package models;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads detection files in the format 'licensePlate, city, dateTime' by memory mapping them,
+ * and parses every line directly from the mapped bytes into primitives:
+ * the packed license plate (see LicensePlateCodec), the id of the city and the date and time in epoch seconds (UTC).
+ * No Strings or LocalDateTime instances are created per line; a String is only created once for every new city.
+ *
+ * Lines that cannot be parsed into primitives, i.e. lines that do not have exactly three fields, license plates that
+ * cannot be packed or date and times that are not in the format yyyy-MM-ddTHH:mm:ss, are passed on as a String,
+ * such that they can still be handled as by Detection.fromLine.
+ * A DetectionReader is not thread safe; concurrent imports shall use a reader each.
+ */
+public class DetectionReader {
+    // the largest region of a file that is mapped at once
+    private static final int MAX_REGION_SIZE = 1 << 30;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int DATE_TIME_LENGTH = "yyyy-MM-ddTHH:mm:ss".length();
+
+    /**
+     * Receives the detections of a file
+     */
+    @FunctionalInterface
+    public interface DetectionHandler {
+        /**
+         * Receives a detection that has been parsed into primitives
+         *
+         * @param plateKey    the packed license plate
+         * @param cityId      the id of the city, see getCity
+         * @param epochSecond the date and time of the detection in seconds since 1970-01-01T00:00:00
+         */
+        void onDetection(long plateKey, int cityId, long epochSecond);
+
+        /**
+         * Receives a line that could not be parsed into primitives. Ignores the line by default.
+         *
+         * @param textLine the text line
+         */
+        default void onLine(String textLine) {
+        }
+    }
+
+    // the names of the cities by id, and an open addressing hash table on their bytes that holds id + 1 per slot
+    private byte[][] cityBytes = new byte[INITIAL_CAPACITY][];
+    private String[] cities = new String[INITIAL_CAPACITY];
+    private int[] citySlots = new int[2 * INITIAL_CAPACITY];
+    private int numberOfCities;
+
+    /**
+     * Reads all lines from the file and passes them to the handler
+     *
+     * @param file    the detection file
+     * @param handler the receiver of the detections
+     * @return the number of lines in the file (including empty lines)
+     * @throws IOException if the file cannot be read
+     */
+    public int read(Path file, DetectionHandler handler) throws IOException {
+        int numberOfLines = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                int regionSize = (int) Math.min(size - position, MAX_REGION_SIZE);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, regionSize);
+                int end = regionSize;
+                if (position + regionSize < size) {
+                    // only parse complete lines, the remainder is mapped again with the next region
+                    while (end > 0 && region.get(end - 1) != '\n') {
+                        end--;
+                    }
+                    if (end == 0) {
+                        throw new IOException("Line of more than " + MAX_REGION_SIZE + " bytes in " + file);
+                    }
+                }
+                numberOfLines += readLines(region, end, handler);
+                position += end;
+            }
+        }
+        return numberOfLines;
+    }
+
+    /**
+     * @param cityId the id of a city found by this reader
+     * @return the name of the city, which is the same String instance for every detection in the city
+     */
+    public String getCity(int cityId) {
+        return cities[cityId];
+    }
+
+    /**
+     * @return the number of different cities found by this reader
+     */
+    public int getNumberOfCities() {
+        return numberOfCities;
+    }
+
+    private int readLines(ByteBuffer buffer, int end, DetectionHandler handler) {
+        int numberOfLines = 0;
+        int start = 0;
+        while (start < end) {
+            int newline = start;
+            while (newline < end && buffer.get(newline) != '\n') {
+                newline++;
+            }
+            readLine(buffer, start, newline, handler);
+            numberOfLines++;
+            start = newline + 1;
+        }
+        return numberOfLines;
+    }
+
+    private void readLine(ByteBuffer buffer, int start, int end, DetectionHandler handler) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        if (start == end) {
+            return;
+        }
+        int comma1 = indexOf(buffer, ',', start, end);
+        int comma2 = comma1 < 0 ? -1 : indexOf(buffer, ',', comma1 + 1, end);
+        if (comma2 < 0 || indexOf(buffer, ',', comma2 + 1, end) >= 0) {
+            handler.onLine(decode(buffer, start, end));
+            return;
+        }
+
+        long plateKey = LicensePlateCodec.encode(buffer, trimStart(buffer, start, comma1), trimEnd(buffer, start, comma1));
+        int dateTimeStart = trimStart(buffer, comma2 + 1, end);
+        long epochSecond = parseEpochSecond(buffer, dateTimeStart, trimEnd(buffer, dateTimeStart, end));
+        if (plateKey == LicensePlateCodec.INVALID || epochSecond == Long.MIN_VALUE) {
+            handler.onLine(decode(buffer, start, end));
+            return;
+        }
+        int cityStart = trimStart(buffer, comma1 + 1, comma2);
+        handler.onDetection(plateKey, cityIdOf(buffer, cityStart, trimEnd(buffer, cityStart, comma2)), epochSecond);
+    }
+
+    /**
+     * Parses a date and time in the format yyyy-MM-ddTHH:mm:ss into seconds since the epoch, in UTC
+     *
+     * @return the epoch seconds, or Long.MIN_VALUE if the bytes do not hold a valid date and time in this format
+     */
+    private static long parseEpochSecond(ByteBuffer buffer, int from, int to) {
+        if (to - from != DATE_TIME_LENGTH || buffer.get(from + 4) != '-' || buffer.get(from + 7) != '-'
+                || buffer.get(from + 10) != 'T' || buffer.get(from + 13) != ':' || buffer.get(from + 16) != ':') {
+            return Long.MIN_VALUE;
+        }
+        int year = parseDigits(buffer, from, 4);
+        int month = parseDigits(buffer, from + 5, 2);
+        int day = parseDigits(buffer, from + 8, 2);
+        int hour = parseDigits(buffer, from + 11, 2);
+        int minute = parseDigits(buffer, from + 14, 2);
+        int second = parseDigits(buffer, from + 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return Long.MIN_VALUE;
+        }
+        return 86400L * epochDay(year, month, day) + 3600L * hour + 60L * minute + second;
+    }
+
+    /**
+     * @return the value of the decimal digits, or -1 if any of the bytes is not a digit
+     */
+    private static int parseDigits(ByteBuffer buffer, int from, int length) {
+        int value = 0;
+        for (int i = from; i < from + length; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = 10 * value + digit;
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        if (month == 2) {
+            return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * @return the number of days since 1970-01-01 of the given date in the proleptic Gregorian calendar
+     */
+    private static long epochDay(int year, int month, int day) {
+        // count years from March, such that the leap day is the last day of the year
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - 400 * era;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = 365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return 146097 * era + dayOfEra - 719468;
+    }
+
+    /**
+     * @return the id of the city with the name in the given range of bytes, which is added if it is new
+     */
+    private int cityIdOf(ByteBuffer buffer, int from, int to) {
+        int mask = citySlots.length - 1;
+        int slot = hash(buffer, from, to) & mask;
+        while (citySlots[slot] != 0) {
+            int cityId = citySlots[slot] - 1;
+            if (equals(cityBytes[cityId], buffer, from, to)) {
+                return cityId;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        byte[] name = new byte[to - from];
+        buffer.get(from, name);
+        if (numberOfCities == cities.length) {
+            cityBytes = Arrays.copyOf(cityBytes, 2 * numberOfCities);
+            cities = Arrays.copyOf(cities, 2 * numberOfCities);
+        }
+        cityBytes[numberOfCities] = name;
+        cities[numberOfCities] = new String(name, StandardCharsets.UTF_8);
+        citySlots[slot] = ++numberOfCities;
+        if (numberOfCities > citySlots.length / 2) {
+            rehashCities(2 * citySlots.length);
+        }
+        return numberOfCities - 1;
+    }
+
+    private void rehashCities(int capacity) {
+        citySlots = new int[capacity];
+        for (int cityId = 0; cityId < numberOfCities; cityId++) {
+            ByteBuffer name = ByteBuffer.wrap(cityBytes[cityId]);
+            int slot = hash(name, 0, name.limit()) & (capacity - 1);
+            while (citySlots[slot] != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            citySlots[slot] = cityId + 1;
+        }
+    }
+
+    private static int hash(ByteBuffer buffer, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + buffer.get(i);
+        }
+        // spread the high bits, as the table only uses the low bits of the hash
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equals(byte[] name, ByteBuffer buffer, int from, int to) {
+        if (name.length != to - from) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (name[i] != buffer.get(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(ByteBuffer buffer, char symbol, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == symbol) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the index of the first byte from the given index that is no whitespace, as by String.trim
+     */
+    private static int trimStart(ByteBuffer buffer, int from, int to) {
+        while (from < to && (buffer.get(from) & 0xFF) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * @return the index after the last byte before the given index that is no whitespace, as by String.trim
+     */
+    private static int trimEnd(ByteBuffer buffer, int from, int to) {
+        while (to > from && (buffer.get(to - 1) & 0xFF) <= ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    private static String decode(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
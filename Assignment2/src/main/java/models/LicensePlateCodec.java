@@ -0,0 +1,140 @@
+package models;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes license plates of up to 12 characters from the alphabet '-', '0'-'9' and 'A'-'Z' into a single long.
+ * Every character is encoded as a base-38 digit, most significant first, and shorter plates are padded with zeros.
+ * Hence, the numeric order of the keys equals the lexicographic order of the license plates (as by String.compareTo),
+ * and two plates are equal if and only if their keys are equal.
+ * Plates that cannot be encoded get the key INVALID, and shall be compared by their String instead.
+ */
+public final class LicensePlateCodec {
+    public static final long INVALID = -1L;
+    public static final int MAX_LENGTH = 12;
+
+    private static final int RADIX = 38;
+    private static final char[] SYMBOLS = "\0-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+    private static final byte[] DIGITS = new byte[128];
+
+    static {
+        for (int digit = 1; digit < SYMBOLS.length; digit++) {
+            DIGITS[SYMBOLS[digit]] = (byte) digit;
+        }
+    }
+
+    private LicensePlateCodec() {
+    }
+
+    /**
+     * @param licensePlate the license plate to encode
+     * @return the key of the license plate, or INVALID if it cannot be encoded
+     */
+    public static long encode(CharSequence licensePlate) {
+        int length = licensePlate.length();
+        if (length > MAX_LENGTH) {
+            return INVALID;
+        }
+        long key = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = digitOf(licensePlate.charAt(i));
+            if (digit == 0) {
+                return INVALID;
+            }
+            key = key * RADIX + digit;
+        }
+        return pad(key, length);
+    }
+
+    /**
+     * Encodes the license plate in the given range of ASCII bytes, without creating a String
+     *
+     * @param bytes the bytes that hold the license plate
+     * @param from  the index of the first byte of the license plate
+     * @param to    the index after the last byte of the license plate
+     * @return the key of the license plate, or INVALID if it cannot be encoded
+     */
+    public static long encode(byte[] bytes, int from, int to) {
+        // the byte loop is only kept in the buffer overload; no production path encodes plain arrays
+        return encode(ByteBuffer.wrap(bytes), from, to);
+    }
+
+    /**
+     * Encodes the license plate in the given range of ASCII bytes of a buffer, without creating a String
+     * and without changing the position of the buffer
+     *
+     * @param buffer the buffer that holds the license plate, e.g. a memory mapped file
+     * @param from   the index of the first byte of the license plate
+     * @param to     the index after the last byte of the license plate
+     * @return the key of the license plate, or INVALID if it cannot be encoded
+     */
+    public static long encode(ByteBuffer buffer, int from, int to) {
+        int length = to - from;
+        if (length > MAX_LENGTH) {
+            return INVALID;
+        }
+        long key = 0;
+        for (int i = from; i < to; i++) {
+            int digit = digitOf(buffer.get(i));
+            if (digit == 0) {
+                return INVALID;
+            }
+            key = key * RADIX + digit;
+        }
+        return pad(key, length);
+    }
+
+    /**
+     * @param key a valid key of a license plate
+     * @return the license plate of the key
+     */
+    public static String decode(long key) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Cannot decode an invalid license plate key");
+        }
+        char[] symbols = new char[MAX_LENGTH];
+        int length = 0;
+        for (int i = MAX_LENGTH - 1; i >= 0; i--) {
+            int digit = (int) (key % RADIX);
+            key /= RADIX;
+            symbols[i] = SYMBOLS[digit];
+            if (digit != 0 && length == 0) {
+                length = i + 1;
+            }
+        }
+        return new String(symbols, 0, length);
+    }
+
+    /**
+     * Compares two license plates by their keys, or by their Strings if either key is INVALID
+     */
+    public static int compare(long key1, String licensePlate1, long key2, String licensePlate2) {
+        if (key1 == INVALID || key2 == INVALID) {
+            return licensePlate1.compareTo(licensePlate2);
+        }
+        return Long.compare(key1, key2);
+    }
+
+    /**
+     * @return a well spread hash code of a valid key
+     */
+    public static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    /**
+     * @param symbol a character, or a byte as a signed value
+     * @return the digit of the symbol, or 0 if the symbol cannot be encoded (e.g. a byte outside ASCII is negative)
+     */
+    private static int digitOf(int symbol) {
+        return symbol >= 0 && symbol < DIGITS.length ? DIGITS[symbol] : 0;
+    }
+
+    private static long pad(long key, int length) {
+        for (int i = length; i < MAX_LENGTH; i++) {
+            key *= RADIX;
+        }
+        return key;
+    }
+}
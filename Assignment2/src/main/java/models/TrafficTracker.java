@@ -2,9 +2,12 @@ package models;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.Function;
 
 /**
@@ -15,11 +18,11 @@ public class TrafficTracker {
     private final String TRAFFIC_FILE_EXTENSION = ".txt";
     private final String TRAFFIC_FILE_PATTERN = ".+\\" + TRAFFIC_FILE_EXTENSION;
 
-    private final OrderedList<Car> cars; // the reference list of all known Cars registered by the RDW
+    private final CarRegistry cars; // the reference list of all known Cars registered by the RDW, indexed by license plate
     private final OrderedList<Violation> violations; // the accumulation of all offences by car and by city
 
     public TrafficTracker() {
-        this.cars = new OrderedArrayList<>(Car::compareTo);
+        this.cars = new CarRegistry();
         this.violations = new OrderedArrayList<>(Violation::compareByLicensePlateAndCity);
     }
 
@@ -49,11 +52,35 @@ public class TrafficTracker {
      * @param resourceName The name of the resource file.
      */
     public void importDetectionsFromVault(String resourceName) {
+        this.importDetectionsFromVault(resourceName, false);
+    }
+
+    /**
+     * Imports and merges all raw detection data from the vault, as importDetectionsFromVault(resourceName),
+     * optionally processing the files of the vault in parallel.
+     * In either mode, every file is memory mapped, parsed and validated into a batch of its own by a DetectionReader,
+     * without creating a String or a Detection per line, while the cars are only read.
+     * In parallel mode, the batches are created by fork-join tasks and merged in the order of the sequential traversal
+     * of the vault afterwards, such that the cars, the violations and the report equal those of a sequential import.
+     *
+     * @param resourceName The name of the resource file.
+     * @param parallel     Whether the files shall be processed in parallel.
+     */
+    public void importDetectionsFromVault(String resourceName, boolean parallel) {
         this.violations.clear();
+        File vault = createFileFromURL(Objects.requireNonNull(TrafficTracker.class.getResource(resourceName)));
 
-        int totalNumberOfOffences = this.mergeDetectionsFromVaultRecursively(
-                createFileFromURL(Objects.requireNonNull(TrafficTracker.class.getResource(resourceName))));
-        this.violations.sort();
+        // accumulate the offences of all files, and only materialise them as violations at the end of the import
+        ViolationAccumulator offences = new ViolationAccumulator();
+        int totalNumberOfOffences = 0;
+        if (parallel) {
+            for (DetectionsBatch batch : ForkJoinPool.commonPool().invoke(new ImportDetectionsTask(vault))) {
+                totalNumberOfOffences += this.mergeDetectionsBatch(batch, offences);
+            }
+        } else {
+            totalNumberOfOffences = this.mergeDetectionsFromVaultRecursively(vault, offences);
+        }
+        offences.mergeInto(this.violations);
 
         System.out.printf("Found %d offences among detections imported from files in %s.\n",
                 totalNumberOfOffences, resourceName);
@@ -63,72 +90,168 @@ public class TrafficTracker {
      * Traverses the detections vault recursively and processes every data file that it finds.
      * The method is called recursively for every subfolder that is found.
      *
-     * @param file The file or folder to be processed.
+     * @param file     The file or folder to be processed.
+     * @param offences The accumulator of the offences found.
      */
-    private int mergeDetectionsFromVaultRecursively(File file) {
+    private int mergeDetectionsFromVaultRecursively(File file, ViolationAccumulator offences) {
         int totalNumberOfOffences = 0;
 
         if (file.isDirectory()) {
             File[] filesInDirectory = Objects.requireNonNullElse(file.listFiles(), new File[0]);
 
             for (File subFile : filesInDirectory) {
-                totalNumberOfOffences += this.mergeDetectionsFromVaultRecursively(subFile);
+                totalNumberOfOffences += this.mergeDetectionsFromVaultRecursively(subFile, offences);
             }
         } else if (file.getName().matches(TRAFFIC_FILE_PATTERN)) {
-            totalNumberOfOffences += this.mergeDetectionsFromFile(file);
+            totalNumberOfOffences += this.mergeDetectionsBatch(this.importDetectionsBatch(file), offences);
         }
 
         return totalNumberOfOffences;
     }
 
     /**
-     * Imports another batch detection data from the filePath text file and merges the offences into the earlier
-     * imported and accumulated violations. Sorts the violations for efficient later retrieval.
-     *
-     * @param file The file to be processed
+     * The detections imported from one file of the vault, which have been validated independently of other files
+     */
+    private static class DetectionsBatch {
+        private final File file;
+        private final CarRegistry newCars = new CarRegistry(); // unknown cars, in order of first detection
+        private final ViolationAccumulator offences = new ViolationAccumulator();
+        private int numberOfDetections;
+        private int totalNumberOfOffences;
+
+        private DetectionsBatch(File file) {
+            this.file = file;
+        }
+    }
+
+    /**
+     * Traverses the detections vault as mergeDetectionsFromVaultRecursively, forking a task for every subfolder and
+     * file, and collects a batch for every data file in the order of the sequential traversal.
      */
-    private int mergeDetectionsFromFile(File file) {
-        this.violations.sort();
+    @SuppressWarnings("serial")
+    private class ImportDetectionsTask extends RecursiveTask<List<DetectionsBatch>> {
+        private final File file;
 
-        // Use a regular ArrayList to load the raw detection info from the file
-        List<Detection> newDetections = new ArrayList<>();
+        private ImportDetectionsTask(File file) {
+            this.file = file;
+        }
 
-        // Import all detections from the specified file into the newDetections list
-        importItemsFromFile(newDetections, file, s -> Detection.fromLine(s, cars));
+        @Override
+        protected List<DetectionsBatch> compute() {
+            List<DetectionsBatch> batches = new ArrayList<>();
 
-        System.out.printf("Imported %d detections from ...%s.\n",
-                newDetections.size(), file.getPath().split("classes")[1].replace("\\", "/"));
-        return getTotalNumberOfOffences(newDetections);
+            if (file.isDirectory()) {
+                File[] filesInDirectory = Objects.requireNonNullElse(file.listFiles(), new File[0]);
+
+                List<ImportDetectionsTask> subTasks = new ArrayList<>();
+                for (File subFile : filesInDirectory) {
+                    subTasks.add(new ImportDetectionsTask(subFile));
+                }
+                for (ImportDetectionsTask subTask : invokeAll(subTasks)) {
+                    batches.addAll(subTask.join());
+                }
+            } else if (file.getName().matches(TRAFFIC_FILE_PATTERN)) {
+                batches.add(importDetectionsBatch(file));
+            }
+
+            return batches;
+        }
     }
 
     /**
-     * Validate all detections against the purple criteria and merge any resulting offences into this.violations,
-     * accumulating offences per car and per city. If a violation already exists in this.violations, its offencesCount
-     * is updated, otherwise it is added to this.violations.
+     * Imports and validates the detections from a file without modifying this tracker.
+     * The file is memory mapped and parsed by a DetectionReader, without creating a Detection per line.
+     * Cars that are not known yet are only registered in the batch.
      *
-     * @param newDetections The list of new detections to be validated and merged.
-     * @return The total number of offences that emerge from the data in this file.
+     * @param file The file to be processed
+     * @return The batch of detections from the file
      */
-    private int getTotalNumberOfOffences(List<Detection> newDetections) {
-        int totalNumberOfOffences = 0;
-        for (Detection newDetection : newDetections) {
-            Violation violation = newDetection.validatePurple();
-            if (violation != null) {
-                Optional<Violation> existingViolation = this.violations.stream()
-                        .filter(v -> v.getCar().getLicensePlate().equals(violation.getCar().getLicensePlate())
-                                && v.getCity().equals(violation.getCity()))
-                        .findFirst();
-
-                if (existingViolation.isPresent()) {
-                    existingViolation.get().setOffencesCount(existingViolation.get().getOffencesCount() + 1);
-                } else {
-                    this.violations.add(violation);
+    private DetectionsBatch importDetectionsBatch(File file) {
+        DetectionsBatch batch = new DetectionsBatch(file);
+        DetectionReader reader = new DetectionReader();
+
+        try {
+            reader.read(file.toPath(), new DetectionReader.DetectionHandler() {
+                // the ids of the cities of the reader in the offences of the batch, plus one
+                private int[] offenceCityIds = new int[0];
+
+                @Override
+                public void onDetection(long plateKey, int cityId, long epochSecond) {
+                    Car car = cars.find(plateKey);
+                    if (car == null) {
+                        car = batch.newCars.findOrCreate(plateKey);
+                    }
+                    if (accept(car)) {
+                        addOffence(car, offenceCityIdOf(cityId));
+                    }
+                }
+
+                @Override
+                public void onLine(String textLine) {
+                    // lines that cannot be parsed into primitives are handled as by a sequential import
+                    Detection detection = Detection.fromLine(textLine, licensePlate -> {
+                        Car car = cars.find(licensePlate);
+                        return car != null ? car : batch.newCars.findOrCreate(licensePlate);
+                    });
+                    if (detection != null && accept(detection.getCar())) {
+                        addOffence(detection.getCar(), batch.offences.cityIdOf(detection.getCity()));
+                    }
+                }
+
+                /**
+                 * @return whether the detected car offends against the purple rules
+                 */
+                private boolean accept(Car car) {
+                    batch.numberOfDetections++;
+                    return Detection.violatesPurple(car);
+                }
+
+                private void addOffence(Car car, int offenceCityId) {
+                    batch.offences.add(car, offenceCityId, 1);
+                    batch.totalNumberOfOffences++;
+                }
+
+                private int offenceCityIdOf(int cityId) {
+                    if (cityId >= offenceCityIds.length) {
+                        offenceCityIds = Arrays.copyOf(offenceCityIds, Math.max(2 * offenceCityIds.length, cityId + 1));
+                    }
+                    if (offenceCityIds[cityId] == 0) {
+                        offenceCityIds[cityId] = batch.offences.cityIdOf(reader.getCity(cityId)) + 1;
+                    }
+                    return offenceCityIds[cityId] - 1;
                 }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("IO exception on path: " + file.getPath());
+        }
 
-                totalNumberOfOffences++;
+        return batch;
+    }
+
+    /**
+     * Merges a batch of detections into this tracker: registers the cars that were unknown to the batch,
+     * unless an earlier batch has registered them already, and adds its offences.
+     * New cars have no known type, hence all offences of the batch concern cars that were known already.
+     *
+     * @param batch    The batch of detections to be merged
+     * @param offences The accumulator of the offences found.
+     * @return The total number of offences of the batch.
+     */
+    private int mergeDetectionsBatch(DetectionsBatch batch, ViolationAccumulator offences) {
+        for (Car newCar : batch.newCars) {
+            if (this.cars.find(newCar.getLicensePlate()) == null) {
+                this.cars.add(newCar);
             }
         }
-        return totalNumberOfOffences;
+        offences.addAll(batch.offences);
+
+        reportImportedDetections(batch.file, batch.numberOfDetections);
+        return batch.totalNumberOfOffences;
+    }
+
+    private static void reportImportedDetections(File file, int numberOfDetections) {
+        System.out.printf("Imported %d detections from ...%s.\n",
+                numberOfDetections, file.getPath().split("classes")[1].replace("\\", "/"));
     }
 
     /**
@@ -25,7 +25,7 @@ public class Violation {
      * integer if v1 is greater than v2.
      */
     public static int compareByLicensePlateAndCity(Violation v1, Violation v2) {
-        int result = v1.car.getLicensePlate().compareTo(v2.car.getLicensePlate());
+        int result = v1.car.compareTo(v2.car);
         if (result == 0) {
             return v1.city.compareTo(v2.city);
         } else {
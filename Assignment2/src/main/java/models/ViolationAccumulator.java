@@ -0,0 +1,230 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Accumulates offences by car and by city in constant expected time per offence.
+ * The offences counts are kept in an open addressing hash table with linear probing on (plateKey, cityId),
+ * in which the packed license plate of the car (see LicensePlateCodec) and the id of the city are primitives,
+ * such that accumulating an offence compares no objects.
+ * The ids of the cities are assigned by the accumulator, see cityIdOf, and license plates that cannot be packed
+ * get a key of their own below LicensePlateCodec.INVALID.
+ * The offences are only materialised as Violation instances when they are merged into an ordered list of violations.
+ */
+public class ViolationAccumulator {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long EMPTY = LicensePlateCodec.INVALID;
+
+    // the names of the cities by id, and the ids of the cities by name
+    private final List<String> cityNames = new ArrayList<>();
+    private final Map<String, Integer> cityIdsByName = new HashMap<>();
+    // the keys of the license plates that cannot be packed
+    private final Map<String, Long> unpackedPlateKeys = new HashMap<>();
+
+    private long[] plateKeys = emptyPlateKeys(INITIAL_CAPACITY);
+    private int[] cityIds = new int[INITIAL_CAPACITY];
+    private Car[] cars = new Car[INITIAL_CAPACITY]; // the car of every slot, to materialise its violation
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private int size;
+    private int totalNumberOfOffences;
+
+    /**
+     * Finds the id of a city, which is added if it is new
+     *
+     * @param city the name of the city
+     * @return the id of the city in this accumulator
+     */
+    public int cityIdOf(String city) {
+        Integer cityId = cityIdsByName.get(city);
+        if (cityId == null) {
+            cityId = cityNames.size();
+            cityNames.add(city);
+            cityIdsByName.put(city, cityId);
+        }
+        return cityId;
+    }
+
+    /**
+     * Adds the offences of the given violation to the accumulated offences of its car in its city
+     *
+     * @param violation the violation to add
+     */
+    public void add(Violation violation) {
+        add(violation.getCar(), violation.getCity(), violation.getOffencesCount());
+    }
+
+    /**
+     * Adds a number of offences by a car in a city
+     *
+     * @param car           the offending car
+     * @param city          the city of the offences
+     * @param offencesCount the number of offences to add
+     */
+    public void add(Car car, String city, int offencesCount) {
+        add(car, cityIdOf(city), offencesCount);
+    }
+
+    /**
+     * Adds a number of offences by a car in a city
+     *
+     * @param car           the offending car
+     * @param cityId        the id of the city of the offences, see cityIdOf
+     * @param offencesCount the number of offences to add
+     */
+    public void add(Car car, int cityId, int offencesCount) {
+        Objects.checkIndex(cityId, cityNames.size());
+        long plateKey = plateKeyOf(car);
+        int slot = slotOf(plateKey, cityId);
+        if (plateKeys[slot] == EMPTY) {
+            plateKeys[slot] = plateKey;
+            cityIds[slot] = cityId;
+            cars[slot] = car;
+            if (++size > plateKeys.length / 2) {
+                resize(2 * plateKeys.length);
+                slot = slotOf(plateKey, cityId);
+            }
+        }
+        counts[slot] += offencesCount;
+        totalNumberOfOffences += offencesCount;
+    }
+
+    /**
+     * Adds all offences accumulated by the other accumulator
+     *
+     * @param other the other accumulator
+     */
+    public void addAll(ViolationAccumulator other) {
+        // the ids of the cities of the other accumulator in this accumulator
+        int[] otherCityIds = new int[other.cityNames.size()];
+        for (int cityId = 0; cityId < otherCityIds.length; cityId++) {
+            otherCityIds[cityId] = cityIdOf(other.cityNames.get(cityId));
+        }
+        for (int slot = 0; slot < other.plateKeys.length; slot++) {
+            if (other.plateKeys[slot] != EMPTY) {
+                add(other.cars[slot], otherCityIds[other.cityIds[slot]], other.counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * @param car  the car
+     * @param city the city
+     * @return the number of offences accumulated for the car in the city
+     */
+    public int getOffencesCount(Car car, String city) {
+        Integer cityId = cityIdsByName.get(city);
+        long plateKey = car.getPlateKey() != LicensePlateCodec.INVALID
+                ? car.getPlateKey() : unpackedPlateKeys.getOrDefault(car.getLicensePlate(), EMPTY);
+        if (cityId == null || plateKey == EMPTY) {
+            return 0;
+        }
+        return counts[slotOf(plateKey, cityId)];
+    }
+
+    /**
+     * @return the number of different combinations of car and city with offences
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the total number of offences across all cars and cities
+     */
+    public int getTotalNumberOfOffences() {
+        return totalNumberOfOffences;
+    }
+
+    /**
+     * Merges the accumulated offences into the given list of violations, which is sorted afterwards.
+     * The offences of a car in a city that already has a violation in the list are added to that violation,
+     * otherwise a new violation is added to the list.
+     *
+     * @param violations the list of violations, sorted by license plate and city
+     */
+    public void mergeInto(OrderedList<Violation> violations) {
+        violations.sort();
+        // new violations are only added after the search, such that the binary search covers the whole list
+        List<Violation> newViolations = new ArrayList<>();
+        for (int slot = 0; slot < plateKeys.length; slot++) {
+            if (plateKeys[slot] != EMPTY) {
+                Violation violation = new Violation(cars[slot], cityNames.get(cityIds[slot]));
+                violation.setOffencesCount(counts[slot]);
+                int index = violations.isEmpty() ? -1 : violations.indexOfByBinarySearch(violation);
+                if (index >= 0) {
+                    Violation existing = violations.get(index);
+                    existing.setOffencesCount(existing.getOffencesCount() + violation.getOffencesCount());
+                } else {
+                    newViolations.add(violation);
+                }
+            }
+        }
+        violations.addAll(newViolations);
+        violations.sort();
+    }
+
+    /**
+     * @return the key of the license plate of the car, which is assigned if the license plate cannot be packed
+     */
+    private long plateKeyOf(Car car) {
+        long plateKey = car.getPlateKey();
+        if (plateKey != LicensePlateCodec.INVALID) {
+            return plateKey;
+        }
+        Long unpackedPlateKey = unpackedPlateKeys.get(car.getLicensePlate());
+        if (unpackedPlateKey == null) {
+            unpackedPlateKey = EMPTY - 1 - unpackedPlateKeys.size();
+            unpackedPlateKeys.put(car.getLicensePlate(), unpackedPlateKey);
+        }
+        return unpackedPlateKey;
+    }
+
+    /**
+     * @return the slot that holds the offences of the plate in the city, or the empty slot where they would be held
+     */
+    private int slotOf(long plateKey, int cityId) {
+        int mask = plateKeys.length - 1;
+        int slot = hash(plateKey, cityId) & mask;
+        while (plateKeys[slot] != EMPTY && (plateKeys[slot] != plateKey || cityIds[slot] != cityId)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        long[] oldPlateKeys = plateKeys;
+        int[] oldCityIds = cityIds;
+        Car[] oldCars = cars;
+        int[] oldCounts = counts;
+        plateKeys = emptyPlateKeys(capacity);
+        cityIds = new int[capacity];
+        cars = new Car[capacity];
+        counts = new int[capacity];
+        for (int i = 0; i < oldPlateKeys.length; i++) {
+            if (oldPlateKeys[i] != EMPTY) {
+                int slot = slotOf(oldPlateKeys[i], oldCityIds[i]);
+                plateKeys[slot] = oldPlateKeys[i];
+                cityIds[slot] = oldCityIds[i];
+                cars[slot] = oldCars[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private static long[] emptyPlateKeys(int capacity) {
+        long[] plateKeys = new long[capacity];
+        Arrays.fill(plateKeys, EMPTY);
+        return plateKeys;
+    }
+
+    private static int hash(long plateKey, int cityId) {
+        int h = 31 * LicensePlateCodec.hash(plateKey) + cityId;
+        // spread the high bits, as the table only uses the low bits of the hash
+        return h ^ (h >>> 16);
+    }
+}
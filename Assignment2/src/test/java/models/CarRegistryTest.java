@@ -0,0 +1,98 @@
+package models;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CarRegistryTest {
+
+    Car scoda, audi, volvo1, daf1;
+    CarRegistry cars;
+
+    @BeforeEach
+    public void setup() {
+        Locale.setDefault(Locale.ENGLISH);
+        scoda = new Car("1-AAA-02", 6, Car.CarType.Car, Car.FuelType.Gasoline, LocalDate.of(2014, 1, 31));
+        audi = new Car("AA-11-BB", 4, Car.CarType.Car, Car.FuelType.Diesel, LocalDate.of(1998, 1, 31));
+        volvo1 = new Car("1-TTT-01", 5, Car.CarType.Truck, Car.FuelType.Diesel, LocalDate.of(2009, 1, 31));
+        daf1 = new Car("1-CCC-01", 5, Car.CarType.Coach, Car.FuelType.Diesel, LocalDate.of(2009, 1, 31));
+        cars = new CarRegistry();
+        cars.addAll(List.of(scoda, audi, volvo1, daf1));
+    }
+
+    @Test
+    public void findsCarsByLicensePlate() {
+        assertSame(audi, cars.find("AA-11-BB"));
+        assertSame(daf1, cars.find("1-CCC-01"));
+        assertNull(cars.find("ZZ-99-ZZ"));
+
+        cars.sort();
+        CarsListTest.checkRepresentationInvariant(cars);
+        assertSame(volvo1, cars.find("1-TTT-01"));
+        assertEquals(cars.indexOf(volvo1), cars.indexOf(cars.find("1-TTT-01")));
+    }
+
+    @Test
+    public void findOrCreateRegistersUnknownCarsOnce() {
+        Car kamaz = cars.findOrCreate("1-AAAA-0000");
+        assertEquals(5, cars.size());
+        assertSame(kamaz, cars.findOrCreate("1-AAAA-0000"));
+        assertSame(scoda, cars.findOrCreate("1-AAA-02"));
+        assertEquals(5, cars.size());
+        assertEquals(Car.CarType.Unknown, kamaz.getCarType());
+    }
+
+    @Test
+    public void indexFollowsRemovalsAndReplacements() {
+        assertTrue(cars.remove(audi));
+        assertNull(cars.find("AA-11-BB"));
+        assertSame(daf1, cars.find("1-CCC-01"));
+
+        cars.set(cars.indexOf(daf1), audi);
+        assertNull(cars.find("1-CCC-01"));
+        assertSame(audi, cars.find("AA-11-BB"));
+
+        cars.removeIf(car -> car.getCarType() == Car.CarType.Truck);
+        assertNull(cars.find("1-TTT-01"));
+        assertSame(scoda, cars.find("1-AAA-02"));
+
+        cars.clear();
+        assertNull(cars.find("1-AAA-02"));
+        assertNotNull(cars.findOrCreate("1-AAA-02"));
+    }
+
+    @Test
+    public void indexGrowsWithManyCars() {
+        for (int i = 0; i < 10000; i++) {
+            cars.findOrCreate(String.format("%03d-XX-%d", i % 1000, i / 1000));
+        }
+        assertEquals(10004, cars.size());
+        for (int i = 0; i < 10000; i += 7) {
+            String licensePlate = String.format("%03d-XX-%d", i % 1000, i / 1000);
+            assertEquals(licensePlate, cars.find(licensePlate).getLicensePlate());
+        }
+        for (int i = 0; i < 10000; i += 3) {
+            cars.remove(cars.find(String.format("%03d-XX-%d", i % 1000, i / 1000)));
+        }
+        for (int i = 0; i < 10000; i++) {
+            String licensePlate = String.format("%03d-XX-%d", i % 1000, i / 1000);
+            assertEquals(i % 3 != 0, cars.find(licensePlate) != null, licensePlate);
+        }
+    }
+
+    @Test
+    public void detectionsUseTheRegistry() {
+        Detection detection = Detection.fromLine("1-TTT-01, Amsterdam, 2022-10-01T12:11:10", cars);
+        assertSame(volvo1, detection.getCar());
+        Detection unknown = Detection.fromLine("1-AAAA-0000, Utrecht, 2022-10-01T12:11:10", cars);
+        assertSame(cars.find("1-AAAA-0000"), unknown.getCar());
+        assertEquals(LocalDateTime.of(2022, 10, 1, 12, 11, 10), unknown.getDateTime());
+        assertEquals(5, cars.size());
+    }
+}
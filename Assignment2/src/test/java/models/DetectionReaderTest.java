@@ -0,0 +1,88 @@
+package models;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DetectionReaderTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    public void parsesDetectionsIntoPrimitives() throws IOException {
+        Path file = folder.resolve("0.txt");
+        Files.writeString(file, """
+                134-XU-3, Amsterdam, 2023-09-19T00:23:21
+                 QJD-33-C ,Den Haag,2024-02-29T23:59:59\r
+
+                1-AAAA-0000, Amsterdam, 1969-12-31T23:59:59
+                """, StandardCharsets.UTF_8);
+
+        DetectionReader reader = new DetectionReader();
+        List<long[]> detections = new ArrayList<>();
+        int numberOfLines = reader.read(file, (plateKey, cityId, epochSecond) ->
+                detections.add(new long[]{plateKey, cityId, epochSecond}));
+
+        assertEquals(4, numberOfLines);
+        assertEquals(3, detections.size());
+        assertEquals(2, reader.getNumberOfCities());
+
+        assertEquals("134-XU-3", LicensePlateCodec.decode(detections.get(0)[0]));
+        assertEquals("Amsterdam", reader.getCity((int) detections.get(0)[1]));
+        assertEquals(LocalDateTime.parse("2023-09-19T00:23:21").toEpochSecond(ZoneOffset.UTC), detections.get(0)[2]);
+
+        assertEquals("QJD-33-C", LicensePlateCodec.decode(detections.get(1)[0]));
+        assertEquals("Den Haag", reader.getCity((int) detections.get(1)[1]));
+        assertEquals(LocalDateTime.parse("2024-02-29T23:59:59").toEpochSecond(ZoneOffset.UTC), detections.get(1)[2]);
+
+        assertEquals(detections.get(0)[1], detections.get(2)[1]);
+        assertEquals(-1, detections.get(2)[2]);
+    }
+
+    @Test
+    public void passesOnLinesThatCannotBeParsedIntoPrimitives() throws IOException {
+        Path file = folder.resolve("1.txt");
+        Files.writeString(file, String.join("\n",
+                "abc-12-d, Utrecht, 2023-09-19T00:23:21",
+                "AB-12-CD, Utrecht, 2023-09-19T00:23",
+                "AB-12-CD, Utrecht, 2023-02-29T00:23:21",
+                "AB-12-CD, Utrecht",
+                "AB-12-CD, Utrecht, 2023-09-19T00:23:21, extra",
+                "AB-12-CD, Utrecht, 2023-09-19T00:23:21"), StandardCharsets.UTF_8);
+
+        List<String> lines = new ArrayList<>();
+        int[] numberOfDetections = {0};
+        new DetectionReader().read(file, new DetectionReader.DetectionHandler() {
+            @Override
+            public void onDetection(long plateKey, int cityId, long epochSecond) {
+                numberOfDetections[0]++;
+            }
+
+            @Override
+            public void onLine(String textLine) {
+                lines.add(textLine);
+            }
+        });
+
+        assertEquals(1, numberOfDetections[0]);
+        assertEquals(5, lines.size());
+        assertEquals("abc-12-d, Utrecht, 2023-09-19T00:23:21", lines.get(0));
+    }
+
+    @Test
+    public void readsEmptyFiles() throws IOException {
+        Path file = Files.createFile(folder.resolve("2.txt"));
+        assertEquals(0, new DetectionReader().read(file, (plateKey, cityId, epochSecond) -> fail()));
+    }
+}
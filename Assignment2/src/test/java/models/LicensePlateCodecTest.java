@@ -0,0 +1,80 @@
+package models;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LicensePlateCodecTest {
+
+    @Test
+    public void encodesAndDecodesDutchLicensePlates() {
+        for (String licensePlate : List.of("QJD-33-C", "204-FZ-3", "1-AAAA-0000", "7-QGH-5437", "A", "", "ZZZZZZZZZZZZ")) {
+            long key = LicensePlateCodec.encode(licensePlate);
+            assertNotEquals(LicensePlateCodec.INVALID, key, licensePlate);
+            assertEquals(licensePlate, LicensePlateCodec.decode(key));
+        }
+    }
+
+    @Test
+    public void rejectsLicensePlatesThatCannotBePacked() {
+        assertEquals(LicensePlateCodec.INVALID, LicensePlateCodec.encode("qjd-33-c"));
+        assertEquals(LicensePlateCodec.INVALID, LicensePlateCodec.encode("QJD 33 C"));
+        // the low byte of \u0141 is 'A', which shall not be taken for the character
+        assertEquals(LicensePlateCodec.INVALID, LicensePlateCodec.encode("QJD-33-\u0141"));
+        assertEquals(LicensePlateCodec.INVALID, LicensePlateCodec.encode("1-AAAA-0000-0"));
+        assertThrows(IllegalArgumentException.class, () -> LicensePlateCodec.decode(LicensePlateCodec.INVALID));
+    }
+
+    @Test
+    public void encodesBytesWithoutStrings() {
+        byte[] line = "204-FZ-3, Amsterdam, 2023-09-19T00:23:21".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(LicensePlateCodec.encode("204-FZ-3"), LicensePlateCodec.encode(line, 0, 8));
+        assertEquals(LicensePlateCodec.INVALID, LicensePlateCodec.encode(line, 0, 9));
+        // the byte 0xC1 is no 'A', although its low seven bits are
+        assertEquals(LicensePlateCodec.INVALID, LicensePlateCodec.encode(new byte[]{'Q', (byte) 0xC1}, 0, 2));
+    }
+
+    @Test
+    public void keysAreOrderedLikeLicensePlates() {
+        Random random = new Random(2023);
+        String symbols = "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+        List<String> licensePlates = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            StringBuilder licensePlate = new StringBuilder();
+            for (int length = random.nextInt(LicensePlateCodec.MAX_LENGTH + 1); length > 0; length--) {
+                licensePlate.append(symbols.charAt(random.nextInt(symbols.length())));
+            }
+            licensePlates.add(licensePlate.toString());
+        }
+        licensePlates.add("qjd-33-c");
+        for (String p1 : licensePlates) {
+            Car car1 = new Car(p1);
+            for (int i = 0; i < 20; i++) {
+                String p2 = licensePlates.get(random.nextInt(licensePlates.size()));
+                Car car2 = new Car(p2);
+                assertEquals(Integer.signum(p1.compareTo(p2)), Integer.signum(car1.compareTo(car2)), p1 + " vs " + p2);
+                assertEquals(p1.equals(p2), car1.equals(car2));
+            }
+        }
+    }
+
+    @Test
+    public void registryFindsCarsByKey() {
+        CarRegistry cars = new CarRegistry();
+        Car scoda = new Car("1-AAA-02");
+        cars.add(scoda);
+        cars.add(new Car("abc"));
+        assertSame(scoda, cars.find(LicensePlateCodec.encode("1-AAA-02")));
+        assertSame(cars.get(1), cars.find("abc"));
+        assertNull(cars.find(LicensePlateCodec.INVALID));
+
+        Car kamaz = cars.findOrCreate(LicensePlateCodec.encode("1-AAAA-0000"));
+        assertEquals("1-AAAA-0000", kamaz.getLicensePlate());
+        assertSame(kamaz, cars.find("1-AAAA-0000"));
+    }
+}
@@ -3,7 +3,12 @@ package models;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -56,4 +61,64 @@ public class TrafficTrackerTest {
         assertEquals(7, trafficTracker.getViolations().stream().mapToInt(Violation::getOffencesCount).sum(),
                 "Total number of offences across all Violation instances did not match.");
     }
+
+    @Test
+    public void importMatchesAnImportOfTextLines() throws URISyntaxException {
+        for (String vaultName : new String[]{VAULT_NAME, "/2023-09"}) {
+            TrafficTracker tracker = new TrafficTracker();
+            tracker.importCarsFromVault(vaultName + "/cars.txt");
+            tracker.importDetectionsFromVault(vaultName + "/detections");
+
+            // the reference reads the vault with a Scanner, and parses every line by Detection.fromLine
+            CarRegistry cars = new CarRegistry();
+            TrafficTracker.importItemsFromFile(cars, resource(vaultName + "/cars.txt"), Car::fromLine);
+            cars.sort();
+            ViolationAccumulator offences = new ViolationAccumulator();
+            importTextLines(resource(vaultName + "/detections"), cars, offences);
+            OrderedList<Violation> violations = new OrderedArrayList<>(Violation::compareByLicensePlateAndCity);
+            offences.mergeInto(violations);
+
+            assertEquals(cars.toString(), tracker.getCars().toString());
+            assertEquals(violations.toString(), tracker.getViolations().toString());
+        }
+    }
+
+    private static File resource(String resourceName) throws URISyntaxException {
+        return new File(Objects.requireNonNull(TrafficTracker.class.getResource(resourceName)).toURI());
+    }
+
+    private static void importTextLines(File file, CarRegistry cars, ViolationAccumulator offences) {
+        if (file.isDirectory()) {
+            for (File subFile : Objects.requireNonNullElse(file.listFiles(), new File[0])) {
+                importTextLines(subFile, cars, offences);
+            }
+        } else if (file.getName().endsWith(".txt")) {
+            List<Detection> detections = new ArrayList<>();
+            TrafficTracker.importItemsFromFile(detections, file, line -> Detection.fromLine(line, cars));
+            for (Detection detection : detections) {
+                Violation violation = detection.validatePurple();
+                if (violation != null) {
+                    offences.add(violation);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void parallelImportMatchesSequentialImport() {
+        for (String vaultName : new String[]{VAULT_NAME, "/2023-09"}) {
+            TrafficTracker sequential = new TrafficTracker();
+            sequential.importCarsFromVault(vaultName + "/cars.txt");
+            sequential.importDetectionsFromVault(vaultName + "/detections");
+
+            TrafficTracker parallel = new TrafficTracker();
+            parallel.importCarsFromVault(vaultName + "/cars.txt");
+            parallel.importDetectionsFromVault(vaultName + "/detections", true);
+
+            CarsListTest.checkRepresentationInvariant(parallel.getViolations());
+            assertEquals(sequential.getCars().toString(), parallel.getCars().toString());
+            assertEquals(sequential.getViolations().toString(), parallel.getViolations().toString());
+            assertEquals(sequential.calculateTotalFines(), parallel.calculateTotalFines());
+        }
+    }
 }
@@ -0,0 +1,115 @@
+package models;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ViolationAccumulatorTest {
+
+    Car volvo1, volvo2, daf1;
+    ViolationAccumulator offences;
+
+    @BeforeEach
+    public void setup() {
+        Locale.setDefault(Locale.ENGLISH);
+        volvo1 = new Car("1-TTT-01", 5, Car.CarType.Truck, Car.FuelType.Diesel, LocalDate.of(2009, 1, 31));
+        volvo2 = new Car("1-TTT-02", 5, Car.CarType.Truck, Car.FuelType.Diesel, LocalDate.of(2011, 1, 31));
+        daf1 = new Car("1-CCC-01", 5, Car.CarType.Coach, Car.FuelType.Diesel, LocalDate.of(2009, 1, 31));
+        offences = new ViolationAccumulator();
+    }
+
+    @Test
+    public void accumulatesOffencesByCarAndCity() {
+        offences.add(new Violation(volvo1, "Amsterdam"));
+        offences.add(volvo1, "Amsterdam", 2);
+        offences.add(new Violation(new Car("1-TTT-01"), "Amsterdam"));
+        offences.add(volvo1, "Rotterdam", 1);
+        offences.add(daf1, "Amsterdam", 4);
+
+        assertEquals(3, offences.size());
+        assertEquals(9, offences.getTotalNumberOfOffences());
+        assertEquals(4, offences.getOffencesCount(volvo1, "Amsterdam"));
+        assertEquals(1, offences.getOffencesCount(volvo1, "Rotterdam"));
+        assertEquals(0, offences.getOffencesCount(volvo2, "Amsterdam"));
+    }
+
+    @Test
+    public void mergesIntoSortedViolations() {
+        OrderedList<Violation> violations = new OrderedArrayList<>(Violation::compareByLicensePlateAndCity);
+        violations.add(new Violation(volvo2, "Utrecht"));
+        violations.add(new Violation(volvo1, "Amsterdam"));
+
+        offences.add(volvo1, "Amsterdam", 2);
+        offences.add(daf1, "Den Haag", 3);
+        offences.mergeInto(violations);
+
+        CarsListTest.checkRepresentationInvariant(violations);
+        assertEquals("[1-CCC-01/Den Haag/3, 1-TTT-01/Amsterdam/3, 1-TTT-02/Utrecht/1]", violations.toString());
+    }
+
+    @Test
+    public void accumulatesOffencesByCityId() {
+        int amsterdam = offences.cityIdOf("Amsterdam");
+        int rotterdam = offences.cityIdOf("Rotterdam");
+        assertEquals(amsterdam, offences.cityIdOf("Amsterdam"));
+        assertNotEquals(amsterdam, rotterdam);
+
+        offences.add(volvo1, amsterdam, 2);
+        offences.add(volvo1, "Amsterdam", 1);
+        offences.add(volvo1, rotterdam, 1);
+        assertEquals(2, offences.size());
+        assertEquals(3, offences.getOffencesCount(volvo1, "Amsterdam"));
+        assertEquals(0, offences.getOffencesCount(volvo1, "Utrecht"));
+        assertThrows(IndexOutOfBoundsException.class, () -> offences.add(volvo1, 2, 1));
+    }
+
+    @Test
+    public void addsAllOffencesOfAnotherAccumulatorByCity() {
+        ViolationAccumulator other = new ViolationAccumulator();
+        // the same cities get different ids in both accumulators
+        other.add(daf1, "Rotterdam", 2);
+        other.add(volvo1, "Amsterdam", 1);
+        offences.add(volvo1, "Amsterdam", 3);
+
+        offences.addAll(other);
+        assertEquals(2, offences.size());
+        assertEquals(6, offences.getTotalNumberOfOffences());
+        assertEquals(4, offences.getOffencesCount(volvo1, "Amsterdam"));
+        assertEquals(2, offences.getOffencesCount(daf1, "Rotterdam"));
+        assertEquals(0, offences.getOffencesCount(daf1, "Amsterdam"));
+    }
+
+    @Test
+    public void accumulatesOffencesOfLicensePlatesThatCannotBePacked() {
+        offences.add(new Car("qjd-33-c"), "Amsterdam", 1);
+        offences.add(new Car("qjd-33-c"), "Amsterdam", 1);
+        offences.add(new Car("QJD 33 C"), "Amsterdam", 1);
+
+        assertEquals(2, offences.size());
+        assertEquals(2, offences.getOffencesCount(new Car("qjd-33-c"), "Amsterdam"));
+        assertEquals(0, offences.getOffencesCount(new Car("xyz-99-q"), "Amsterdam"));
+
+        OrderedList<Violation> violations = new OrderedArrayList<>(Violation::compareByLicensePlateAndCity);
+        offences.mergeInto(violations);
+        assertEquals("[QJD 33 C/Amsterdam/1, qjd-33-c/Amsterdam/2]", violations.toString());
+    }
+
+    @Test
+    public void growsWithManyCombinations() {
+        String[] cities = {"Amsterdam", "Rotterdam", "Den Haag", "Utrecht", "Eindhoven"};
+        for (int i = 0; i < 20000; i++) {
+            offences.add(new Car(String.format("%04d-TR", i % 4000)), cities[i / 4000], 1);
+        }
+        assertEquals(20000, offences.size());
+        assertEquals(1, offences.getOffencesCount(new Car("0007-TR"), "Den Haag"));
+
+        OrderedList<Violation> violations = new OrderedArrayList<>(Violation::compareByLicensePlateAndCity);
+        offences.mergeInto(violations);
+        assertEquals(20000, violations.size());
+        CarsListTest.checkRepresentationInvariant(violations);
+    }
+}